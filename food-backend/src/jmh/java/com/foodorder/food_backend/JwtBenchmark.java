@@ -0,0 +1,62 @@
+package com.foodorder.food_backend;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request authentication cost of {@link JwtUtil#validateAndGetUserId}.
+ * {@code perRequestParser} reproduces the old path, which built a parser and
+ * verified the signature on every call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+    private static final int DISTINCT_TOKENS = 1 << 16;
+
+    private JwtUtil jwtUtil;
+    private String token;
+    private String[] manyTokens;
+    private int next;
+
+    @Setup
+    public void setup() {
+        jwtUtil = new JwtUtil();
+        token = jwtUtil.generateToken("user-1", "user-1@example.com");
+        manyTokens = new String[DISTINCT_TOKENS];
+        for (int i = 0; i < DISTINCT_TOKENS; i++) {
+            manyTokens[i] = jwtUtil.generateToken("user-" + i, "user-" + i + "@example.com");
+        }
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken("user-1", "user-1@example.com");
+    }
+
+    @Benchmark
+    public String perRequestParser() {
+        Claims claims = Jwts.parserBuilder().setSigningKey(jwtUtil.signingKey()).build()
+                .parseClaimsJws(token).getBody();
+        return claims.getSubject();
+    }
+
+    @Benchmark
+    public String cachedRepeatToken() {
+        return jwtUtil.validateAndGetUserId(token);
+    }
+
+    /** Cycles through more tokens than the cache holds, so most calls verify the signature. */
+    @Benchmark
+    public String reusedParserMostlyMisses() {
+        String t = manyTokens[next++ & (DISTINCT_TOKENS - 1)];
+        return jwtUtil.validateAndGetUserId(t);
+    }
+}
@@ -0,0 +1,69 @@
+package com.foodorder.food_backend.config;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Load probe for the virtual-thread mode. Each simulated request blocks on a
+ * future for {@code latencyMs}, the way our services block on
+ * {@code ApiFuture.get()} while Firestore answers. {@code platform} mirrors
+ * Tomcat's default pool of 200 request threads; {@code virtual} is what
+ * {@code spring.threads.virtual.enabled=true} gives us. Both run in the same
+ * 256 MB heap, so the difference is how many requests can wait at once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms256m", "-Xmx256m"})
+public class BlockingCallBenchmark {
+
+    private static final int PLATFORM_REQUEST_THREADS = 200;
+
+    @Param({"platform", "virtual"})
+    public String mode;
+
+    @Param({"200", "2000", "10000"})
+    public int concurrentRequests;
+
+    @Param({"20"})
+    public long latencyMs;
+
+    private ExecutorService requests;
+    private ScheduledExecutorService backend;
+
+    @Setup
+    public void setup() {
+        requests = new BackgroundThreads("virtual".equals(mode)).executor("request-", PLATFORM_REQUEST_THREADS);
+        backend = Executors.newScheduledThreadPool(2);
+    }
+
+    @TearDown
+    public void tearDown() {
+        requests.shutdownNow();
+        backend.shutdownNow();
+    }
+
+    /** Time for a burst of {@code concurrentRequests} simultaneous requests to finish. */
+    @Benchmark
+    public int burst() throws Exception {
+        List<Future<Integer>> inFlight = new ArrayList<>(concurrentRequests);
+        for (int i = 0; i < concurrentRequests; i++) {
+            int request = i;
+            inFlight.add(requests.submit(() -> handle(request)));
+        }
+        int sum = 0;
+        for (Future<Integer> f : inFlight) sum += f.get();
+        return sum;
+    }
+
+    private int handle(int request) throws Exception {
+        CompletableFuture<Integer> rpc = new CompletableFuture<>();
+        backend.schedule(() -> rpc.complete(request), latencyMs, TimeUnit.MILLISECONDS);
+        return rpc.get();
+    }
+}
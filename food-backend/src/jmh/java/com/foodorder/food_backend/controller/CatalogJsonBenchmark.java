@@ -0,0 +1,67 @@
+package com.foodorder.food_backend.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.foodorder.food_backend.model.Food;
+import com.foodorder.food_backend.model.Restaurant;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON rendering of the catalog responses, {@code GET /api/restaurants} with
+ * embedded menus and {@code GET /api/foods}, using an {@link ObjectMapper}
+ * configured the way Spring Boot configures the one behind its converters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CatalogJsonBenchmark {
+
+    @Param({"20", "200"})
+    public int restaurantCount;
+
+    @Param({"20"})
+    public int menuSize;
+
+    private ObjectMapper mapper;
+    private List<Restaurant> restaurants;
+    private List<Food> foods;
+
+    @Setup
+    public void setup() {
+        mapper = Jackson2ObjectMapperBuilder.json().build();
+        restaurants = new ArrayList<>(restaurantCount);
+        foods = new ArrayList<>();
+        for (int r = 0; r < restaurantCount; r++) {
+            Restaurant restaurant = new Restaurant("Restaurant " + r, "Kolkata", "https://images.example.com/r/" + r + ".jpg");
+            restaurant.setId("restaurant-" + r);
+            restaurant.setLatitude(22.57 + r * 0.001);
+            restaurant.setLongitude(88.36 + r * 0.001);
+            for (int i = 0; i < menuSize; i++) {
+                Food food = new Food("Dish " + i, 9.99 + i);
+                food.setId("food-" + r + "-" + i);
+                food.setCategory(i % 2 == 0 ? "Pizza" : "Burger");
+                food.setImageUrl("https://images.example.com/food/" + i + ".jpg");
+                restaurant.addFood(food);
+                foods.add(food);
+            }
+            restaurants.add(restaurant);
+        }
+    }
+
+    @Benchmark
+    public byte[] renderRestaurants() throws Exception {
+        return mapper.writeValueAsBytes(restaurants);
+    }
+
+    @Benchmark
+    public byte[] renderFoods() throws Exception {
+        return mapper.writeValueAsBytes(foods);
+    }
+}
@@ -0,0 +1,88 @@
+package com.foodorder.food_backend.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.foodorder.food_backend.model.CartItem;
+import com.foodorder.food_backend.model.Order;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request and response mapping of the order endpoints without the network or
+ * Firestore: parsing a {@code /api/order/place} body the way Spring binds
+ * {@code @RequestBody Map}, mapping it to cart items, and rendering a user's
+ * order history as {@link OrderController#getOrders} does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderPayloadBenchmark {
+
+    @Param({"1", "5", "20"})
+    public int itemCount;
+
+    private ObjectMapper mapper;
+    private byte[] body;
+    private List<?> parsedItems;
+    private List<Order> history;
+
+    @Setup
+    public void setup() throws Exception {
+        mapper = Jackson2ObjectMapperBuilder.json().build();
+
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (int i = 0; i < itemCount; i++) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("id", UUID.randomUUID().toString());
+            item.put("name", "Margherita Pizza " + i);
+            item.put("price", 12.5 + i);
+            item.put("quantity", 1 + i % 3);
+            item.put("image", "https://images.example.com/food/" + i + ".jpg");
+            item.put("restaurant", "Gourmet Galaxy");
+            items.add(item);
+        }
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("userId", "user-1");
+        payload.put("address", "221B Baker Street");
+        payload.put("totalAmount", 42.5);
+        payload.put("items", items);
+        body = mapper.writeValueAsBytes(payload);
+        parsedItems = items;
+        List<CartItem> cartItems = OrderController.toCartItems(items);
+
+        history = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Order order = new Order();
+            order.setId("order-" + i);
+            order.setUserId("user-1");
+            order.setAddress("221B Baker Street");
+            order.setTotalAmount(42.5);
+            order.setOrderDate(LocalDateTime.now());
+            order.setStatus("Delivered");
+            order.setItems(cartItems);
+            history.add(order);
+        }
+    }
+
+    @Benchmark
+    public List<CartItem> mapPayload() {
+        return OrderController.toCartItems(parsedItems);
+    }
+
+    @Benchmark
+    public List<CartItem> parseAndMapPayload() throws Exception {
+        Map<?, ?> payload = mapper.readValue(body, Map.class);
+        return OrderController.toCartItems((List<?>) payload.get("items"));
+    }
+
+    @Benchmark
+    public byte[] renderHistory() throws Exception {
+        return mapper.writeValueAsBytes(OrderController.toResponse(history));
+    }
+}
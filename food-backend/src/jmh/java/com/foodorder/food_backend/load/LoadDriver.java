@@ -0,0 +1,238 @@
+package com.foodorder.food_backend.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Closed-loop load driver for a running backend, normally one started against
+ * the Firestore emulator (see {@code FirebaseConfig}). Each simulated user
+ * signs up, logs in, then repeatedly browses, searches, fills a cart, places
+ * an order, polls its order history and cancels some of its orders. Latency
+ * is recorded per endpoint and reported as throughput and p50/p99/p999, on
+ * stdout and as JSON.
+ *
+ * <p>Settings are system properties: {@code load.baseUrl}, {@code load.users},
+ * {@code load.durationSeconds}, {@code load.cancelRatio},
+ * {@code load.seedRestaurants} (created when the catalog is empty) and
+ * {@code load.results}.
+ */
+public final class LoadDriver {
+
+    private static final String[] SEARCH_TERMS = {"pizza", "burger", "chicken", "paneer", "cake", "dosa", "sushi"};
+    private static final String[] DISHES = {"Margherita Pizza", "Veg Burger", "Chicken Biryani", "Paneer Tikka",
+            "Chocolate Cake", "Masala Dosa", "Sushi Roll", "Butter Chicken", "Pasta Alfredo", "Caesar Salad"};
+    private static final String[] CATEGORIES = {"Pizza", "Burger", "Rice", "Starter", "Dessert", "South Indian",
+            "Japanese", "Curry", "Pasta", "Salad"};
+
+    private final String baseUrl = System.getProperty("load.baseUrl", "http://localhost:8080");
+    private final int users = Integer.getInteger("load.users", 50);
+    private final long durationMs = TimeUnit.SECONDS.toMillis(Long.getLong("load.durationSeconds", 60));
+    private final double cancelRatio = Double.parseDouble(System.getProperty("load.cancelRatio", "0.2"));
+    private final int seedRestaurants = Integer.getInteger("load.seedRestaurants", 20);
+    private final Path resultsFile = Path.of(System.getProperty("load.results", "target/load-results.json"));
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final ObjectMapper json = new ObjectMapper();
+    private final Map<String, LatencyHistogram> endpoints = new ConcurrentSkipListMap<>();
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+    public static void main(String[] args) throws Exception {
+        new LoadDriver().run();
+    }
+
+    private void run() throws Exception {
+        List<Map<String, Object>> restaurants = catalog();
+        if (restaurants.isEmpty() && seedRestaurants > 0) {
+            seed();
+            restaurants = catalog();
+        }
+        if (restaurants.isEmpty()) {
+            System.out.println("No restaurants to order from at " + baseUrl);
+            return;
+        }
+        endpoints.clear();
+
+        System.out.printf("Running %d users against %s for %d s%n", users, baseUrl, durationMs / 1000);
+        long deadline = System.currentTimeMillis() + durationMs;
+        long startedAt = System.nanoTime();
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < users; i++) {
+                int user = i;
+                pool.execute(() -> simulateUser(user, deadline));
+            }
+        }
+        double elapsedSec = (System.nanoTime() - startedAt) / 1e9;
+        report(elapsedSec);
+    }
+
+    private void simulateUser(int index, long deadline) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String email = "load-" + runId + "-" + index + "@example.com";
+        try {
+            call("signup", "POST", "/api/auth/signup", null,
+                    Map.of("name", "Load User " + index, "email", email, "password", "secret-" + index));
+            Map<?, ?> login = (Map<?, ?>) call("login", "POST", "/api/auth/login", null,
+                    Map.of("email", email, "password", "secret-" + index));
+            if (login == null || !(login.get("user") instanceof Map<?, ?> user)) return;
+            String userId = (String) user.get("id");
+            String token = (String) login.get("token");
+
+            while (System.currentTimeMillis() < deadline) {
+                List<Map<String, Object>> restaurants = toList(call("restaurants", "GET", "/api/restaurants", token, null));
+                call("search", "GET", "/api/foods/search?q=" + SEARCH_TERMS[random.nextInt(SEARCH_TERMS.length)],
+                        token, null);
+                if (restaurants.isEmpty()) continue;
+
+                Map<String, Object> restaurant = restaurants.get(random.nextInt(restaurants.size()));
+                List<Map<String, Object>> menu = toList(restaurant.get("menu"));
+                if (menu.isEmpty()) {
+                    menu = toList(call("menu", "GET", "/api/restaurants/" + restaurant.get("id") + "/menu", token, null));
+                }
+                if (menu.isEmpty()) continue;
+
+                List<Map<String, Object>> items = new ArrayList<>();
+                long totalCents = 0;
+                for (int n = 1 + random.nextInt(3); n > 0; n--) {
+                    Map<String, Object> food = menu.get(random.nextInt(menu.size()));
+                    int quantity = 1 + random.nextInt(2);
+                    Map<String, Object> item = new HashMap<>();
+                    item.put("id", food.get("id"));
+                    item.put("name", food.get("name"));
+                    item.put("price", food.get("price"));
+                    item.put("quantity", quantity);
+                    item.put("image", food.get("imageUrl"));
+                    item.put("restaurant", restaurant.get("name"));
+                    items.add(item);
+                    totalCents += Math.round(((Number) food.get("price")).doubleValue() * 100) * quantity;
+                    call("cart.add", "POST", "/api/cart/" + userId + "/add", token, item);
+                }
+
+                Map<String, Object> order = new HashMap<>();
+                order.put("userId", userId);
+                order.put("address", index + " Load Test Lane");
+                order.put("totalAmount", totalCents / 100.0);
+                order.put("items", items);
+                Map<?, ?> placed = (Map<?, ?>) call("order.place", "POST", "/api/order/place", token, order);
+
+                call("order.history", "GET", "/api/order/" + userId + "?pageSize=10", token, null);
+                if (placed != null && placed.get("orderId") != null && random.nextDouble() < cancelRatio) {
+                    call("order.cancel", "PUT", "/api/order/update-status/" + userId + "/" + placed.get("orderId"),
+                            token, Map.of("status", "Cancelled"));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Sends one request and records its latency; returns the parsed body, or null on failure. */
+    private Object call(String endpoint, String method, String path, String token, Object body)
+            throws InterruptedException {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .timeout(Duration.ofSeconds(30))
+                    .header("Accept", "application/json");
+            if (token != null) request.header("Authorization", "Bearer " + token);
+            if (body == null) {
+                request.method(method, HttpRequest.BodyPublishers.noBody());
+            } else {
+                request.header("Content-Type", "application/json")
+                        .method(method, HttpRequest.BodyPublishers.ofByteArray(json.writeValueAsBytes(body)));
+            }
+            HttpResponse<byte[]> response = http.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+            Object parsed = parse(response.body());
+            ok = response.statusCode() < 400
+                    && !(parsed instanceof Map<?, ?> map && "error".equals(map.get("status")));
+            return ok ? parsed : null;
+        } catch (IOException e) {
+            return null;
+        } finally {
+            endpoints.computeIfAbsent(endpoint, name -> new LatencyHistogram())
+                    .record((System.nanoTime() - start) / 1000, ok);
+        }
+    }
+
+    /** JSON bodies are parsed; endpoints that return a bare string, like a new restaurant's id, come back as text. */
+    private Object parse(byte[] body) {
+        if (body.length == 0) return null;
+        try {
+            return json.readValue(body, Object.class);
+        } catch (IOException e) {
+            return new String(body, StandardCharsets.UTF_8);
+        }
+    }
+
+    private List<Map<String, Object>> catalog() throws InterruptedException {
+        return toList(call("restaurants", "GET", "/api/restaurants", null, null));
+    }
+
+    private void seed() throws InterruptedException {
+        System.out.printf("Seeding %d restaurants%n", seedRestaurants);
+        for (int r = 0; r < seedRestaurants; r++) {
+            Map<String, Object> restaurant = new HashMap<>();
+            restaurant.put("name", "Load Kitchen " + runId + "-" + r);
+            restaurant.put("location", "Kolkata");
+            restaurant.put("latitude", 22.5 + r * 0.01);
+            restaurant.put("longitude", 88.3 + r * 0.01);
+            Object id = call("seed.restaurant", "POST", "/api/restaurants", null, restaurant);
+            if (id == null) continue;
+            for (int i = 0; i < DISHES.length; i++) {
+                call("seed.menu", "POST", "/api/restaurants/" + id + "/menu", null,
+                        Map.of("name", DISHES[i], "price", 5 + i * 1.5, "category", CATEGORIES[i]));
+            }
+        }
+        // Give the catalog listeners, and the price index behind order validation, time to catch up.
+        Thread.sleep(2000);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> toList(Object value) {
+        return value instanceof List<?> list ? (List<Map<String, Object>>) list : List.of();
+    }
+
+    private void report(double elapsedSec) throws IOException {
+        System.out.printf("%n%-18s %9s %7s %10s %10s %10s %10s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms");
+        Map<String, Object> results = new LinkedHashMap<>();
+        for (Map.Entry<String, LatencyHistogram> entry : endpoints.entrySet()) {
+            LatencyHistogram h = entry.getValue();
+            double throughput = h.count() / elapsedSec;
+            System.out.printf("%-18s %9d %7d %10.1f %10.2f %10.2f %10.2f%n", entry.getKey(), h.count(), h.errors(),
+                    throughput, h.percentile(0.5) / 1000.0, h.percentile(0.99) / 1000.0, h.percentile(0.999) / 1000.0);
+
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("requests", h.count());
+            row.put("errors", h.errors());
+            row.put("throughputPerSecond", throughput);
+            row.put("p50Micros", h.percentile(0.5));
+            row.put("p99Micros", h.percentile(0.99));
+            row.put("p999Micros", h.percentile(0.999));
+            results.put(entry.getKey(), row);
+        }
+
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("baseUrl", baseUrl);
+        document.put("users", users);
+        document.put("elapsedSeconds", elapsedSec);
+        document.put("endpoints", results);
+        if (resultsFile.getParent() != null) Files.createDirectories(resultsFile.getParent());
+        json.writerWithDefaultPrettyPrinter().writeValue(resultsFile.toFile(), document);
+        System.out.println("\nResults written to " + resultsFile.toAbsolutePath());
+    }
+}
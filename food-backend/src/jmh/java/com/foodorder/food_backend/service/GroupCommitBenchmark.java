@@ -0,0 +1,76 @@
+package com.foodorder.food_backend.service;
+
+import com.foodorder.food_backend.config.BackgroundThreads;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Throughput and per-placement latency of {@link GroupCommitter} against a
+ * simulated Firestore: each commit costs {@code commitOverheadUs} of
+ * serialized server time plus {@code perWriteUs} per placement, and returns
+ * after {@code rttMs}. {@code maxBatch=1} is the one-commit-per-order
+ * baseline; compare its ops/ms and sampled latency with the grouped runs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(64)
+@Fork(1)
+public class GroupCommitBenchmark {
+
+    @Param({"1", "20", "100"})
+    public int maxBatch;
+
+    @Param({"0", "2", "5"})
+    public long windowMs;
+
+    @Param({"500"})
+    public long commitOverheadUs;
+
+    @Param({"20"})
+    public long perWriteUs;
+
+    @Param({"5"})
+    public long rttMs;
+
+    private ScheduledExecutorService network;
+    private GroupCommitter<Integer, Long> committer;
+    private long nextFreeNanos;
+
+    @Setup
+    public void setup() {
+        network = Executors.newScheduledThreadPool(2);
+        committer = new GroupCommitter<>("bench-ingest", new BackgroundThreads(false), maxBatch, windowMs, this::commit);
+    }
+
+    @TearDown
+    public void tearDown() {
+        committer.stop();
+        network.shutdownNow();
+    }
+
+    @Benchmark
+    public Long placeOrder() {
+        return committer.submit(1).join();
+    }
+
+    private CompletableFuture<List<Long>> commit(List<Integer> group) {
+        long serviceNanos = TimeUnit.MICROSECONDS.toNanos(commitOverheadUs + perWriteUs * group.size());
+        long doneAt;
+        synchronized (this) {
+            long now = System.nanoTime();
+            nextFreeNanos = Math.max(now, nextFreeNanos) + serviceNanos;
+            doneAt = nextFreeNanos;
+        }
+        long delay = doneAt - System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(rttMs);
+
+        CompletableFuture<List<Long>> result = new CompletableFuture<>();
+        network.schedule(() -> result.complete(Collections.nCopies(group.size(), doneAt)), delay, TimeUnit.NANOSECONDS);
+        return result;
+    }
+}
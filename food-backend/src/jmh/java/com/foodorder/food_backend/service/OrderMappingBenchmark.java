@@ -0,0 +1,77 @@
+package com.foodorder.food_backend.service;
+
+import com.foodorder.food_backend.model.CartItem;
+import com.foodorder.food_backend.model.Order;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning cart items into the {@code items} array of an order
+ * document, and of reading order documents back into {@link Order}s as
+ * {@code getOrdersByUser} does. Document data is a plain map, as
+ * {@code DocumentSnapshot.getData()} returns it, so no Firestore is needed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderMappingBenchmark {
+
+    @Param({"1", "5", "20"})
+    public int itemCount;
+
+    @Param({"50"})
+    public int historySize;
+
+    private List<CartItem> items;
+    private Map<String, Object> document;
+    private List<Map<String, Object>> history;
+
+    @Setup
+    public void setup() {
+        items = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            CartItem item = new CartItem();
+            item.setId(UUID.randomUUID().toString());
+            item.setName("Margherita Pizza " + i);
+            item.setPrice(12.5 + i);
+            item.setQuantity(1 + i % 3);
+            item.setImage("https://images.example.com/food/" + i + ".jpg");
+            items.add(item);
+        }
+
+        document = new HashMap<>();
+        document.put("userId", "user-1");
+        document.put("items", OrderService.serializeItems(items));
+        document.put("address", "221B Baker Street");
+        document.put("totalAmount", 42.5);
+        document.put("orderDate", LocalDateTime.now().toString());
+        document.put("placedAt", System.currentTimeMillis());
+        document.put("status", "Placed");
+
+        history = Collections.nCopies(historySize, document);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> serializeItems() {
+        return OrderService.serializeItems(items);
+    }
+
+    @Benchmark
+    public Order readOrder() {
+        return OrderService.toOrder("order-1", document);
+    }
+
+    /** One {@code getOrdersByUser} response worth of documents. */
+    @Benchmark
+    public List<Order> readHistory() {
+        List<Order> orders = new ArrayList<>(history.size());
+        for (int i = 0; i < history.size(); i++) orders.add(OrderService.toOrder("order-" + i, history.get(i)));
+        return orders;
+    }
+}
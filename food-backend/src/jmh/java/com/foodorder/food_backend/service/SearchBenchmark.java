@@ -0,0 +1,54 @@
+package com.foodorder.food_backend.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query latency of {@link SearchIndex} over a synthetic catalog of
+ * {@code items} menu entries spread across 5000 restaurants. Names repeat
+ * heavily, so common words match a large share of the catalog; that is the
+ * slow case. Read the p0.99 line of the sample-time output.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class SearchBenchmark {
+
+    private static final String[] DISHES = {"Margherita Pizza", "Pepperoni Pizza", "Chicken Biryani", "Paneer Tikka",
+            "Veg Burger", "Chicken Burger", "Masala Dosa", "Sushi Roll", "Chocolate Cake", "Butter Chicken"};
+    private static final String[] CATEGORIES = {"Pizza", "Pizza", "Rice", "Starter", "Burger", "Burger",
+            "South Indian", "Japanese", "Dessert", "Curry"};
+    private static final String[] LOCATIONS = {"Kolkata", "Mumbai", "Delhi", "Bengaluru", "Chennai"};
+
+    @Param({"1000000"})
+    public int items;
+
+    @Param({"pizza", "chiken", "marg", "kolkata biryani", "restaurant 42"})
+    public String query;
+
+    private SearchIndex index;
+
+    @Setup
+    public void setup() {
+        index = new SearchIndex();
+        Random random = new Random(7);
+        for (int i = 0; i < items; i++) {
+            int dish = random.nextInt(DISHES.length);
+            String restaurantId = "r" + (i % 5000);
+            index.upsert(new SearchIndex.Entry("menu:" + restaurantId + ":" + i, String.valueOf(i),
+                    DISHES[dish] + " " + (i % 997), CATEGORIES[dish], 100 + dish, null, restaurantId,
+                    "Restaurant " + (i % 5000), LOCATIONS[i % LOCATIONS.length]));
+        }
+    }
+
+    @Benchmark
+    public List<SearchIndex.Hit> search() {
+        return index.search(query, 20);
+    }
+}
@@ -3,11 +3,18 @@ package com.foodorder.food_backend;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
+import java.util.Map;
+
 @SpringBootApplication
 public class FoodBackendApplication {
 
 	public static void main(String[] args) {
-		SpringApplication.run(FoodBackendApplication.class, args);
+		SpringApplication app = new SpringApplication(FoodBackendApplication.class);
+		// Lowest precedence: application.properties can still narrow or widen these.
+		app.setDefaultProperties(Map.of(
+				"management.endpoints.web.exposure.include", "health,prometheus",
+				"management.metrics.distribution.percentiles-histogram.http.server.requests", "true"));
+		app.run(args);
 	}
 
 }
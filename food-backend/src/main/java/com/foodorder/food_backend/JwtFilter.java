@@ -4,9 +4,13 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
 
 public class JwtFilter extends OncePerRequestFilter {
 
@@ -23,11 +27,14 @@ public class JwtFilter extends OncePerRequestFilter {
         String authHeader = request.getHeader("Authorization");
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             String token = authHeader.substring(7);
-            String userId = jwtUtil.validateAndGetUserId(token);
-            if (userId != null) {
-                
-                request.setAttribute("userId", userId);
-            } 
+            JwtUtil.Verified verified = jwtUtil.verify(token);
+            if (verified != null) {
+                request.setAttribute("userId", verified.userId());
+                // The role decides access to the admin and actuator endpoints
+                String role = verified.role() == null ? "USER" : verified.role();
+                SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                        verified.userId(), null, List.of(new SimpleGrantedAuthority("ROLE_" + role))));
+            }
         }
         filterChain.doFilter(request, response);
     }
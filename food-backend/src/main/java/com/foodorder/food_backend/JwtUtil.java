@@ -9,7 +9,15 @@ import java.util.Date;
 
 @Component
 public class JwtUtil {
+
+    /** What a valid token says about its bearer; {@code role} is null for tokens issued without one. */
+    public record Verified(String userId, String role) {}
+
+    private static final int TOKEN_CACHE_SIZE = 16384;
+
     private final Key key;
+    private final JwtParser parser;
+    private final VerifiedTokenCache verified = new VerifiedTokenCache(TOKEN_CACHE_SIZE);
     private final long jwtExpirationMs = 1000L * 60 * 60 * 24; 
 
     public JwtUtil() {
@@ -19,28 +27,65 @@ public class JwtUtil {
         } else {
             this.key = Keys.hmacShaKeyFor(secret.getBytes());
         }
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
     }
 
     public String generateToken(String userId, String email) {
+        return generateToken(userId, email, null);
+    }
+
+    public String generateToken(String userId, String email, String role) {
         Date now = new Date();
         Date expiry = new Date(now.getTime() + jwtExpirationMs);
 
         return Jwts.builder()
                 .setSubject(userId)
                 .claim("email", email)
+                .claim("role", role)
                 .setIssuedAt(now)
                 .setExpiration(expiry)
                 .signWith(key)
                 .compact();
     }
 
+    /** Returns the token's subject if it is valid; see {@link #verify}. */
     public String validateAndGetUserId(String token) {
+        Verified result = verify(token);
+        return result == null ? null : result.userId();
+    }
+
+    /**
+     * Returns the token's subject and role if it is valid. A token already
+     * verified by this instance is answered from the cache, without
+     * re-checking the signature, until its expiry.
+     */
+    public Verified verify(String token) {
+        VerifiedTokenCache.Key cacheKey = verified.keyOf(token);
+        Verified cached = verified.get(cacheKey, System.currentTimeMillis());
+        if (cached != null) return cached;
+
         try {
-            Jws<Claims> claims = Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token);
-            return claims.getBody().getSubject();
-        } catch (JwtException e) {
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            if (claims.getSubject() == null) return null;
+            Verified result = new Verified(claims.getSubject(), claims.get("role", String.class));
+            Date expiration = claims.getExpiration();
+            if (expiration != null) verified.put(cacheKey, result, expiration.getTime());
+            return result;
+        } catch (JwtException | IllegalArgumentException e) {
             return null;
         }
     }
+
+    Key signingKey() {
+        return key;
+    }
+
+    public long tokenCacheHits() {
+        return verified.hits();
+    }
+
+    public long tokenCacheMisses() {
+        return verified.misses();
+    }
 }
 
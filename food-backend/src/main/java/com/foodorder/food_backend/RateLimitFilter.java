@@ -0,0 +1,68 @@
+package com.foodorder.food_backend;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies {@link RateLimiter} to cart and order requests, after {@link JwtFilter}.
+ * Clients are told apart by the token's user id, then the {@code userId} in the
+ * path, then the remote address.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final RateLimiter limiter;
+
+    public RateLimitFilter(RateLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        RateLimiter.Route route = limiter.routeFor(request.getMethod(), path);
+        if (route == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        RateLimiter.Decision decision = limiter.acquire(route, clientOf(request, path));
+        if (decision.admitted()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long retryAfter = Math.max(1, (decision.retryAfterNanos() + TimeUnit.SECONDS.toNanos(1) - 1)
+                / TimeUnit.SECONDS.toNanos(1));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader("Retry-After", Long.toString(retryAfter));
+        // The rejection never reaches the controllers' @CrossOrigin, so let the browser read it.
+        if (request.getHeader("Origin") != null) response.setHeader("Access-Control-Allow-Origin", "*");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"status\":\"error\",\"message\":\"Too many requests, retry in "
+                + retryAfter + " s\"}");
+    }
+
+    /** {@code /api/cart/{userId}/...}, {@code /api/order/{userId}} and {@code /api/order/update-status/{userId}/...}. */
+    private static String clientOf(HttpServletRequest request, String path) {
+        Object userId = request.getAttribute("userId");
+        if (userId != null) return "user:" + userId;
+
+        String[] segments = path.split("/");
+        String fromPath = null;
+        if (segments.length > 4 && segments[3].equals("update-status")) fromPath = segments[4];
+        else if (segments.length > 3 && !segments[3].equals("place")) fromPath = segments[3];
+        if (fromPath != null && !fromPath.isEmpty()) return "user:" + fromPath;
+
+        return "ip:" + request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,221 @@
+package com.foodorder.food_backend;
+
+import com.foodorder.food_backend.config.BackgroundThreads;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-client token buckets for the cart and order endpoints. Each route has a
+ * burst and a refill rate, configured as {@code rate-limit.<route>=burst/perSecond}.
+ *
+ * <p>A bucket is a single {@link AtomicLong} holding the time at which it will
+ * be full again (the GCRA form of a token bucket), so admitting a request is
+ * one compare-and-set. A bucket whose time has passed is full and behaves
+ * exactly like a missing one, which is what the periodic sweep removes. At
+ * most {@code rate-limit.max-keys} buckets are kept; clients arriving while the
+ * table is full of active buckets share one overflow bucket per route.
+ */
+@Component
+public class RateLimiter {
+
+    /** Outcome of {@link #acquire}; {@code retryAfterNanos} is 0 when admitted. */
+    public record Decision(boolean admitted, long retryAfterNanos) {
+        static final Decision ADMITTED = new Decision(true, 0);
+    }
+
+    public static final class Route {
+        final String name;
+        final int burst;
+        final double perSecond;
+        final long intervalNanos;
+        final long toleranceNanos;
+        final AtomicLong overflow = new AtomicLong(System.nanoTime());
+        final LongAdder admitted = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+
+        Route(String name, String spec) {
+            String[] parts = spec.trim().split("/");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("rate-limit." + name + " must be burst/perSecond, got " + spec);
+            }
+            this.name = name;
+            this.burst = Integer.parseInt(parts[0].trim());
+            this.perSecond = Double.parseDouble(parts[1].trim());
+            if (burst < 1 || !(perSecond > 0)) {
+                throw new IllegalArgumentException("rate-limit." + name + " needs a positive burst and rate, got " + spec);
+            }
+            this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / perSecond));
+            this.toleranceNanos = intervalNanos * burst;
+        }
+
+        public String name() {
+            return name;
+        }
+    }
+
+    private final boolean enabled;
+    private final int maxKeys;
+    private final long sweepSeconds;
+    private final BackgroundThreads threads;
+    private ThreadPoolTaskScheduler scheduler;
+
+    private final Route cartRead;
+    private final Route cartWrite;
+    private final Route orderPlace;
+    private final Route orderStatus;
+    private final Route orderRead;
+    private final List<Route> routes;
+
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong lastFullSweep = new AtomicLong();
+
+    private final LongAdder overflowed = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    public RateLimiter(BackgroundThreads threads, MeterRegistry registry,
+                       @Value("${rate-limit.enabled:true}") boolean enabled,
+                       @Value("${rate-limit.max-keys:100000}") int maxKeys,
+                       @Value("${rate-limit.sweep-seconds:30}") long sweepSeconds,
+                       @Value("${rate-limit.cart-read:40/10}") String cartRead,
+                       @Value("${rate-limit.cart-write:30/5}") String cartWrite,
+                       @Value("${rate-limit.order-place:5/0.2}") String orderPlace,
+                       @Value("${rate-limit.order-status:10/1}") String orderStatus,
+                       @Value("${rate-limit.order-read:30/5}") String orderRead) {
+        this.threads = threads;
+        this.enabled = enabled;
+        this.maxKeys = maxKeys;
+        this.sweepSeconds = sweepSeconds;
+        this.cartRead = new Route("cart-read", cartRead);
+        this.cartWrite = new Route("cart-write", cartWrite);
+        this.orderPlace = new Route("order-place", orderPlace);
+        this.orderStatus = new Route("order-status", orderStatus);
+        this.orderRead = new Route("order-read", orderRead);
+        this.routes = List.of(this.cartRead, this.cartWrite, this.orderPlace, this.orderStatus, this.orderRead);
+
+        for (Route route : routes) {
+            FunctionCounter.builder("http.ratelimit.rejected", route.rejected, LongAdder::sum)
+                    .description("Requests refused with 429 by the per-client rate limiter")
+                    .tag("route", route.name)
+                    .register(registry);
+        }
+        Gauge.builder("http.ratelimit.keys", buckets, Map::size)
+                .description("Clients with a partly drained rate-limit bucket")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) return;
+        scheduler = threads.scheduler("rate-limit-");
+        scheduler.scheduleWithFixedDelay(this::sweep, Duration.ofSeconds(sweepSeconds));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) scheduler.shutdown();
+    }
+
+    /**
+     * The route a request falls under, or null if it is not limited. Paths are
+     * relative to the context path; CORS preflights are never limited.
+     */
+    public Route routeFor(String method, String path) {
+        if (!enabled) return null;
+        if (path.startsWith("/api/cart/")) {
+            return switch (method) {
+                case "GET" -> cartRead;
+                case "POST", "PUT", "DELETE" -> cartWrite;
+                default -> null;
+            };
+        }
+        if (path.startsWith("/api/order/")) {
+            if (method.equals("POST") && path.equals("/api/order/place")) return orderPlace;
+            if (method.equals("PUT") && path.startsWith("/api/order/update-status/")) return orderStatus;
+            if (method.equals("GET")) return orderRead;
+        }
+        return null;
+    }
+
+    /** Takes a token from {@code client}'s bucket for {@code route}. */
+    public Decision acquire(Route route, String client) {
+        long now = System.nanoTime();
+        String key = route.name + '\n' + client;
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) bucket = register(route, key, now);
+
+        while (true) {
+            long fullAt = bucket.get();
+            long next = Math.max(fullAt - now, 0) + route.intervalNanos;
+            if (next > route.toleranceNanos) {
+                route.rejected.increment();
+                return new Decision(false, next - route.toleranceNanos);
+            }
+            if (bucket.compareAndSet(fullAt, now + next)) {
+                route.admitted.increment();
+                return Decision.ADMITTED;
+            }
+        }
+    }
+
+    private AtomicLong register(Route route, String key, long now) {
+        if (buckets.size() >= maxKeys) {
+            long last = lastFullSweep.get();
+            if (now - last > TimeUnit.SECONDS.toNanos(1) && lastFullSweep.compareAndSet(last, now)) sweep();
+            if (buckets.size() >= maxKeys) {
+                overflowed.increment();
+                return route.overflow;
+            }
+        }
+        AtomicLong fresh = new AtomicLong(now);
+        AtomicLong existing = buckets.putIfAbsent(key, fresh);
+        return existing != null ? existing : fresh;
+    }
+
+    /**
+     * Drops every bucket that has refilled. A request racing the removal may
+     * have its token forgiven, which is harmless.
+     */
+    private void sweep() {
+        long now = System.nanoTime();
+        buckets.entrySet().removeIf(entry -> {
+            boolean full = entry.getValue().get() - now <= 0;
+            if (full) evicted.increment();
+            return full;
+        });
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("keys", buckets.size());
+        stats.put("maxKeys", maxKeys);
+        stats.put("overflowed", overflowed.sum());
+        stats.put("evicted", evicted.sum());
+        Map<String, Object> perRoute = new LinkedHashMap<>();
+        for (Route route : routes) {
+            Map<String, Object> routeStats = new LinkedHashMap<>();
+            routeStats.put("burst", route.burst);
+            routeStats.put("perSecond", route.perSecond);
+            routeStats.put("admitted", route.admitted.sum());
+            routeStats.put("rejected", route.rejected.sum());
+            perRoute.put(route.name, routeStats);
+        }
+        stats.put("routes", perRoute);
+        return stats;
+    }
+}
@@ -0,0 +1,78 @@
+package com.foodorder.food_backend;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers tokens whose signature has already been verified. The cache is a
+ * fixed-size, direct-mapped table indexed by the token's SHA-256 digest: a
+ * lookup is one array read, a store is one array write, and a colliding token
+ * simply overwrites the slot. Entries are only honoured until the token's
+ * {@code exp}.
+ */
+class VerifiedTokenCache {
+
+    private final AtomicReferenceArray<Entry> slots;
+    private final int mask;
+    private final MessageDigest prototype;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    VerifiedTokenCache(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 16) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        try {
+            this.prototype = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Returns the cached claims, or null if the token is unknown or past its expiry. */
+    JwtUtil.Verified get(Key key, long nowMs) {
+        Entry entry = slots.get(key.slot(mask));
+        if (entry != null && entry.key.equals(key) && nowMs < entry.expiresAtMs) {
+            hits.increment();
+            return entry.token;
+        }
+        misses.increment();
+        return null;
+    }
+
+    void put(Key key, JwtUtil.Verified token, long expiresAtMs) {
+        slots.set(key.slot(mask), new Entry(key, token, expiresAtMs));
+    }
+
+    Key keyOf(String token) {
+        MessageDigest digest;
+        try {
+            digest = (MessageDigest) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+        ByteBuffer hash = ByteBuffer.wrap(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        return new Key(hash.getLong(), hash.getLong(), hash.getLong(), hash.getLong());
+    }
+
+    long hits() {
+        return hits.sum();
+    }
+
+    long misses() {
+        return misses.sum();
+    }
+
+    record Key(long h0, long h1, long h2, long h3) {
+        int slot(int mask) {
+            return (int) h0 & mask;
+        }
+    }
+
+    private record Entry(Key key, JwtUtil.Verified token, long expiresAtMs) {}
+}
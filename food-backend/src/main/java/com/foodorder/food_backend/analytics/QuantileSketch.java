@@ -0,0 +1,95 @@
+package com.foodorder.food_backend.analytics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Quantile estimates with bounded relative error from logarithmically sized
+ * buckets: bucket {@code i} holds values in {@code (γ^(i-1), γ^i]} with
+ * {@code γ = (1 + α) / (1 - α)}, so every estimate is within {@code α} of a
+ * value that was actually added. Memory grows with the logarithm of the value
+ * range rather than the number of values, and sketches with the same accuracy
+ * merge exactly.
+ *
+ * <p>Not thread-safe; callers hold the lock of whatever owns the sketch.
+ */
+public class QuantileSketch {
+
+    private final double accuracy;
+    private final double gamma;
+    private final double logGamma;
+    private final NavigableMap<Integer, Long> buckets = new TreeMap<>();
+    private long zeros;
+    private long count;
+    private double sum;
+
+    public QuantileSketch(double accuracy) {
+        if (accuracy <= 0 || accuracy >= 1) throw new IllegalArgumentException("accuracy must be in (0, 1)");
+        this.accuracy = accuracy;
+        this.gamma = (1 + accuracy) / (1 - accuracy);
+        this.logGamma = Math.log(gamma);
+    }
+
+    public double accuracy() {
+        return accuracy;
+    }
+
+    /** Adds a non-negative value; negative values are counted as zero. */
+    public void add(double value) {
+        if (value <= 0) zeros++;
+        else buckets.merge((int) Math.ceil(Math.log(value) / logGamma), 1L, Long::sum);
+        count++;
+        sum += Math.max(value, 0);
+    }
+
+    public void merge(QuantileSketch other) {
+        if (other.accuracy != accuracy) throw new IllegalArgumentException("Sketch accuracies differ");
+        other.buckets.forEach((index, n) -> buckets.merge(index, n, Long::sum));
+        zeros += other.zeros;
+        count += other.count;
+        sum += other.sum;
+    }
+
+    /** Returns the estimated {@code q}-quantile, or 0 when nothing has been added. */
+    public double quantile(double q) {
+        if (count == 0) return 0;
+        long rank = (long) Math.floor(Math.min(Math.max(q, 0), 1) * (count - 1));
+        if (rank < zeros) return 0;
+        long seen = zeros;
+        for (Map.Entry<Integer, Long> bucket : buckets.entrySet()) {
+            seen += bucket.getValue();
+            if (seen > rank) return 2 * Math.pow(gamma, bucket.getKey()) / (gamma + 1);
+        }
+        return 2 * Math.pow(gamma, buckets.lastKey()) / (gamma + 1);
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public double sum() {
+        return sum;
+    }
+
+    public long zeros() {
+        return zeros;
+    }
+
+    /** Non-empty buckets by index, for checkpointing. */
+    public Map<Integer, Long> buckets() {
+        return Collections.unmodifiableMap(buckets);
+    }
+
+    /** Restores state read back from {@link #buckets()}, {@link #zeros()} and {@link #sum()}. */
+    public void restore(Map<Integer, Long> restoredBuckets, long restoredZeros, double restoredSum) {
+        restoredBuckets.forEach((index, n) -> {
+            buckets.merge(index, n, Long::sum);
+            count += n;
+        });
+        zeros += restoredZeros;
+        count += restoredZeros;
+        sum += restoredSum;
+    }
+}
@@ -0,0 +1,101 @@
+package com.foodorder.food_backend.analytics;
+
+import java.util.*;
+
+/**
+ * Weighted Space-Saving summary of the heaviest keys in a stream, using at
+ * most {@code capacity} counters. A reported count never undercounts and
+ * overcounts by at most its {@code error}, and any key whose true weight
+ * exceeds {@code total / capacity} is guaranteed to be present. Summaries
+ * merge, so per-window sketches can be combined into a report over any range.
+ *
+ * <p>Not thread-safe; callers hold the lock of whatever owns the sketch.
+ */
+public class TopKSketch {
+
+    /** A tracked key: its true weight lies in {@code [count - error, count]}. */
+    public record Entry(String key, long count, long error) {}
+
+    private final int capacity;
+    private final Map<String, Entry> counters;
+
+    public TopKSketch(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.counters = new HashMap<>(this.capacity * 2);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public void add(String key, long weight) {
+        Entry current = counters.get(key);
+        if (current != null) {
+            counters.put(key, new Entry(key, current.count() + weight, current.error()));
+        } else if (counters.size() < capacity) {
+            counters.put(key, new Entry(key, weight, 0));
+        } else {
+            // Evict the smallest counter; the newcomer inherits its count as possible overcount.
+            Entry smallest = smallest();
+            counters.remove(smallest.key());
+            counters.put(key, new Entry(key, smallest.count() + weight, smallest.count()));
+        }
+    }
+
+    /** Restores a counter read back from {@link #entries()}. */
+    public void restore(Entry entry) {
+        counters.put(entry.key(), entry);
+    }
+
+    /**
+     * Folds {@code other} into this summary. A key missing from a full summary
+     * may still have weight up to that summary's smallest count, so that amount
+     * is added to both its count and its error.
+     */
+    public void merge(TopKSketch other) {
+        long ownFloor = floor();
+        long otherFloor = other.floor();
+
+        List<Entry> merged = new ArrayList<>(counters.size() + other.counters.size());
+        for (Entry own : counters.values()) {
+            Entry theirs = other.counters.get(own.key());
+            merged.add(theirs != null
+                    ? new Entry(own.key(), own.count() + theirs.count(), own.error() + theirs.error())
+                    : new Entry(own.key(), own.count() + otherFloor, own.error() + otherFloor));
+        }
+        for (Entry theirs : other.counters.values()) {
+            if (counters.containsKey(theirs.key())) continue;
+            merged.add(new Entry(theirs.key(), theirs.count() + ownFloor, theirs.error() + ownFloor));
+        }
+
+        merged.sort(BY_COUNT);
+        counters.clear();
+        for (int i = 0; i < Math.min(capacity, merged.size()); i++) counters.put(merged.get(i).key(), merged.get(i));
+    }
+
+    /** The {@code limit} heaviest keys, heaviest first. */
+    public List<Entry> top(int limit) {
+        List<Entry> sorted = new ArrayList<>(counters.values());
+        sorted.sort(BY_COUNT);
+        return sorted.size() > limit ? new ArrayList<>(sorted.subList(0, limit)) : sorted;
+    }
+
+    public Collection<Entry> entries() {
+        return Collections.unmodifiableCollection(counters.values());
+    }
+
+    private long floor() {
+        return counters.size() < capacity ? 0 : smallest().count();
+    }
+
+    private Entry smallest() {
+        Entry smallest = null;
+        for (Entry entry : counters.values()) {
+            if (smallest == null || entry.count() < smallest.count()) smallest = entry;
+        }
+        return smallest;
+    }
+
+    private static final Comparator<Entry> BY_COUNT =
+            Comparator.comparingLong(Entry::count).reversed().thenComparing(Entry::key);
+}
@@ -0,0 +1,61 @@
+package com.foodorder.food_backend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates the threads behind our background work (cart flushing, order
+ * lifecycle, status batching, SSE heartbeats). With
+ * {@code spring.threads.virtual.enabled=true}, Spring Boot serves requests on
+ * virtual threads and these helpers hand out virtual threads too; otherwise
+ * they fall back to named platform threads. CPU-bound work such as password
+ * hashing deliberately keeps its own bounded platform pool.
+ */
+@Component
+public class BackgroundThreads {
+
+    private final boolean virtual;
+
+    public BackgroundThreads(@Value("${spring.threads.virtual.enabled:false}") boolean virtual) {
+        this.virtual = virtual;
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    public ThreadFactory factory(String prefix) {
+        return virtual
+                ? Thread.ofVirtual().name(prefix, 0).factory()
+                : Thread.ofPlatform().name(prefix, 0).daemon(true).factory();
+    }
+
+    /** A timer for periodic jobs; its tasks are short and hand blocking work off or tolerate it. */
+    public ThreadPoolTaskScheduler scheduler(String prefix) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setThreadFactory(factory(prefix));
+        scheduler.initialize();
+        return scheduler;
+    }
+
+    /**
+     * An executor for blocking tasks: one virtual thread per task, or a fixed
+     * pool of {@code platformThreads} when virtual threads are off.
+     */
+    public ExecutorService executor(String prefix, int platformThreads) {
+        return virtual
+                ? Executors.newThreadPerTaskExecutor(factory(prefix))
+                : Executors.newFixedThreadPool(platformThreads, factory(prefix));
+    }
+
+    public Thread start(String name, Runnable task) {
+        return virtual
+                ? Thread.ofVirtual().name(name).start(task)
+                : Thread.ofPlatform().name(name).daemon(true).start(task);
+    }
+}
@@ -1,21 +1,40 @@
 package com.foodorder.food_backend.config;
 
+import com.google.api.gax.grpc.InstantiatingGrpcChannelProvider;
 import com.google.auth.oauth2.GoogleCredentials;
+import com.google.cloud.NoCredentials;
+import com.google.cloud.firestore.FirestoreOptions;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.FirebaseOptions;
 import com.google.cloud.firestore.Firestore;
 import com.google.firebase.cloud.FirestoreClient;
+import io.grpc.ManagedChannelBuilder;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.List;
 
 @Configuration
 public class FirebaseConfig {
 
+    @Value("${firestore.emulator-host:}")
+    private String emulatorHost;
+
+    @Value("${firestore.project-id:gourmet-galaxy-local}")
+    private String emulatorProjectId;
+
+    @Value("${firestore.simulated-latency-ms:0}")
+    private long simulatedLatencyMs;
+
     @Bean
     public Firestore firestore() throws IOException {
+        if (!emulatorHost.isBlank()) {
+            return emulatorFirestore();
+        }
+
         FileInputStream serviceAccount =
                 new FileInputStream("src/main/resources/serviceAccountKey.json");
 
@@ -29,4 +48,29 @@ public class FirebaseConfig {
 
         return FirestoreClient.getFirestore();
     }
+
+    /**
+     * A client for the local Firestore emulator, which keeps everything in
+     * memory and needs no key file. {@code firestore.simulated-latency-ms} adds
+     * a delay to every response so load tests see realistic round trips.
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private Firestore emulatorFirestore() {
+        InstantiatingGrpcChannelProvider.Builder channel = InstantiatingGrpcChannelProvider.newBuilder()
+                .setEndpoint(emulatorHost)
+                .setChannelConfigurator(builder -> ((ManagedChannelBuilder) builder).usePlaintext());
+        if (simulatedLatencyMs > 0) {
+            SimulatedLatencyInterceptor latency = new SimulatedLatencyInterceptor(simulatedLatencyMs);
+            channel.setInterceptorProvider(() -> List.of(latency));
+        }
+
+        System.out.println("Using Firestore emulator at " + emulatorHost
+                + (simulatedLatencyMs > 0 ? " with " + simulatedLatencyMs + " ms simulated latency" : ""));
+        return FirestoreOptions.newBuilder()
+                .setProjectId(emulatorProjectId)
+                .setChannelProvider(channel.build())
+                .setCredentials(NoCredentials.getInstance())
+                .build()
+                .getService();
+    }
 }
@@ -2,6 +2,7 @@ package com.foodorder.food_backend.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.web.SecurityFilterChain;
@@ -9,14 +10,18 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 
 import com.foodorder.food_backend.JwtFilter;
 import com.foodorder.food_backend.JwtUtil;
+import com.foodorder.food_backend.RateLimitFilter;
+import com.foodorder.food_backend.RateLimiter;
 
 @Configuration
 public class SecurityConfig {
 
     private final JwtUtil jwtUtil;
+    private final RateLimiter rateLimiter;
 
-    public SecurityConfig(JwtUtil jwtUtil) {
+    public SecurityConfig(JwtUtil jwtUtil, RateLimiter rateLimiter) {
         this.jwtUtil = jwtUtil;
+        this.rateLimiter = rateLimiter;
     }
 
     @Bean
@@ -28,12 +33,18 @@ public class SecurityConfig {
             .authorizeHttpRequests(auth -> auth
                 .requestMatchers("/api/auth/**", "/api/foods/**", "/api/test").permitAll()
                 .requestMatchers("/api/orders/**").authenticated()
+                .requestMatchers("/actuator/health").permitAll()
+                .requestMatchers("/api/admin/**", "/actuator/**").hasRole("ADMIN")
+                // Kitchen tickets carry customers' ids and addresses
+                .requestMatchers(HttpMethod.GET, "/api/restaurants/*/orders").hasAnyRole("ADMIN", "RESTAURANT")
                 .anyRequest().permitAll()
             )
             .httpBasic(Customizer.withDefaults());
 
         // Add JWT filter before username/password filter
         http.addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class);
+        // Rate limit after it, so authenticated clients are keyed by their user id
+        http.addFilterAfter(new RateLimitFilter(rateLimiter), JwtFilter.class);
 
         return http.build();
     }
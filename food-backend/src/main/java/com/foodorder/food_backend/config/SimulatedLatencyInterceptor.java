@@ -0,0 +1,71 @@
+package com.foodorder.food_backend.config;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import io.grpc.*;
+
+import java.util.concurrent.*;
+
+/**
+ * Delays every response event of a gRPC call by a fixed time, to give a local
+ * Firestore emulator the round-trip time of the real service. Events of one
+ * call keep their order; different calls are delivered independently.
+ */
+public class SimulatedLatencyInterceptor implements ClientInterceptor {
+
+    private final long latencyMs;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "firestore-latency");
+        t.setDaemon(true);
+        return t;
+    });
+    private final ExecutorService delivery = Executors.newVirtualThreadPerTaskExecutor();
+
+    public SimulatedLatencyInterceptor(long latencyMs) {
+        this.latencyMs = latencyMs;
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method,
+                                                               CallOptions callOptions, Channel next) {
+        return new ForwardingClientCall.SimpleForwardingClientCall<>(next.newCall(method, callOptions)) {
+            @Override
+            public void start(Listener<RespT> listener, Metadata headers) {
+                super.start(new DelayedListener<>(listener), headers);
+            }
+        };
+    }
+
+    private final class DelayedListener<RespT> extends ClientCall.Listener<RespT> {
+        private final ClientCall.Listener<RespT> delegate;
+        private final Executor inOrder = MoreExecutors.newSequentialExecutor(delivery);
+
+        DelayedListener(ClientCall.Listener<RespT> delegate) {
+            this.delegate = delegate;
+        }
+
+        private void later(Runnable event) {
+            // Equal delays fire in submission order, so the sequential executor sees events in order too.
+            timer.schedule(() -> inOrder.execute(event), latencyMs, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void onHeaders(Metadata headers) {
+            later(() -> delegate.onHeaders(headers));
+        }
+
+        @Override
+        public void onMessage(RespT message) {
+            later(() -> delegate.onMessage(message));
+        }
+
+        @Override
+        public void onClose(Status status, Metadata trailers) {
+            later(() -> delegate.onClose(status, trailers));
+        }
+
+        @Override
+        public void onReady() {
+            delegate.onReady();
+        }
+    }
+}
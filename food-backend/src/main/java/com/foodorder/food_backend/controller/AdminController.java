@@ -0,0 +1,155 @@
+package com.foodorder.food_backend.controller;
+
+import com.foodorder.food_backend.RateLimiter;
+import com.foodorder.food_backend.service.CatalogCache;
+import com.foodorder.food_backend.service.CatalogResponses;
+import com.foodorder.food_backend.service.CatalogSearch;
+import com.foodorder.food_backend.service.GeoIndex;
+import com.foodorder.food_backend.service.KitchenQueue;
+import com.foodorder.food_backend.service.MenuStore;
+import com.foodorder.food_backend.service.OrderEventHub;
+import com.foodorder.food_backend.service.OrderIngest;
+import com.foodorder.food_backend.service.OrderJournal;
+import com.foodorder.food_backend.service.OrderLifecycleEngine;
+import com.foodorder.food_backend.service.OrderService;
+import com.foodorder.food_backend.service.OrderStatusPipeline;
+import com.foodorder.food_backend.service.PasswordHasher;
+import com.foodorder.food_backend.service.PriceIndex;
+import com.foodorder.food_backend.service.SalesAnalytics;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+@RestController
+@RequestMapping("/api/admin")
+@CrossOrigin(origins = "*")
+public class AdminController {
+
+    private final CatalogCache catalogCache;
+    private final MenuStore menuStore;
+    private final OrderLifecycleEngine lifecycle;
+    private final OrderStatusPipeline statusPipeline;
+    private final OrderService orderService;
+    private final OrderEventHub orderEvents;
+    private final PasswordHasher passwordHasher;
+    private final OrderIngest orderIngest;
+    private final PriceIndex priceIndex;
+    private final CatalogSearch catalogSearch;
+    private final GeoIndex geoIndex;
+    private final CatalogResponses catalogResponses;
+    private final SalesAnalytics salesAnalytics;
+    private final KitchenQueue kitchenQueue;
+    private final OrderJournal orderJournal;
+    private final RateLimiter rateLimiter;
+
+    public AdminController(CatalogCache catalogCache, MenuStore menuStore, OrderLifecycleEngine lifecycle,
+                           OrderStatusPipeline statusPipeline, OrderService orderService, OrderEventHub orderEvents,
+                           PasswordHasher passwordHasher, OrderIngest orderIngest, PriceIndex priceIndex,
+                           CatalogSearch catalogSearch, GeoIndex geoIndex, CatalogResponses catalogResponses,
+                           SalesAnalytics salesAnalytics, KitchenQueue kitchenQueue, OrderJournal orderJournal,
+                           RateLimiter rateLimiter) {
+        this.catalogCache = catalogCache;
+        this.menuStore = menuStore;
+        this.lifecycle = lifecycle;
+        this.statusPipeline = statusPipeline;
+        this.orderService = orderService;
+        this.orderEvents = orderEvents;
+        this.passwordHasher = passwordHasher;
+        this.orderIngest = orderIngest;
+        this.priceIndex = priceIndex;
+        this.catalogSearch = catalogSearch;
+        this.geoIndex = geoIndex;
+        this.catalogResponses = catalogResponses;
+        this.salesAnalytics = salesAnalytics;
+        this.kitchenQueue = kitchenQueue;
+        this.orderJournal = orderJournal;
+        this.rateLimiter = rateLimiter;
+    }
+
+    @GetMapping("/catalog")
+    public Map<String, Object> catalogStats() {
+        return catalogCache.stats();
+    }
+
+    @GetMapping("/catalog-responses")
+    public Map<String, Object> catalogResponseStats() {
+        return catalogResponses.stats();
+    }
+
+    @GetMapping("/lifecycle")
+    public Map<String, Object> lifecycleStats() {
+        return lifecycle.stats();
+    }
+
+    @GetMapping("/status-pipeline")
+    public Map<String, Object> statusPipelineStats() {
+        return statusPipeline.stats();
+    }
+
+    @GetMapping("/order-events")
+    public Map<String, Object> orderEventStats() {
+        return orderEvents.stats();
+    }
+
+    @GetMapping("/order-ingest")
+    public Map<String, Object> orderIngestStats() {
+        return orderIngest.stats();
+    }
+
+    @GetMapping("/price-index")
+    public Map<String, Object> priceIndexStats() {
+        return priceIndex.stats();
+    }
+
+    @GetMapping("/search")
+    public Map<String, Object> searchStats() {
+        return catalogSearch.stats();
+    }
+
+    @GetMapping("/geo")
+    public Map<String, Object> geoStats() {
+        return geoIndex.stats();
+    }
+
+    @GetMapping("/analytics")
+    public Map<String, Object> salesAnalytics(@RequestParam(defaultValue = "24") int windows,
+                                              @RequestParam(defaultValue = "10") int limit) {
+        return salesAnalytics.report(Math.max(1, Math.min(windows, 24 * 31)), Math.max(1, Math.min(limit, 100)));
+    }
+
+    @GetMapping("/kitchen")
+    public Map<String, Object> kitchenStats() {
+        return kitchenQueue.stats();
+    }
+
+    @GetMapping("/journal")
+    public Map<String, Object> journalStats() {
+        return orderJournal.stats();
+    }
+
+    @PostMapping("/journal/compact")
+    public Map<String, Object> compactJournal() {
+        return orderJournal.compact();
+    }
+
+    @GetMapping("/rate-limit")
+    public Map<String, Object> rateLimitStats() {
+        return rateLimiter.stats();
+    }
+
+    @GetMapping("/auth")
+    public Map<String, Object> authStats() {
+        return passwordHasher.stats();
+    }
+
+    @PostMapping("/migrate-menus")
+    public Map<String, Object> migrateMenus() throws ExecutionException, InterruptedException {
+        return Map.of("status", "success", "moved", menuStore.migrateEmbeddedMenus());
+    }
+
+    @PostMapping("/backfill-order-timestamps")
+    public Map<String, Object> backfillOrderTimestamps() throws ExecutionException, InterruptedException {
+        return Map.of("status", "success", "updated", orderService.backfillOrderTimestamps());
+    }
+}
@@ -1,13 +1,15 @@
 package com.foodorder.food_backend.controller;
 
 import com.foodorder.food_backend.JwtUtil;
-import com.foodorder.food_backend.model.User;
+import com.foodorder.food_backend.service.FirestoreFutures;
 import com.foodorder.food_backend.service.UserService;
 
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/auth")
@@ -23,56 +25,68 @@ public class AuthController {
     }
 
     @PostMapping("/signup")
-    public ResponseEntity<?> signup(@RequestBody Map<String, String> body) {
-        try {
-            String name = body.get("name");
-            String email = body.get("email");
-            String password = body.get("password");
+    public CompletableFuture<ResponseEntity<?>> signup(@RequestBody Map<String, String> body) {
+        String name = body.get("name");
+        String email = body.get("email");
+        String password = body.get("password");
 
-            if (name == null || email == null || password == null) {
-                return ResponseEntity.badRequest().body(Map.of("error", "name, email and password required"));
-            }
-
-            String result = userService.createUser(name, email, password);
-            if ("EXISTS".equals(result)) {
-                return ResponseEntity.status(409).body(Map.of("error", "User already exists"));
-            }
-            return ResponseEntity.ok(Map.of("message", "User created", "time", result));
-        } catch (Exception e) {
-            e.printStackTrace();
-            return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
+        if (name == null || email == null || password == null) {
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.badRequest().body(Map.of("error", "name, email and password required")));
         }
+
+        return userService.createUser(name, email, password)
+                .<ResponseEntity<?>>thenApply(result -> {
+                    if ("EXISTS".equals(result)) {
+                        return ResponseEntity.status(409).body(Map.of("error", "User already exists"));
+                    }
+                    return ResponseEntity.ok(Map.of("message", "User created", "time", result));
+                })
+                .exceptionally(AuthController::failed);
     }
 
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody Map<String, String> body) {
-        try {
-            String email = body.get("email");
-            String password = body.get("password");
-            if (email == null || password == null) return ResponseEntity.badRequest().body(Map.of("error","email and password required"));
+    public CompletableFuture<ResponseEntity<?>> login(@RequestBody Map<String, String> body) {
+        String email = body.get("email");
+        String password = body.get("password");
+        if (email == null || password == null) {
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.badRequest().body(Map.of("error","email and password required")));
+        }
 
-            var user = userService.authenticate(email, password);
-            if (user == null) return ResponseEntity.status(401).body(Map.of("error","Invalid credentials"));
+        return userService.authenticate(email, password)
+                .<ResponseEntity<?>>thenApply(user -> {
+                    if (user == null) return ResponseEntity.status(401).body(Map.of("error","Invalid credentials"));
 
-            String token = jwtUtil.generateToken(user.getId(), user.getEmail());
-            return ResponseEntity.ok(Map.of("token", token, "user", Map.of("id", user.getId(), "name", user.getName(), "email", user.getEmail())));
-        } catch (Exception e) {
-            e.printStackTrace();
-            return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
-        }
+                    String token = jwtUtil.generateToken(user.getId(), user.getEmail(), user.getRole());
+                    return ResponseEntity.ok(Map.of("token", token, "user", Map.of("id", user.getId(), "name", user.getName(), "email", user.getEmail())));
+                })
+                .exceptionally(AuthController::failed);
     }
 
     @GetMapping("/profile")
-    public ResponseEntity<?> profile(@RequestAttribute(name="userId", required=false) String userId) {
-        if (userId == null) return ResponseEntity.status(401).body(Map.of("error", "Unauthenticated"));
-        try {
-            User user = userService.getUserById(userId);
-            if (user == null) return ResponseEntity.status(404).body(Map.of("error", "User not found"));
-            return ResponseEntity.ok(Map.of("id", user.getId(), "name", user.getName(), "email", user.getEmail()));
-        } catch (Exception e) {
-            e.printStackTrace();
-            return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
+    public CompletableFuture<ResponseEntity<?>> profile(@RequestAttribute(name="userId", required=false) String userId) {
+        if (userId == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(401).body(Map.of("error", "Unauthenticated")));
         }
+        return userService.getUserById(userId)
+                .<ResponseEntity<?>>thenApply(user -> {
+                    if (user == null) return ResponseEntity.status(404).body(Map.of("error", "User not found"));
+                    return ResponseEntity.ok(Map.of("id", user.getId(), "name", user.getName(), "email", user.getEmail()));
+                })
+                .exceptionally(AuthController::failed);
     }
-}
 
+    private static ResponseEntity<?> failed(Throwable error) {
+        Throwable cause = FirestoreFutures.unwrap(error);
+        if (cause instanceof RejectedExecutionException) return busy();
+        cause.printStackTrace();
+        return ResponseEntity.status(500).body(Map.of("error", FirestoreFutures.errorMessage(cause)));
+    }
+
+    private static ResponseEntity<?> busy() {
+        return ResponseEntity.status(503)
+                .header("Retry-After", "1")
+                .body(Map.of("error", "Authentication is busy, please retry"));
+    }
+}
@@ -3,10 +3,13 @@ package com.foodorder.food_backend.controller;
 import com.foodorder.food_backend.model.Food;
 import com.foodorder.food_backend.service.FoodService;
 
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/foods")
@@ -20,15 +23,36 @@ public class FoodController {
     }
 
     @PostMapping
-public String addFood(@RequestBody Food food) throws ExecutionException, InterruptedException {
+public CompletableFuture<String> addFood(@RequestBody Food food) {
     System.out.println("Incoming Food: " + food);
     return foodService.addFood(food);
 }
 
 
     @GetMapping
-    public List<Food> getAllFoods() throws ExecutionException, InterruptedException {
-        return foodService.getAllFoods();
+    public CompletableFuture<ResponseEntity<byte[]>> getAllFoods(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return foodService.getAllFoods().thenApply(body -> RenderedResponses.of(body, ifNoneMatch, acceptEncoding));
+    }
+
+    @GetMapping("/search")
+    public List<Map<String, Object>> search(@RequestParam(defaultValue = "") String q,
+                                            @RequestParam(defaultValue = "20") int limit) {
+        return foodService.search(q, Math.max(1, Math.min(limit, 100)));
+    }
+
+    @GetMapping("/filter")
+    public ResponseEntity<Map<String, Object>> filter(@RequestParam(required = false) List<String> category,
+                                                      @RequestParam(required = false) List<String> price,
+                                                      @RequestParam(required = false) String cursor,
+                                                      @RequestParam(defaultValue = "20") int limit) {
+        try {
+            return ResponseEntity.ok(foodService.filter(category == null ? List.of() : category,
+                    price == null ? List.of() : price, cursor, Math.max(1, Math.min(limit, 100))));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid cursor"));
+        }
     }
 }
 
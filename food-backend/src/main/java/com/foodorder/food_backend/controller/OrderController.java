@@ -2,12 +2,17 @@ package com.foodorder.food_backend.controller;
 
 import com.foodorder.food_backend.model.CartItem;
 import com.foodorder.food_backend.model.Order;
+import com.foodorder.food_backend.service.FirestoreFutures;
+import com.foodorder.food_backend.service.OrderEventHub;
 import com.foodorder.food_backend.service.OrderService;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/order")
@@ -15,43 +20,62 @@ import java.util.Map;
 public class OrderController {
 
     private final OrderService orderService;
+    private final OrderEventHub orderEvents;
 
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, OrderEventHub orderEvents) {
         this.orderService = orderService;
+        this.orderEvents = orderEvents;
     }
 
     @PostMapping("/place")
-    public Map<String, Object> placeOrder(@RequestBody Map<String, Object> payload) {
+    public CompletableFuture<Map<String, Object>> placeOrder(@RequestBody Map<String, Object> payload) {
         try {
             String userId = (String) payload.get("userId");
             String address = (String) payload.get("address");
             double totalAmount = ((Number) payload.get("totalAmount")).doubleValue();
-
-            @SuppressWarnings("unchecked")
-            List<CartItem> items = ((List<?>) payload.get("items")).stream()
-                    .map(item -> {
-                        Map<?, ?> map = (Map<?, ?>) item;
-                        CartItem cartItem = new CartItem();
-                        cartItem.setId((String) map.get("id"));
-                        cartItem.setName((String) map.get("name"));
-                        cartItem.setPrice(((Number) map.get("price")).doubleValue());
-                        cartItem.setQuantity(((Number) map.get("quantity")).intValue());
-                        cartItem.setImage((String) map.get("image"));
-                        cartItem.setRestaurant((String) map.getOrDefault("restaurant", null));
-                        return cartItem;
-                    }).toList();
+            List<CartItem> items = toCartItems((List<?>) payload.get("items"));
 
             return orderService.placeOrder(userId, items, address, totalAmount);
         } catch (Exception e) {
             e.printStackTrace();
-            return Map.of("status", "error", "message", e.getMessage());
+            return CompletableFuture.completedFuture(Map.of("status", "error", "message", e.getMessage()));
         }
     }
 
+    /** Maps the {@code items} of a place-order payload, as parsed from JSON, to cart items. */
+    static List<CartItem> toCartItems(List<?> items) {
+        return items.stream()
+                .map(item -> {
+                    Map<?, ?> map = (Map<?, ?>) item;
+                    CartItem cartItem = new CartItem();
+                    cartItem.setId((String) map.get("id"));
+                    cartItem.setName((String) map.get("name"));
+                    cartItem.setPrice(((Number) map.get("price")).doubleValue());
+                    cartItem.setQuantity(((Number) map.get("quantity")).intValue());
+                    cartItem.setImage((String) map.get("image"));
+                    cartItem.setRestaurant((String) map.getOrDefault("restaurant", null));
+                    return cartItem;
+                }).toList();
+    }
+
     @GetMapping("/{userId}")
-    public List<Map<String, Object>> getOrders(@PathVariable String userId) {
-        List<Order> orders = orderService.getOrdersByUser(userId);
+    public CompletableFuture<?> getOrders(@PathVariable String userId,
+                                          @RequestParam(required = false) Integer pageSize,
+                                          @RequestParam(required = false) String cursor) {
+        if (pageSize != null) {
+            CompletableFuture<Map<String, Object>> page;
+            try {
+                page = orderService.getOrdersPage(userId, Math.max(1, Math.min(pageSize, 100)), cursor);
+            } catch (Exception e) {
+                page = CompletableFuture.failedFuture(e);
+            }
+            return page.exceptionally(OrderController::failed);
+        }
+
+        return orderService.getOrdersByUser(userId).thenApply(OrderController::toResponse);
+    }
 
+    static List<Map<String, Object>> toResponse(List<Order> orders) {
         return orders.stream().map(order -> {
             Map<String, Object> orderMap = new HashMap<>();
             orderMap.put("id", order.getId());
@@ -64,26 +88,32 @@ public class OrderController {
         }).toList();
     }
 
+    @GetMapping(value = "/{userId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter orderEvents(@PathVariable String userId) {
+        return orderEvents.subscribe(userId);
+    }
+
     @PutMapping("/update-status/{userId}/{orderId}")
-    public Map<String, Object> updateStatus(
+    public CompletableFuture<Map<String, Object>> updateStatus(
             @PathVariable String userId,
             @PathVariable String orderId,
             @RequestBody Map<String, String> body) {
 
         String newStatus = body.get("status");
 
-        try {
-            if ("Cancelled".equalsIgnoreCase(newStatus)) {
-                orderService.cancelOrder(userId, orderId);
-                return Map.of("status", "success", "message", "Order cancelled successfully");
-            }
+        if ("Cancelled".equalsIgnoreCase(newStatus)) {
+            return orderService.cancelOrder(userId, orderId)
+                    .thenApply(result -> Map.<String, Object>of("status", "success", "message", "Order cancelled successfully"))
+                    .exceptionally(OrderController::failed);
+        }
 
-            orderService.updateOrderStatus(userId, orderId, newStatus);
-            return Map.of("status", "success", "message", "Order status updated successfully");
+        return orderService.updateOrderStatus(userId, orderId, newStatus)
+                .thenApply(updated -> Map.<String, Object>of("status", "success", "message", "Order status updated successfully"))
+                .exceptionally(OrderController::failed);
+    }
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            return Map.of("status", "error", "message", e.getMessage());
-        }
+    private static Map<String, Object> failed(Throwable error) {
+        error.printStackTrace();
+        return Map.of("status", "error", "message", FirestoreFutures.errorMessage(error));
     }
 }
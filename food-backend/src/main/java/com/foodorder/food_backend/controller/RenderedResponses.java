@@ -0,0 +1,52 @@
+package com.foodorder.food_backend.controller;
+
+import com.foodorder.food_backend.service.CatalogResponses;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Writes a pre-rendered catalog body: 304 when the client already has it,
+ * otherwise the stored bytes, gzipped if the client accepts that. The gzip
+ * variant gets its own ETag, as two encodings of a body are different
+ * representations.
+ */
+final class RenderedResponses {
+
+    private RenderedResponses() {}
+
+    static ResponseEntity<byte[]> of(CatalogResponses.Rendered rendered, String ifNoneMatch, String acceptEncoding) {
+        boolean gzip = rendered.gzip() != null && acceptEncoding != null && acceptEncoding.contains("gzip");
+        String etag = gzip ? gzipEtag(rendered.etag()) : rendered.etag();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(etag);
+        headers.setCacheControl(CacheControl.noCache());
+        headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        if (ifNoneMatch != null && matches(ifNoneMatch, rendered.etag())) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        }
+
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        if (gzip) headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+        return new ResponseEntity<>(gzip ? rendered.gzip() : rendered.json(), headers, HttpStatus.OK);
+    }
+
+    /** Either encoding's ETag revalidates the body, since both carry the same JSON. */
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch.trim().equals("*")) return true;
+        String gzipEtag = gzipEtag(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals(etag) || tag.equals(gzipEtag)) return true;
+        }
+        return false;
+    }
+
+    private static String gzipEtag(String etag) {
+        return etag.substring(0, etag.length() - 1) + "-gzip\"";
+    }
+}
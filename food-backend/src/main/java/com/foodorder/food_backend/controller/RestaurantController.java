@@ -2,11 +2,14 @@ package com.foodorder.food_backend.controller;
 
 import com.foodorder.food_backend.model.Restaurant;
 import com.foodorder.food_backend.model.Food;
+import com.foodorder.food_backend.service.KitchenQueue;
 import com.foodorder.food_backend.service.RestaurantService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/restaurants")
@@ -20,24 +23,83 @@ public class RestaurantController {
     }
 
     @PostMapping
-    public String addRestaurant(@RequestBody Restaurant restaurant) throws ExecutionException, InterruptedException {
+    public CompletableFuture<String> addRestaurant(@RequestBody Restaurant restaurant) {
         return restaurantService.addRestaurant(restaurant);
     }
 
     @GetMapping
-    public List<Restaurant> getAllRestaurants() throws ExecutionException, InterruptedException {
-        return restaurantService.getAllRestaurants();
+    public CompletableFuture<ResponseEntity<byte[]>> getAllRestaurants(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return restaurantService.getAllRestaurants()
+                .thenApply(body -> RenderedResponses.of(body, ifNoneMatch, acceptEncoding));
+    }
+
+    @GetMapping("/nearby")
+    public ResponseEntity<?> getNearbyRestaurants(@RequestParam double lat,
+                                                  @RequestParam double lng,
+                                                  @RequestParam(defaultValue = "5") double radius,
+                                                  @RequestParam(defaultValue = "20") int limit) {
+        if (Math.abs(lat) > 90 || Math.abs(lng) > 180 || !(radius > 0)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "lat, lng or radius out of range"));
+        }
+        return ResponseEntity.ok(restaurantService.getNearbyRestaurants(lat, lng, Math.min(radius, 100),
+                Math.max(1, Math.min(limit, 100))));
     }
 
     @PostMapping("/{restaurantId}/menu")
-    public String addFoodToRestaurant(@PathVariable String restaurantId, @RequestBody Food food)
-            throws ExecutionException, InterruptedException {
+    public CompletableFuture<String> addFoodToRestaurant(@PathVariable String restaurantId, @RequestBody Food food) {
         return restaurantService.addFoodToRestaurant(restaurantId, food);
     }
 
     @GetMapping("/{restaurantId}/menu")
-    public List<Food> getRestaurantMenu(@PathVariable String restaurantId)
-            throws ExecutionException, InterruptedException {
-        return restaurantService.getFoodsByRestaurant(restaurantId);
+    public CompletableFuture<?> getRestaurantMenu(@PathVariable String restaurantId,
+                                                  @RequestParam(required = false) Integer pageSize,
+                                                  @RequestParam(required = false) String cursor,
+                                                  @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                  @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        if (pageSize == null) {
+            return restaurantService.getFoodsByRestaurant(restaurantId)
+                    .thenApply(body -> RenderedResponses.of(body, ifNoneMatch, acceptEncoding));
+        }
+        try {
+            return restaurantService.getFoodsByRestaurant(restaurantId, Math.max(1, Math.min(pageSize, 200)), cursor);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(Map.of("error", "Invalid cursor")));
+        }
+    }
+
+    @GetMapping("/{restaurantId}/orders")
+    public CompletableFuture<?> getKitchenOrders(@PathVariable String restaurantId,
+                                                 @RequestParam(required = false) String status,
+                                                 @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                 @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        String active = status == null ? null : KitchenQueue.activeStatus(status);
+        if (status != null && active == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                    .body(Map.of("error", "status must be one of " + KitchenQueue.ACTIVE_STATUSES)));
+        }
+        return restaurantService.getKitchenOrders(restaurantId, active)
+                .thenApply(body -> RenderedResponses.of(body, ifNoneMatch, acceptEncoding));
+    }
+
+    @PutMapping("/{restaurantId}/menu/{foodId}")
+    public CompletableFuture<Map<String, Object>> updateMenuItem(@PathVariable String restaurantId,
+                                                                 @PathVariable String foodId,
+                                                                 @RequestBody Food food) {
+        return restaurantService.updateMenuItem(restaurantId, foodId, food).thenApply(RestaurantController::menuItemResult);
+    }
+
+    @DeleteMapping("/{restaurantId}/menu/{foodId}")
+    public CompletableFuture<Map<String, Object>> removeMenuItem(@PathVariable String restaurantId,
+                                                                 @PathVariable String foodId) {
+        return restaurantService.removeMenuItem(restaurantId, foodId).thenApply(RestaurantController::menuItemResult);
+    }
+
+    private static Map<String, Object> menuItemResult(boolean found) {
+        if (!found) {
+            return Map.of("status", "error", "message", "Menu item not found");
+        }
+        return Map.of("status", "success");
     }
 }
@@ -0,0 +1,236 @@
+package com.foodorder.food_backend.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of opaque records in memory-mapped segment files of a fixed
+ * size. A record is {@code [length][crc32c][sequence][payload]}; the length is
+ * stored last, so a record cut short by a crash reads as the end of the log,
+ * and the checksum over sequence and payload catches pages that never reached
+ * the disk. Appends go straight into the mapping and survive the JVM dying;
+ * {@link #force()} makes them survive the machine as well.
+ *
+ * <p>Segments are named after the sequence of their first record and rolled
+ * when full. {@link #compact} starts a fresh segment with a snapshot and drops
+ * everything before it.
+ */
+public class SegmentedJournal implements Closeable {
+
+    /** A replayed record. {@code payload} is only valid during the callback. */
+    public record Entry(long sequence, ByteBuffer payload) {}
+
+    private static final int MAGIC = 0x4A524E31;
+    private static final int SEGMENT_HEADER_BYTES = 16;
+    private static final int RECORD_HEADER_BYTES = 16;
+    private static final String SUFFIX = ".journal";
+
+    private final Path dir;
+    private final String prefix;
+    private final int segmentBytes;
+    private final CRC32C crc = new CRC32C();
+
+    private final List<Path> segments = new ArrayList<>();
+    private FileChannel channel;
+    private MappedByteBuffer active;
+    private long nextSequence;
+    private boolean dirty;
+
+    private SegmentedJournal(Path dir, String prefix, int segmentBytes) {
+        this.dir = dir;
+        this.prefix = prefix;
+        this.segmentBytes = segmentBytes;
+    }
+
+    /**
+     * Opens the journal in {@code dir}, handing every intact record to
+     * {@code replay} in order, and positions appends after the last one.
+     */
+    public static SegmentedJournal open(Path dir, String prefix, int segmentBytes, Consumer<Entry> replay)
+            throws IOException {
+        if (segmentBytes < SEGMENT_HEADER_BYTES + RECORD_HEADER_BYTES) {
+            throw new IllegalArgumentException("Segment size too small: " + segmentBytes);
+        }
+        Files.createDirectories(dir);
+        SegmentedJournal journal = new SegmentedJournal(dir, prefix, segmentBytes);
+        journal.recover(replay);
+        return journal;
+    }
+
+    private void recover(Consumer<Entry> replay) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(prefix + "-") && name.endsWith(SUFFIX);
+            }).sorted().forEach(segments::add);
+        }
+        if (segments.isEmpty()) {
+            openSegment(0);
+            return;
+        }
+
+        long expected = baseSequence(segments.get(0));
+        for (int i = 0; i < segments.size(); i++) {
+            Path path = segments.get(i);
+            boolean last = i == segments.size() - 1;
+            int end = SEGMENT_HEADER_BYTES;
+            try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = file.map(FileChannel.MapMode.READ_ONLY, 0, file.size());
+                boolean blank = buffer.limit() < SEGMENT_HEADER_BYTES || buffer.getInt(0) == 0;
+                if (!(last && blank && baseSequence(path) == expected)) {
+                    // A blank last segment was being created when we stopped; anything else must continue the log.
+                    if (blank || buffer.getInt(0) != MAGIC || buffer.getLong(8) != expected) {
+                        throw new IOException("Journal segment " + path + " does not continue the previous one");
+                    }
+                    end = scan(buffer, expected, replay);
+                    expected += countRecords(buffer, end);
+                }
+            }
+            if (!last) continue;
+
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            active = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+            active.putInt(0, MAGIC);
+            active.putLong(8, baseSequence(path));
+            // Whatever follows the last intact record is a torn write, possibly with later records
+            // whose pages did reach the disk; clear all of it so none of them is replayed once new
+            // appends fill the gap in front.
+            clearTail(active, end);
+            active.position(end);
+        }
+        nextSequence = expected;
+    }
+
+    /** Replays a segment and returns the offset just past its last intact record. */
+    private int scan(MappedByteBuffer buffer, long firstSequence, Consumer<Entry> replay) {
+        int position = SEGMENT_HEADER_BYTES;
+        long sequence = firstSequence;
+        while (position + RECORD_HEADER_BYTES <= buffer.limit()) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + RECORD_HEADER_BYTES + length > buffer.limit()) break;
+            if (buffer.getLong(position + 8) != sequence) break;
+            crc.reset();
+            crc.update(buffer.slice(position + 8, 8 + length));
+            if ((int) crc.getValue() != buffer.getInt(position + 4)) break;
+
+            replay.accept(new Entry(sequence, buffer.slice(position + RECORD_HEADER_BYTES, length).asReadOnlyBuffer()));
+            position += RECORD_HEADER_BYTES + length;
+            sequence++;
+        }
+        return position;
+    }
+
+    private static long countRecords(MappedByteBuffer buffer, int end) {
+        long count = 0;
+        for (int position = SEGMENT_HEADER_BYTES; position < end; count++) {
+            position += RECORD_HEADER_BYTES + buffer.getInt(position);
+        }
+        return count;
+    }
+
+    /** Zeroes {@code buffer} from {@code from} to its last non-zero byte. */
+    private static void clearTail(MappedByteBuffer buffer, int from) {
+        int to = buffer.limit();
+        while (to - Long.BYTES >= from && buffer.getLong(to - Long.BYTES) == 0) to -= Long.BYTES;
+        for (int p = from; p < to; p++) buffer.put(p, (byte) 0);
+    }
+
+    /** Appends a record and returns its sequence number. */
+    public synchronized long append(byte[] payload) throws IOException {
+        int needed = RECORD_HEADER_BYTES + payload.length;
+        if (needed > segmentBytes - SEGMENT_HEADER_BYTES) {
+            throw new IllegalArgumentException("Record of " + payload.length + " bytes does not fit in a segment");
+        }
+        if (active.remaining() < needed) roll();
+
+        long sequence = nextSequence++;
+        int start = active.position();
+        active.putLong(start + 8, sequence);
+        active.put(start + RECORD_HEADER_BYTES, payload);
+        crc.reset();
+        crc.update(active.slice(start + 8, 8 + payload.length));
+        active.putInt(start + 4, (int) crc.getValue());
+        active.putInt(start, payload.length);
+        active.position(start + needed);
+        dirty = true;
+        return sequence;
+    }
+
+    /** Flushes appended records to the disk. */
+    public synchronized void force() {
+        if (!dirty) return;
+        active.force();
+        dirty = false;
+    }
+
+    /**
+     * Writes {@code snapshot} at the start of a new segment, flushes it, and
+     * deletes every older segment, oldest first, so a crash part way through
+     * still replays into the same state.
+     */
+    public synchronized void compact(List<byte[]> snapshot) throws IOException {
+        roll();
+        Path first = segments.get(segments.size() - 1);
+        for (byte[] payload : snapshot) append(payload);
+        force();
+
+        while (segments.get(0) != first) {
+            Files.deleteIfExists(segments.remove(0));
+        }
+    }
+
+    private void roll() throws IOException {
+        if (active.position() == SEGMENT_HEADER_BYTES) return;
+        active.force();
+        dirty = false;
+        channel.close();
+        openSegment(nextSequence);
+    }
+
+    private void openSegment(long baseSequence) throws IOException {
+        Path path = dir.resolve(String.format("%s-%020d%s", prefix, baseSequence, SUFFIX));
+        channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        active = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        active.putInt(0, MAGIC);
+        active.putLong(8, baseSequence);
+        active.position(SEGMENT_HEADER_BYTES);
+        active.force();
+        segments.add(path);
+        nextSequence = baseSequence;
+    }
+
+    private long baseSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(prefix.length() + 1, name.length() - SUFFIX.length()));
+    }
+
+    public synchronized long nextSequence() {
+        return nextSequence;
+    }
+
+    public synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    /** Roughly the bytes in use: earlier segments count as full, the active one up to its last record. */
+    public synchronized long usedBytes() {
+        return (long) (segments.size() - 1) * segmentBytes + active.position();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        force();
+        channel.close();
+    }
+}
@@ -0,0 +1,43 @@
+package com.foodorder.food_backend.model;
+
+import java.util.List;
+
+/** One restaurant's share of an order, as queued for its kitchen. */
+public class KitchenOrder {
+    private String orderId;
+    private String userId;
+    private String restaurantId;
+    private String restaurantName;
+    private List<CartItem> items;
+    private String address;
+    private double totalAmount;
+    private long placedAt;
+    private String status;
+
+    public String getOrderId() { return orderId; }
+    public void setOrderId(String orderId) { this.orderId = orderId; }
+
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+
+    public String getRestaurantId() { return restaurantId; }
+    public void setRestaurantId(String restaurantId) { this.restaurantId = restaurantId; }
+
+    public String getRestaurantName() { return restaurantName; }
+    public void setRestaurantName(String restaurantName) { this.restaurantName = restaurantName; }
+
+    public List<CartItem> getItems() { return items; }
+    public void setItems(List<CartItem> items) { this.items = items; }
+
+    public String getAddress() { return address; }
+    public void setAddress(String address) { this.address = address; }
+
+    public double getTotalAmount() { return totalAmount; }
+    public void setTotalAmount(double totalAmount) { this.totalAmount = totalAmount; }
+
+    public long getPlacedAt() { return placedAt; }
+    public void setPlacedAt(long placedAt) { this.placedAt = placedAt; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+}
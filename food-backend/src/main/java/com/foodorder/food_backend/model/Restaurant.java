@@ -11,6 +11,8 @@ public class Restaurant {
     private String name;
     private String location;
     private String imageUrl;
+    private Double latitude;
+    private Double longitude;
     private List<Food> menu = new ArrayList<>();
 
     public Restaurant() {}
@@ -61,6 +63,12 @@ public class Restaurant {
     public String getImageUrl() { return imageUrl; }
     public void setImageUrl(String imageUrl) { this.imageUrl = imageUrl; }
 
+    public Double getLatitude() { return latitude; }
+    public void setLatitude(Double latitude) { this.latitude = latitude; }
+
+    public Double getLongitude() { return longitude; }
+    public void setLongitude(Double longitude) { this.longitude = longitude; }
+
     public List<Food> getMenu() { return menu; }
     public void setMenu(List<Food> menu) { this.menu = menu; }
 
@@ -71,6 +79,8 @@ public class Restaurant {
                 ", name='" + name + '\'' +
                 ", location='" + location + '\'' +
                 ", imageUrl='" + imageUrl + '\'' +
+                ", latitude=" + latitude +
+                ", longitude=" + longitude +
                 ", menu=" + menu +
                 '}';
     }
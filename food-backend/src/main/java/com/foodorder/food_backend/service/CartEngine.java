@@ -0,0 +1,312 @@
+package com.foodorder.food_backend.service;
+
+import com.foodorder.food_backend.config.BackgroundThreads;
+import com.foodorder.food_backend.model.CartItem;
+import com.google.cloud.firestore.*;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Per-user in-memory carts in front of the {@code users/{id}/cart} subcollection.
+ * Reads and mutations are served locally; changed lines are written behind in
+ * coalesced batches at most {@code cart.flush-delay-ms} after the mutation.
+ * Clean carts are evicted once idle or when the resident count exceeds
+ * {@code cart.max-resident}, and are reloaded from Firestore on next access.
+ */
+@Component
+public class CartEngine {
+
+    private static final int MAX_BATCH_WRITES = 500;
+
+    private final Firestore db;
+    private final long idleEvictMs;
+    private final int maxResident;
+
+    private final Map<String, Cart> carts = new ConcurrentHashMap<>();
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolTaskScheduler scheduler;
+
+    public CartEngine(Firestore db, BackgroundThreads threads,
+                      @Value("${cart.flush-delay-ms:250}") long flushDelayMs,
+                      @Value("${cart.idle-evict-ms:900000}") long idleEvictMs,
+                      @Value("${cart.max-resident:200000}") int maxResident) {
+        this.db = db;
+        this.idleEvictMs = idleEvictMs;
+        this.maxResident = maxResident;
+
+        this.scheduler = threads.scheduler("cart-flush-");
+        scheduler.scheduleWithFixedDelay(this::flushDirty, Duration.ofMillis(flushDelayMs));
+        scheduler.scheduleWithFixedDelay(this::evictIdle, Duration.ofSeconds(30));
+    }
+
+    public CompletableFuture<List<CartItem>> items(String userId) {
+        return resident(userId).thenApply(cart -> {
+            synchronized (cart) {
+                cart.lastAccess = System.currentTimeMillis();
+                return new ArrayList<>(cart.items.values());
+            }
+        });
+    }
+
+    /**
+     * Applies {@code mutation} to the user's cart under its lock and schedules
+     * the touched lines for write-behind. Completes with the cart contents
+     * afterwards; only a cart that is not resident yet waits on Firestore.
+     */
+    public CompletableFuture<List<CartItem>> mutate(String userId, Consumer<Cart> mutation) {
+        return resident(userId).thenCompose(cart -> {
+            synchronized (cart) {
+                if (!cart.evicted) {
+                    mutation.accept(cart);
+                    cart.lastAccess = System.currentTimeMillis();
+                    if (!cart.pending.isEmpty()) dirty.add(userId);
+                    return CompletableFuture.completedFuture(new ArrayList<>(cart.items.values()));
+                }
+            }
+            // Evicted between lookup and lock; load it again.
+            return mutate(userId, mutation);
+        });
+    }
+
+    /**
+     * Empties the user's cart locally and hands back its stored lines, to be
+     * deleted in the same atomic write as the order they were checked out
+     * into. The caller must report the outcome through {@link Checkout#finish}.
+     */
+    public CompletableFuture<Checkout> checkout(String userId) {
+        return resident(userId).thenCompose(cart -> {
+            synchronized (cart) {
+                if (cart.evicted) return checkout(userId);
+                Checkout checkout = new Checkout(cart);
+                cart.items.clear();
+                cart.pending.clear();
+                // Keeps the cart resident until the outcome is known.
+                cart.flushing++;
+                cart.lastAccess = System.currentTimeMillis();
+                return CompletableFuture.completedFuture(checkout);
+            }
+        });
+    }
+
+    /** Lines taken out of a cart by {@link #checkout}. */
+    public final class Checkout {
+        private final Cart cart;
+        private final Map<String, CartItem> removed;
+        private final Set<String> ids;
+        private final boolean flushInFlight;
+        private boolean finished;
+
+        private Checkout(Cart cart) {
+            this.cart = cart;
+            this.removed = new LinkedHashMap<>(cart.items);
+            this.ids = new HashSet<>(cart.pending);
+            ids.addAll(removed.keySet());
+            this.flushInFlight = cart.flushing > 0;
+        }
+
+        /** Number of deletes {@link #addDeletes} adds. */
+        public int deleteCount() {
+            return ids.size();
+        }
+
+        /** Adds a delete for every stored line; may be called again if the batch is retried. */
+        public void addDeletes(WriteBatch batch) {
+            for (String id : ids) batch.delete(cartRef(cart.userId).document(id));
+        }
+
+        /**
+         * Restores the lines if the deletes did not commit. A write-behind flush
+         * that was in flight during checkout may land after the deletes; its
+         * lines are deleted again on the next flush.
+         */
+        public void finish(boolean committed) {
+            synchronized (cart) {
+                if (finished) return;
+                finished = true;
+                cart.flushing--;
+                if (!committed) {
+                    removed.forEach(cart.items::putIfAbsent);
+                    cart.pending.addAll(ids);
+                } else if (flushInFlight) {
+                    for (String id : ids) {
+                        if (!cart.items.containsKey(id)) cart.pending.add(id);
+                    }
+                }
+                if (!cart.pending.isEmpty()) dirty.add(cart.userId);
+            }
+        }
+    }
+
+    private CompletableFuture<Cart> resident(String userId) {
+        Cart cart = carts.get(userId);
+        if (cart != null) return CompletableFuture.completedFuture(cart);
+
+        return FirestoreFutures.toCompletable(cartRef(userId).get(), "cart", "query").thenApply(snapshot -> {
+            Cart loaded = new Cart(userId);
+            for (QueryDocumentSnapshot doc : snapshot.getDocuments()) {
+                CartItem item = doc.toObject(CartItem.class);
+                if (item.getId() == null) item.setId(doc.getId());
+                loaded.items.put(item.getId(), item);
+            }
+            loaded.lastAccess = System.currentTimeMillis();
+
+            Cart raced = carts.putIfAbsent(userId, loaded);
+            return raced != null ? raced : loaded;
+        });
+    }
+
+    private CollectionReference cartRef(String userId) {
+        return db.collection("users").document(userId).collection("cart");
+    }
+
+    void flushDirty() {
+        FlushBatch batch = new FlushBatch();
+        List<Cart> touched = new ArrayList<>();
+
+        try {
+            for (String userId : dirty) {
+                dirty.remove(userId);
+                Cart cart = carts.get(userId);
+                if (cart == null) continue;
+
+                Map<String, CartItem> snapshot = new HashMap<>();
+                synchronized (cart) {
+                    for (String id : cart.pending) snapshot.put(id, cart.items.get(id));
+                    cart.pending.clear();
+                    cart.flushing++;
+                }
+                touched.add(cart);
+
+                for (Map.Entry<String, CartItem> line : snapshot.entrySet()) {
+                    if (batch.writes == MAX_BATCH_WRITES) {
+                        batch.commit();
+                        batch = new FlushBatch();
+                    }
+                    batch.add(cart, line.getKey(), line.getValue());
+                }
+            }
+
+            if (batch.writes > 0) batch.commit();
+        } finally {
+            for (Cart cart : touched) {
+                synchronized (cart) {
+                    cart.flushing--;
+                }
+            }
+        }
+    }
+
+    private void requeue(Cart cart, Set<String> ids) {
+        synchronized (cart) {
+            cart.pending.addAll(ids);
+            if (!cart.evicted) dirty.add(cart.userId);
+        }
+    }
+
+    /** One Firestore commit; remembers which lines it carries so a failure can put them back. */
+    private final class FlushBatch {
+        final WriteBatch batch = db.batch();
+        final Map<Cart, Set<String>> lines = new HashMap<>();
+        int writes;
+
+        void add(Cart cart, String id, CartItem item) {
+            lines.computeIfAbsent(cart, c -> new HashSet<>()).add(id);
+
+            DocumentReference ref = cartRef(cart.userId).document(id);
+            if (item == null) batch.delete(ref);
+            else batch.set(ref, item);
+            writes++;
+        }
+
+        void commit() {
+            try {
+                FirestoreFutures.toCompletable(batch.commit(), "cart", "commit").get();
+            } catch (Exception e) {
+                e.printStackTrace();
+                lines.forEach(CartEngine.this::requeue);
+            }
+        }
+    }
+
+    void evictIdle() {
+        long now = System.currentTimeMillis();
+        long cutoff = now - idleEvictMs;
+        evictOlderThan(cutoff);
+
+        // Over capacity: progressively tighten the idle cutoff until enough clean carts are gone.
+        long window = idleEvictMs;
+        while (carts.size() > maxResident && window > 1000) {
+            window /= 2;
+            evictOlderThan(now - window);
+        }
+    }
+
+    private void evictOlderThan(long cutoff) {
+        for (Cart cart : carts.values()) {
+            if (cart.lastAccess >= cutoff) continue;
+            synchronized (cart) {
+                if (cart.lastAccess >= cutoff || !cart.pending.isEmpty() || cart.flushing > 0) continue;
+                cart.evicted = true;
+                carts.remove(cart.userId, cart);
+            }
+        }
+    }
+
+    public int residentCarts() {
+        return carts.size();
+    }
+
+    public int dirtyCarts() {
+        return dirty.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushDirty();
+        scheduler.shutdown();
+    }
+
+    /** A resident cart. Lines are replaced rather than mutated so snapshots stay stable. */
+    public static final class Cart {
+        final String userId;
+        final Map<String, CartItem> items = new LinkedHashMap<>();
+        final Set<String> pending = new HashSet<>();
+        volatile long lastAccess;
+        int flushing;
+        boolean evicted;
+
+        Cart(String userId) {
+            this.userId = userId;
+        }
+
+        public Collection<CartItem> lines() {
+            return items.values();
+        }
+
+        public CartItem get(String id) {
+            return items.get(id);
+        }
+
+        public void put(CartItem item) {
+            items.put(item.getId(), item);
+            pending.add(item.getId());
+        }
+
+        public void remove(String id) {
+            if (items.remove(id) != null) pending.add(id);
+        }
+
+        public void clear() {
+            pending.addAll(items.keySet());
+            items.clear();
+        }
+    }
+}
@@ -1,108 +1,98 @@
 package com.foodorder.food_backend.service;
 
 import com.foodorder.food_backend.model.CartItem;
-import com.google.api.core.ApiFuture;
-import com.google.cloud.firestore.*;
-import com.google.firebase.cloud.FirestoreClient;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class CartService {
 
-    private Firestore db = FirestoreClient.getFirestore();
+    private final CartEngine cartEngine;
 
-    public List<CartItem> getCartItems(String userId) {
-        try {
-            CollectionReference cartRef = db.collection("users").document(userId).collection("cart");
-            ApiFuture<QuerySnapshot> query = cartRef.get();
-            List<QueryDocumentSnapshot> docs = query.get().getDocuments();
+    public CartService(CartEngine cartEngine) {
+        this.cartEngine = cartEngine;
+    }
 
-            List<CartItem> items = new ArrayList<>();
-            for (QueryDocumentSnapshot doc : docs) {
-                items.add(doc.toObject(CartItem.class));
-            }
-            return items;
-        } catch (Exception e) {
+    public CompletableFuture<List<CartItem>> getCartItems(String userId) {
+        return cartEngine.items(userId).exceptionally(e -> {
             e.printStackTrace();
             return Collections.emptyList();
-        }
+        });
     }
 
-    public Map<String, Object> addToCart(String userId, CartItem item) {
-        Map<String, Object> response = new HashMap<>();
-        try {
-            CollectionReference cartRef = db.collection("users").document(userId).collection("cart");
-
-            ApiFuture<QuerySnapshot> query = cartRef.whereEqualTo("name", item.getName())
-                                                    .whereEqualTo("restaurant", item.getRestaurant()).get();
-            List<QueryDocumentSnapshot> docs = query.get().getDocuments();
+    public CompletableFuture<Map<String, Object>> addToCart(String userId, CartItem item) {
+        String[] message = new String[1];
+        return respond(cartEngine.mutate(userId, cart -> {
+            CartItem existing = null;
+            for (CartItem line : cart.lines()) {
+                if (Objects.equals(line.getName(), item.getName())
+                        && Objects.equals(line.getRestaurant(), item.getRestaurant())) {
+                    existing = line;
+                    break;
+                }
+            }
 
-            if (!docs.isEmpty()) {
-                DocumentReference docRef = docs.get(0).getReference();
-                CartItem existing = docs.get(0).toObject(CartItem.class);
-                existing.setQuantity(existing.getQuantity() + 1);
-                docRef.set(existing);
-                response.put("message", "Item quantity updated");
+            if (existing != null) {
+                cart.put(withQuantity(existing, existing.getQuantity() + 1));
+                message[0] = "Item quantity updated";
             } else {
                 item.setId(UUID.randomUUID().toString());
                 item.setQuantity(1);
-                cartRef.document(item.getId()).set(item);
-                response.put("message", "Item added to cart");
+                cart.put(item);
+                message[0] = "Item added to cart";
             }
-
-            response.put("status", "success");
-            response.put("cartItems", getCartItems(userId));
-        } catch (Exception e) {
-            response.put("status", "error");
-            response.put("message", e.getMessage());
-        }
-        return response;
+        }), message);
     }
 
-    public Map<String, Object> updateQuantity(String userId, String id, int quantity) {
-        Map<String, Object> response = new HashMap<>();
-        try {
-            DocumentReference docRef = db.collection("users").document(userId).collection("cart").document(id);
-
+    public CompletableFuture<Map<String, Object>> updateQuantity(String userId, String id, int quantity) {
+        return respond(cartEngine.mutate(userId, cart -> {
+            CartItem existing = cart.get(id);
             if (quantity <= 0) {
-                docRef.delete();
-            } else {
-                docRef.update("quantity", quantity);
+                cart.remove(id);
+            } else if (existing != null) {
+                cart.put(withQuantity(existing, quantity));
             }
+        }), null);
+    }
 
-            response.put("status", "success");
-            response.put("cartItems", getCartItems(userId));
-        } catch (Exception e) {
-            response.put("status", "error");
-            response.put("message", e.getMessage());
-        }
-        return response;
+    public CompletableFuture<Map<String, Object>> removeItem(String userId, String id) {
+        return respond(cartEngine.mutate(userId, cart -> cart.remove(id)), null);
     }
 
-    public Map<String, Object> removeItem(String userId, String id) {
-        Map<String, Object> response = new HashMap<>();
-        try {
-            db.collection("users").document(userId).collection("cart").document(id).delete();
-            response.put("status", "success");
-            response.put("cartItems", getCartItems(userId));
-        } catch (Exception e) {
-            response.put("status", "error");
-            response.put("message", e.getMessage());
-        }
-        return response;
+    public CompletableFuture<Void> clearCart(String userId) {
+        return cartEngine.mutate(userId, CartEngine.Cart::clear).handle((items, e) -> {
+            if (e != null) e.printStackTrace();
+            return null;
+        });
+    }
+
+    /** Takes the cart's lines out for an order; see {@link CartEngine#checkout}. */
+    public CompletableFuture<CartEngine.Checkout> checkout(String userId) {
+        return cartEngine.checkout(userId);
     }
 
-    public void clearCart(String userId) {
-        try {
-            CollectionReference cartRef = db.collection("users").document(userId).collection("cart");
-            ApiFuture<QuerySnapshot> query = cartRef.get();
-            for (QueryDocumentSnapshot doc : query.get().getDocuments()) {
-                doc.getReference().delete();
+    private static CompletableFuture<Map<String, Object>> respond(CompletableFuture<List<CartItem>> mutation,
+                                                                  String[] message) {
+        return mutation.handle((items, e) -> {
+            Map<String, Object> response = new HashMap<>();
+            if (e != null) {
+                response.put("status", "error");
+                response.put("message", FirestoreFutures.errorMessage(e));
+                return response;
             }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+            if (message != null) response.put("message", message[0]);
+            response.put("status", "success");
+            response.put("cartItems", items);
+            return response;
+        });
+    }
+
+    private static CartItem withQuantity(CartItem item, int quantity) {
+        CartItem copy = new CartItem(item.getId(), item.getName(), item.getPrice(),
+                item.getImageUrl(), item.getRestaurant(), quantity);
+        copy.setImage(item.getImage());
+        return copy;
     }
 }
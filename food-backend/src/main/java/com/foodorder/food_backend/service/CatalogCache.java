@@ -0,0 +1,324 @@
+package com.foodorder.food_backend.service;
+
+import com.foodorder.food_backend.config.BackgroundThreads;
+import com.foodorder.food_backend.model.Food;
+import com.foodorder.food_backend.model.Restaurant;
+import com.google.cloud.firestore.*;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * In-process copy of the {@code foods} and {@code restaurants} collections,
+ * and of every {@code restaurants/{id}/menu} item when menus are stored as
+ * subcollections. Each is loaded once by a snapshot listener and then kept
+ * current from the listener's document changes. Readers get the same
+ * immutable list until the next change, so a cache hit allocates nothing;
+ * the list is copied by the first reader after a change rather than by the
+ * listener, so a single-document change costs a map update.
+ */
+@Component
+public class CatalogCache {
+
+    private static final long RELISTEN_DELAY_MS = 5000;
+
+    private final Firestore db;
+    private final BackgroundThreads threads;
+    private ThreadPoolTaskScheduler scheduler;
+
+    private final View<Food> foods;
+    private final View<Restaurant> restaurants;
+    private final View<Food> menus;
+
+    public CatalogCache(Firestore db, BackgroundThreads threads,
+                        @Value("${menu.storage:embedded}") String menuStorage) {
+        this.db = db;
+        this.threads = threads;
+        this.foods = new View<>("foods", db.collection("foods"), Food.class, Food::setId, DocumentSnapshot::getId);
+        this.restaurants = new View<>("restaurants", db.collection("restaurants"), Restaurant.class,
+                Restaurant::setId, DocumentSnapshot::getId);
+        this.menus = new View<>("menus", db.collectionGroup("menu"), Food.class, Food::setId,
+                doc -> doc.getReference().getPath());
+        if (!"subcollection".equalsIgnoreCase(menuStorage)) menus.disable();
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler = threads.scheduler("catalog-");
+        foods.listen();
+        restaurants.listen();
+        menus.listen();
+    }
+
+    @PreDestroy
+    public void stop() {
+        foods.close();
+        restaurants.close();
+        menus.close();
+        scheduler.shutdown();
+    }
+
+    public View<Food> foods() {
+        return foods;
+    }
+
+    public View<Restaurant> restaurants() {
+        return restaurants;
+    }
+
+    /**
+     * Subcollection menu items keyed by document path; see {@link #menuRestaurantId}.
+     * Always empty while menus are embedded in their restaurant.
+     */
+    public View<Food> menus() {
+        return menus;
+    }
+
+    /** The restaurant id in a {@link #menus()} key ({@code restaurants/{id}/menu/{foodId}}). */
+    public static String menuRestaurantId(String key) {
+        return key.split("/", 3)[1];
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of("foods", foods.stats(), "restaurants", restaurants.stats(), "menus", menus.stats());
+    }
+
+    /** Told about each document change after the view has published it. */
+    public interface ChangeListener<T> {
+        /** {@code before} is null for an addition, {@code after} for a removal. */
+        void changed(String key, T before, T after);
+    }
+
+    private record Change<T>(String key, T before, T after) {}
+
+    /** A listener-maintained view of one collection or collection group. */
+    public final class View<T> {
+        private final String collection;
+        private final Query query;
+        private final Class<T> type;
+        private final BiConsumer<T, String> idSetter;
+        private final Function<DocumentSnapshot, String> keyOf;
+        private boolean disabled;
+
+        /** Ordered by key, as Firestore returns documents. Written under the view's lock. */
+        private final ConcurrentSkipListMap<String, T> byId = new ConcurrentSkipListMap<>();
+        private volatile int size;
+        private volatile boolean loaded;
+        /** Copies of {@code byId} for readers; null until someone asks after a change. */
+        private volatile List<T> snapshot;
+        private volatile Map<String, T> index;
+        /** The next snapshot replaces {@code byId}, since removals while we were away are not reported. */
+        private boolean resync;
+        private volatile boolean listening;
+        private volatile long lastSyncMillis;
+        private ListenerRegistration registration;
+        private final List<ChangeListener<T>> changeListeners = new CopyOnWriteArrayList<>();
+        private final List<Runnable> loadListeners = new ArrayList<>();
+
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder changes = new LongAdder();
+
+        View(String collection, Query query, Class<T> type, BiConsumer<T, String> idSetter,
+             Function<DocumentSnapshot, String> keyOf) {
+            this.collection = collection;
+            this.query = query;
+            this.type = type;
+            this.idSetter = idSetter;
+            this.keyOf = keyOf;
+        }
+
+        /** Never listens and stays empty. */
+        private synchronized void disable() {
+            disabled = true;
+            loaded = true;
+        }
+
+        /**
+         * Returns the cached collection, or reads it directly from Firestore
+         * while the listener has not delivered its first snapshot.
+         */
+        public CompletableFuture<List<T>> all() {
+            if (loaded) {
+                hits.increment();
+                List<T> current = snapshot;
+                return CompletableFuture.completedFuture(current != null ? current : copyList());
+            }
+
+            misses.increment();
+            return FirestoreFutures.toCompletable(query.get(), collection, "query").thenApply(result -> {
+                List<T> loaded = new ArrayList<>();
+                for (DocumentSnapshot doc : result.getDocuments()) {
+                    T item = doc.toObject(type);
+                    idSetter.accept(item, doc.getId());
+                    loaded.add(item);
+                }
+                return Collections.unmodifiableList(loaded);
+            });
+        }
+
+        /** Whether the first snapshot has arrived, i.e. {@link #get} is authoritative. */
+        public boolean isLoaded() {
+            return loaded;
+        }
+
+        public T get(String id) {
+            return byId.get(id);
+        }
+
+        /** The cached items by key; empty until the first snapshot. The same map is returned until a change. */
+        public Map<String, T> entries() {
+            Map<String, T> current = index;
+            return current != null ? current : copyIndex();
+        }
+
+        private synchronized List<T> copyList() {
+            if (snapshot == null) snapshot = List.copyOf(byId.values());
+            return snapshot;
+        }
+
+        private synchronized Map<String, T> copyIndex() {
+            if (index == null) index = Collections.unmodifiableMap(new LinkedHashMap<>(byId));
+            return index;
+        }
+
+        /** Runs {@code listener} for every change, under the view's lock, so it must be quick. */
+        public void onChange(ChangeListener<T> listener) {
+            changeListeners.add(listener);
+        }
+
+        /**
+         * Runs {@code listener} once the first snapshot has been applied, even
+         * one with no documents, or right away if it already has.
+         */
+        public void onLoad(Runnable listener) {
+            synchronized (this) {
+                if (!loaded) {
+                    loadListeners.add(listener);
+                    return;
+                }
+            }
+            listener.run();
+        }
+
+        /** Applies a write this process just made, ahead of the listener echoing it back. */
+        public synchronized void put(String id, T item) {
+            if (!loaded || disabled) return;
+            T before = byId.put(id, item);
+            if (before == null) size++;
+            invalidate();
+            for (ChangeListener<T> listener : changeListeners) listener.changed(id, before, item);
+        }
+
+        private synchronized void listen() {
+            if (disabled) return;
+            resync = true;
+            registration = query.addSnapshotListener((snap, error) -> {
+                if (error != null) {
+                    onError(error);
+                    return;
+                }
+                apply(snap);
+            });
+        }
+
+        private synchronized void apply(QuerySnapshot snap) {
+            List<Change<T>> applied = new ArrayList<>(snap.getDocumentChanges().size());
+            if (resync) {
+                Set<String> missing = new HashSet<>(byId.keySet());
+                for (QueryDocumentSnapshot doc : snap.getDocuments()) {
+                    String key = keyOf.apply(doc);
+                    missing.remove(key);
+                    applied.add(upsert(key, doc));
+                }
+                for (String key : missing) applied.add(new Change<>(key, byId.remove(key), null));
+                resync = false;
+            } else {
+                for (DocumentChange change : snap.getDocumentChanges()) {
+                    QueryDocumentSnapshot doc = change.getDocument();
+                    String key = keyOf.apply(doc);
+                    if (change.getType() == DocumentChange.Type.REMOVED) {
+                        applied.add(new Change<>(key, byId.remove(key), null));
+                    } else {
+                        applied.add(upsert(key, doc));
+                    }
+                }
+            }
+            for (Change<T> change : applied) {
+                if (change.before() == null && change.after() != null) size++;
+                else if (change.before() != null && change.after() == null) size--;
+            }
+            changes.add(applied.size());
+            boolean firstLoad = !loaded;
+            loaded = true;
+            listening = true;
+            lastSyncMillis = System.currentTimeMillis();
+            invalidate();
+            notifyListeners(applied);
+            if (firstLoad) {
+                for (Runnable listener : loadListeners) listener.run();
+                loadListeners.clear();
+            }
+        }
+
+        private Change<T> upsert(String key, DocumentSnapshot doc) {
+            T after = doc.toObject(type);
+            idSetter.accept(after, doc.getId());
+            return new Change<>(key, byId.put(key, after), after);
+        }
+
+        private void notifyListeners(List<Change<T>> applied) {
+            for (ChangeListener<T> listener : changeListeners) {
+                for (Change<T> change : applied) listener.changed(change.key(), change.before(), change.after());
+            }
+        }
+
+        private void invalidate() {
+            snapshot = null;
+            index = null;
+        }
+
+        private synchronized void onError(FirestoreException error) {
+            System.out.println("⚠️ Catalog listener for " + collection + " failed: " + error.getMessage());
+            listening = false;
+            if (registration != null) registration.remove();
+            scheduler.schedule(this::listen, Instant.now().plusMillis(RELISTEN_DELAY_MS));
+        }
+
+        private synchronized void close() {
+            if (registration != null) registration.remove();
+            listening = false;
+        }
+
+        /**
+         * Staleness is zero while the listener is attached and in sync; once it
+         * drops, it is the time since the last snapshot it delivered.
+         */
+        public long stalenessMs() {
+            if (!loaded) return -1;
+            return listening ? 0 : System.currentTimeMillis() - lastSyncMillis;
+        }
+
+        public Map<String, Object> stats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("size", size);
+            stats.put("hits", hits.sum());
+            stats.put("misses", misses.sum());
+            stats.put("changes", changes.sum());
+            stats.put("listening", listening);
+            stats.put("stalenessMs", stalenessMs());
+            return stats;
+        }
+    }
+}
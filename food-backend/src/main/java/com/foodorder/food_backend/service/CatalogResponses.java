@@ -0,0 +1,150 @@
+package com.foodorder.food_backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.foodorder.food_backend.model.Food;
+import jakarta.annotation.PostConstruct;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * JSON bodies of the catalog read endpoints, rendered and gzipped once per
+ * catalog change instead of once per request. A rendering remembers the list
+ * it was made from; {@link CatalogCache} hands out the same list until the
+ * next change, so an unchanged catalog is recognised by identity without
+ * comparing anything. Each body carries a strong ETag derived from its bytes.
+ */
+@Component
+public class CatalogResponses {
+
+    /** Bodies smaller than this are not worth a gzip frame. */
+    private static final int MIN_GZIP_BYTES = 1024;
+
+    /** A rendered body; {@code gzip} is null when compression would not pay off. */
+    public record Rendered(Object source, byte[] json, byte[] gzip, String etag) {
+
+        /** Serializes {@code source} and prepares its gzip variant and ETag. */
+        public static Rendered of(ObjectMapper mapper, Object source) {
+            try {
+                byte[] json = mapper.writeValueAsBytes(source);
+                byte[] gzip = json.length >= MIN_GZIP_BYTES ? gzip(json) : null;
+                return new Rendered(source, json, gzip, etag(json));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private final CatalogCache catalog;
+    private final MenuStore menuStore;
+    private final ObjectMapper mapper;
+
+    private volatile Rendered foods;
+    private volatile Rendered restaurants;
+    private final Map<String, Rendered> menus = new ConcurrentHashMap<>();
+    private volatile MenusByRestaurant menusByRestaurant = new MenusByRestaurant(null, Map.of());
+
+    private final LongAdder renders = new LongAdder();
+    private final LongAdder reuses = new LongAdder();
+
+    public CatalogResponses(CatalogCache catalog, MenuStore menuStore, ObjectMapper mapper) {
+        this.catalog = catalog;
+        this.menuStore = menuStore;
+        this.mapper = mapper;
+    }
+
+    @PostConstruct
+    public void start() {
+        catalog.restaurants().onChange((id, before, after) -> {
+            if (after == null) menus.remove(id);
+        });
+    }
+
+    public CompletableFuture<Rendered> foods() {
+        return catalog.foods().all().thenApply(list -> foods = reuseOrRender(foods, list));
+    }
+
+    public CompletableFuture<Rendered> restaurants() {
+        return catalog.restaurants().all().thenApply(list -> restaurants = reuseOrRender(restaurants, list));
+    }
+
+    /** The whole menu of a restaurant, from the catalog cache when it has it. */
+    public CompletableFuture<Rendered> menu(String restaurantId) {
+        CompletableFuture<List<Food>> menu;
+        if (menuStore.isSubcollection() && catalog.menus().isLoaded()) {
+            menu = CompletableFuture.completedFuture(subcollectionMenu(restaurantId));
+        } else {
+            menu = menuStore.all(restaurantId);
+        }
+        return menu.thenApply(list -> {
+            Rendered rendered = reuseOrRender(menus.get(restaurantId), list);
+            if (catalog.restaurants().get(restaurantId) != null) menus.put(restaurantId, rendered);
+            return rendered;
+        });
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("renders", renders.sum());
+        stats.put("reuses", reuses.sum());
+        stats.put("cachedMenus", menus.size());
+        return stats;
+    }
+
+    /**
+     * Subcollection items grouped by restaurant, regrouped only when the menus
+     * view publishes a new map so every restaurant keeps a stable list between
+     * changes.
+     */
+    private List<Food> subcollectionMenu(String restaurantId) {
+        Map<String, Food> entries = catalog.menus().entries();
+        MenusByRestaurant grouped = menusByRestaurant;
+        if (grouped.source != entries) {
+            Map<String, List<Food>> byRestaurant = new HashMap<>();
+            for (Map.Entry<String, Food> entry : entries.entrySet()) {
+                byRestaurant.computeIfAbsent(CatalogCache.menuRestaurantId(entry.getKey()), id -> new ArrayList<>())
+                        .add(entry.getValue());
+            }
+            grouped = new MenusByRestaurant(entries, byRestaurant);
+            menusByRestaurant = grouped;
+        }
+        return grouped.menus.getOrDefault(restaurantId, List.of());
+    }
+
+    private record MenusByRestaurant(Map<String, Food> source, Map<String, List<Food>> menus) {}
+
+    private Rendered reuseOrRender(Rendered previous, Object source) {
+        if (previous != null && previous.source() == source) {
+            reuses.increment();
+            return previous;
+        }
+        renders.increment();
+        return Rendered.of(mapper, source);
+    }
+
+    private static byte[] gzip(byte[] json) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(json);
+        }
+        return out.toByteArray();
+    }
+
+    private static String etag(byte[] json) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 16)) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
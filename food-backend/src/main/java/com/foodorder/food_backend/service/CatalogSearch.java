@@ -0,0 +1,128 @@
+package com.foodorder.food_backend.service;
+
+import com.foodorder.food_backend.model.Food;
+import com.foodorder.food_backend.model.Restaurant;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Keeps a {@link SearchIndex} and a {@link FacetIndex} in step with the
+ * catalog: standalone foods, embedded restaurant menus and subcollection menu
+ * items. Updates arrive through {@link CatalogCache} change listeners, so
+ * writes from other processes are searchable once the listener delivers them;
+ * writes made here are indexed as soon as they commit.
+ */
+@Component
+public class CatalogSearch {
+
+    private final CatalogCache catalog;
+    private final SearchIndex index = new SearchIndex();
+    private final FacetIndex facets;
+
+    /** Food ids of the subcollection items of each restaurant, to re-index on a rename. */
+    private final Map<String, Set<String>> menuItemsByRestaurant = new HashMap<>();
+
+    public CatalogSearch(CatalogCache catalog,
+                         @Value("${catalog.price-bands:10,15,20,30}") double[] priceBands) {
+        this.catalog = catalog;
+        this.facets = new FacetIndex(priceBands);
+    }
+
+    @PostConstruct
+    public void start() {
+        catalog.foods().onChange((key, before, after) -> foodChanged(key, after));
+        catalog.restaurants().onChange(this::restaurantChanged);
+        catalog.menus().onChange((key, before, after) -> menuItemChanged(key, after));
+    }
+
+    public List<SearchIndex.Hit> search(String query, int limit) {
+        return index.search(query, limit);
+    }
+
+    public FacetIndex.Result filter(Collection<String> categories, Collection<String> priceBands, String cursor, int limit) {
+        return facets.filter(categories, priceBands, cursor, limit);
+    }
+
+    /** Indexes an item just added to a restaurant's menu, ahead of the listener echoing it back. */
+    public synchronized void addMenuItem(String restaurantId, Food food) {
+        upsert(menuEntry(restaurantId, catalog.restaurants().get(restaurantId), food));
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", index.size());
+        stats.put("terms", index.termCount());
+        stats.put("facetEntries", facets.size());
+        stats.put("priceBands", facets.bandLabels());
+        return stats;
+    }
+
+    private void upsert(SearchIndex.Entry entry) {
+        index.upsert(entry);
+        facets.upsert(entry);
+    }
+
+    private void remove(String key) {
+        index.remove(key);
+        facets.remove(key);
+    }
+
+    private synchronized void foodChanged(String id, Food after) {
+        if (after == null) {
+            remove(foodKey(id));
+            return;
+        }
+        upsert(new SearchIndex.Entry(foodKey(id), id, after.getName(), after.getCategory(), after.getPrice(),
+                after.getImageUrl(), null, null, null));
+    }
+
+    private synchronized void restaurantChanged(String id, Restaurant before, Restaurant after) {
+        if (before != null && before.getMenu() != null) {
+            for (Food food : before.getMenu()) remove(menuKey(id, food.getId()));
+        }
+        if (after != null && after.getMenu() != null) {
+            for (Food food : after.getMenu()) upsert(menuEntry(id, after, food));
+        }
+
+        // Subcollection items carry the restaurant's name and location, so refresh them too.
+        Set<String> foodIds = menuItemsByRestaurant.get(id);
+        if (foodIds == null) return;
+        for (String foodId : foodIds) {
+            Food food = catalog.menus().get("restaurants/" + id + "/menu/" + foodId);
+            if (food != null) upsert(menuEntry(id, after, food));
+        }
+    }
+
+    private synchronized void menuItemChanged(String path, Food after) {
+        String restaurantId = CatalogCache.menuRestaurantId(path);
+        String foodId = path.substring(path.lastIndexOf('/') + 1);
+        if (after == null) {
+            remove(menuKey(restaurantId, foodId));
+            menuItemsByRestaurant.computeIfPresent(restaurantId, (id, ids) -> {
+                ids.remove(foodId);
+                return ids.isEmpty() ? null : ids;
+            });
+            return;
+        }
+        upsert(menuEntry(restaurantId, catalog.restaurants().get(restaurantId), after));
+        menuItemsByRestaurant.computeIfAbsent(restaurantId, id -> new HashSet<>()).add(foodId);
+    }
+
+    private static SearchIndex.Entry menuEntry(String restaurantId, Restaurant restaurant, Food food) {
+        return new SearchIndex.Entry(menuKey(restaurantId, food.getId()), food.getId(), food.getName(),
+                food.getCategory(), food.getPrice(), food.getImageUrl(), restaurantId,
+                restaurant == null ? null : restaurant.getName(),
+                restaurant == null ? null : restaurant.getLocation());
+    }
+
+    private static String foodKey(String id) {
+        return "food:" + id;
+    }
+
+    private static String menuKey(String restaurantId, String foodId) {
+        return "menu:" + restaurantId + ":" + foodId;
+    }
+}
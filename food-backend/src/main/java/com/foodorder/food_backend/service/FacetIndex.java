@@ -0,0 +1,258 @@
+package com.foodorder.food_backend.service;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Category and price-band facets over catalog entries. Every entry gets a
+ * small integer id, and each facet value keeps a bitset of the ids that have
+ * it. A filter is answered by OR-ing the selected values of each facet and
+ * AND-ing the facets together; counts are cardinalities of the same
+ * intersections, so neither touches the entries themselves.
+ * <p>
+ * Pages are in id order, so ids are never handed to another key: a new key
+ * gets an id past every existing one, and a removed key keeps its id for when
+ * it comes back, as a restaurant's menu does on every edit. A cursor thus
+ * never skips an entry added after it was issued nor repeats one. Once
+ * retired ids outnumber the live ones the index renumbers, keeping the order,
+ * and cursors from before the last few renumberings are mapped onto the new
+ * ids.
+ */
+public class FacetIndex {
+
+    private static final int MIN_COMPACTION_RETIRED = 4096;
+    private static final int KEPT_RENUMBERINGS = 4;
+
+    private final double[] bandBounds;
+    private final String[] bandLabels;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /** Ids of live and retired keys; a retired key's entry is null. */
+    private final Map<String, Integer> byKey = new HashMap<>();
+    private final BitSet live = new BitSet();
+    private final Map<String, BitSet> categories = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final BitSet[] bands;
+    private SearchIndex.Entry[] entries = new SearchIndex.Entry[1024];
+    private int nextId;
+    private int retired;
+    private int generation;
+    /**
+     * For each recent renumbering, oldest first, the ids before it of the
+     * entries that survived it, ascending; each one's new id is its index.
+     */
+    private final List<int[]> renumberings = new ArrayList<>();
+
+    /** {@code bandBounds} are ascending upper bounds; prices at or above the last fall in an open band. */
+    public FacetIndex(double[] bandBounds) {
+        this.bandBounds = bandBounds.clone();
+        Arrays.sort(this.bandBounds);
+        this.bandLabels = new String[this.bandBounds.length + 1];
+        this.bands = new BitSet[bandLabels.length];
+        double lower = 0;
+        for (int i = 0; i < bandLabels.length; i++) {
+            bandLabels[i] = i < this.bandBounds.length
+                    ? label(lower) + "-" + label(this.bandBounds[i])
+                    : label(lower) + "+";
+            if (i < this.bandBounds.length) lower = this.bandBounds[i];
+            bands[i] = new BitSet();
+        }
+    }
+
+    public void upsert(SearchIndex.Entry entry) {
+        lock.writeLock().lock();
+        try {
+            Integer id = byKey.get(entry.key());
+            if (id == null) {
+                id = nextId++;
+                if (id == entries.length) entries = Arrays.copyOf(entries, entries.length * 2);
+                byKey.put(entry.key(), id);
+                live.set(id);
+            } else if (entries[id] == null) {
+                retired--;
+                live.set(id);
+            } else {
+                clearFacets(id, entries[id]);
+            }
+            index(id, entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String key) {
+        lock.writeLock().lock();
+        try {
+            Integer id = byKey.get(key);
+            if (id == null || entries[id] == null) return;
+            clearFacets(id, entries[id]);
+            entries[id] = null;
+            live.clear(id);
+            retired++;
+            maybeCompact();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return byKey.size() - retired;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<String> bandLabels() {
+        return List.of(bandLabels);
+    }
+
+    /**
+     * Entries in any of {@code categories} (all when empty) and any of the price
+     * bands {@code priceBands} (all when empty), in id order, starting at
+     * {@code cursor} (from the start when null). Counts for each facet value are
+     * computed with the other facet's selection applied, so they say how many
+     * results picking that value would add. Throws
+     * {@link IllegalArgumentException} for a cursor this index did not hand out
+     * or one too many renumberings old.
+     */
+    public Result filter(Collection<String> categories, Collection<String> priceBands, String cursor, int limit) {
+        lock.readLock().lock();
+        try {
+            int from = resolve(cursor);
+            BitSet byCategory = categories.isEmpty() ? live : union(categories);
+            BitSet byBand = priceBands.isEmpty() ? live : unionBands(priceBands);
+            BitSet matching = (BitSet) byCategory.clone();
+            matching.and(byBand);
+
+            List<SearchIndex.Entry> page = new ArrayList<>(Math.min(limit, 100));
+            int id = matching.nextSetBit(from);
+            while (id >= 0 && page.size() < limit) {
+                page.add(entries[id]);
+                id = matching.nextSetBit(id + 1);
+            }
+
+            Map<String, Integer> categoryCounts = new LinkedHashMap<>();
+            for (Map.Entry<String, BitSet> category : this.categories.entrySet()) {
+                categoryCounts.put(category.getKey(), intersectionSize(category.getValue(), byBand));
+            }
+            Map<String, Integer> bandCounts = new LinkedHashMap<>();
+            for (int band = 0; band < bands.length; band++) {
+                bandCounts.put(bandLabels[band], intersectionSize(bands[band], byCategory));
+            }
+            String next = id < 0 ? null : generation + "." + id;
+            return new Result(page, next, matching.cardinality(), categoryCounts, bandCounts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** One page of a filter; {@code next} is the cursor to continue from, or null after the last page. */
+    public record Result(List<SearchIndex.Entry> items, String next, int total,
+                         Map<String, Integer> categoryCounts, Map<String, Integer> bandCounts) {}
+
+    /** The id a {@code <generation>.<id>} cursor continues from in the current numbering. */
+    private int resolve(String cursor) {
+        if (cursor == null || cursor.isBlank()) return 0;
+        int dot = cursor.indexOf('.');
+        if (dot > 0) {
+            try {
+                int cursorGeneration = Integer.parseInt(cursor.substring(0, dot));
+                int id = Integer.parseInt(cursor.substring(dot + 1));
+                int behind = generation - cursorGeneration;
+                if (id >= 0 && behind >= 0 && behind <= renumberings.size()) {
+                    // Follow each renumbering since to the first survivor at or past the id.
+                    for (int i = renumberings.size() - behind; i < renumberings.size(); i++) {
+                        int at = Arrays.binarySearch(renumberings.get(i), id);
+                        id = at >= 0 ? at : -at - 1;
+                    }
+                    return id;
+                }
+            } catch (NumberFormatException e) {
+                // reported below
+            }
+        }
+        throw new IllegalArgumentException("Invalid filter cursor");
+    }
+
+    private void maybeCompact() {
+        int liveCount = byKey.size() - retired;
+        if (retired < MIN_COMPACTION_RETIRED || retired < liveCount) return;
+        int[] kept = new int[liveCount];
+        SearchIndex.Entry[] compacted = new SearchIndex.Entry[Math.max(1024, liveCount * 2)];
+        int n = 0;
+        for (int id = live.nextSetBit(0); id >= 0; id = live.nextSetBit(id + 1)) {
+            kept[n] = id;
+            compacted[n++] = entries[id];
+        }
+        byKey.clear();
+        live.clear();
+        categories.clear();
+        for (BitSet band : bands) band.clear();
+        entries = compacted;
+        for (int id = 0; id < n; id++) {
+            byKey.put(compacted[id].key(), id);
+            live.set(id);
+            index(id, compacted[id]);
+        }
+        nextId = n;
+        retired = 0;
+        renumberings.add(kept);
+        if (renumberings.size() > KEPT_RENUMBERINGS) renumberings.remove(0);
+        generation++;
+    }
+
+    private BitSet union(Collection<String> selected) {
+        BitSet union = new BitSet();
+        for (String category : selected) {
+            BitSet ids = categories.get(category);
+            if (ids != null) union.or(ids);
+        }
+        return union;
+    }
+
+    private BitSet unionBands(Collection<String> selected) {
+        BitSet union = new BitSet();
+        for (int band = 0; band < bands.length; band++) {
+            if (selected.contains(bandLabels[band])) union.or(bands[band]);
+        }
+        return union;
+    }
+
+    private static int intersectionSize(BitSet a, BitSet b) {
+        BitSet both = (BitSet) a.clone();
+        both.and(b);
+        return both.cardinality();
+    }
+
+    private void index(int id, SearchIndex.Entry entry) {
+        entries[id] = entry;
+        categories.computeIfAbsent(categoryOf(entry), c -> new BitSet()).set(id);
+        bands[band(entry.price())].set(id);
+    }
+
+    private void clearFacets(int id, SearchIndex.Entry entry) {
+        String category = categoryOf(entry);
+        BitSet ids = categories.get(category);
+        if (ids != null) {
+            ids.clear(id);
+            if (ids.isEmpty()) categories.remove(category);
+        }
+        bands[band(entry.price())].clear(id);
+    }
+
+    private int band(double price) {
+        int band = 0;
+        while (band < bandBounds.length && price >= bandBounds[band]) band++;
+        return band;
+    }
+
+    private static String categoryOf(SearchIndex.Entry entry) {
+        String category = entry.category();
+        return category == null || category.isBlank() ? "Other" : category.trim();
+    }
+
+    private static String label(double bound) {
+        return bound == Math.rint(bound) ? String.valueOf((long) bound) : String.valueOf(bound);
+    }
+}
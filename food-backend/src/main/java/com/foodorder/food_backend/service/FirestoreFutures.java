@@ -0,0 +1,103 @@
+package com.foodorder.food_backend.service;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.cloud.firestore.FirestoreException;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.grpc.Status;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/** Helpers for Firestore's {@link ApiFuture}s. */
+public final class FirestoreFutures {
+
+    private static final String TIMER = "firestore.requests";
+
+    /** Success timers by collection and operation, so the hot path does not rebuild meter ids. */
+    private static final Map<String, Timer> SUCCESS_TIMERS = new ConcurrentHashMap<>();
+
+    private FirestoreFutures() {}
+
+    /** Adapts an {@link ApiFuture} without blocking a thread on it. */
+    public static <T> CompletableFuture<T> toCompletable(ApiFuture<T> future) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        ApiFutures.addCallback(future, new ApiFutureCallback<T>() {
+            @Override
+            public void onFailure(Throwable t) {
+                result.completeExceptionally(t);
+            }
+
+            @Override
+            public void onSuccess(T value) {
+                result.complete(value);
+            }
+        }, MoreExecutors.directExecutor());
+        return result;
+    }
+
+    /**
+     * Like {@link #toCompletable(ApiFuture)}, and records the call's latency in
+     * the {@code firestore.requests} timer tagged by collection, operation and
+     * outcome. Timers go to Micrometer's global registry, which Spring Boot
+     * wires to its own, so call sites need no injected registry.
+     */
+    public static <T> CompletableFuture<T> toCompletable(ApiFuture<T> future, String collection, String operation) {
+        long start = System.nanoTime();
+        CompletableFuture<T> result = toCompletable(future);
+        result.whenComplete((value, error) -> {
+            long elapsed = System.nanoTime() - start;
+            Timer timer = error == null
+                    ? SUCCESS_TIMERS.computeIfAbsent(collection + '/' + operation,
+                        key -> timer(collection, operation, "success", "none"))
+                    : timer(collection, operation, "error", unwrap(error).getClass().getSimpleName());
+            timer.record(elapsed, TimeUnit.NANOSECONDS);
+        });
+        return result;
+    }
+
+    private static Timer timer(String collection, String operation, String outcome, String exception) {
+        return Timer.builder(TIMER)
+                .description("Firestore calls by collection and operation")
+                .tag("collection", collection)
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .tag("exception", exception)
+                .publishPercentileHistogram()
+                .register(Metrics.globalRegistry);
+    }
+
+    /** True if {@code error}, possibly wrapped, is a Firestore error with the given gRPC status. */
+    public static boolean hasStatus(Throwable error, Status.Code code) {
+        Throwable t = unwrap(error);
+        return t instanceof FirestoreException fe && fe.getStatus() != null && fe.getStatus().getCode() == code;
+    }
+
+    /** Strips the {@link ExecutionException}/{@link CompletionException} wrappers around a failure. */
+    public static Throwable unwrap(Throwable error) {
+        Throwable t = error;
+        while ((t instanceof ExecutionException || t instanceof CompletionException) && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t;
+    }
+
+    /**
+     * The {@code "message"} of an error response for a failed stage: the same
+     * text the blocking code reported when it caught the exception thrown by
+     * {@code get()}.
+     */
+    public static String errorMessage(Throwable error) {
+        Throwable cause = unwrap(error);
+        return cause instanceof RuntimeException && !(cause instanceof FirestoreException)
+                ? cause.getMessage()
+                : cause.toString();
+    }
+}
@@ -1,38 +1,86 @@
 package com.foodorder.food_backend.service;
 
 import com.foodorder.food_backend.model.Food;
-import com.google.api.core.ApiFuture;
 import com.google.cloud.firestore.*;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class FoodService {
     private final Firestore firestore;
+    private final CatalogCache catalog;
+    private final CatalogSearch search;
+    private final CatalogResponses responses;
 
-    public FoodService(Firestore firestore) {
+    public FoodService(Firestore firestore, CatalogCache catalog, CatalogSearch search, CatalogResponses responses) {
         this.firestore = firestore;
+        this.catalog = catalog;
+        this.search = search;
+        this.responses = responses;
     }
 
-    public String addFood(Food food) throws ExecutionException, InterruptedException {
+    public CompletableFuture<String> addFood(Food food) {
         DocumentReference docRef = firestore.collection("foods").document();
         food.setId(docRef.getId());
-        ApiFuture<WriteResult> result = docRef.set(food);
-        return "Food added at: " + result.get().getUpdateTime();
+        return FirestoreFutures.toCompletable(docRef.set(food), "foods", "set").thenApply(result -> {
+            catalog.foods().put(food.getId(), food);
+            return "Food added at: " + result.getUpdateTime();
+        });
     }
 
-    public List<Food> getAllFoods() throws ExecutionException, InterruptedException {
-        List<Food> foods = new ArrayList<>();
-        ApiFuture<QuerySnapshot> query = firestore.collection("foods").get();
-        QuerySnapshot snapshot = query.get();
+    /** All foods as a JSON body that is only re-rendered when the collection changes. */
+    public CompletableFuture<CatalogResponses.Rendered> getAllFoods() {
+        return responses.foods();
+    }
 
-        for (DocumentSnapshot doc : snapshot.getDocuments()) {
-            Food food = doc.toObject(Food.class);
-            foods.add(food);
+    /** Foods and menu items matching every word of the query, best match first. */
+    public List<Map<String, Object>> search(String query, int limit) {
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (SearchIndex.Hit hit : search.search(query, limit)) {
+            Map<String, Object> result = toResult(hit.entry());
+            result.put("score", hit.score());
+            results.add(result);
         }
-        return foods;
+        return results;
+    }
+
+    /**
+     * Foods and menu items in any of the given categories and price bands (an
+     * empty selection matches everything), a page at a time, with the number
+     * of items under each category and price band. Throws
+     * {@link IllegalArgumentException} for a cursor that is not valid.
+     */
+    public Map<String, Object> filter(List<String> categories, List<String> priceBands, String cursor, int limit) {
+        FacetIndex.Result filtered = search.filter(categories, priceBands, cursor, limit);
+
+        List<Map<String, Object>> items = new ArrayList<>(filtered.items().size());
+        for (SearchIndex.Entry entry : filtered.items()) items.add(toResult(entry));
+
+        Map<String, Object> facets = new LinkedHashMap<>();
+        facets.put("category", filtered.categoryCounts());
+        facets.put("price", filtered.bandCounts());
+
+        Map<String, Object> page = new LinkedHashMap<>();
+        page.put("items", items);
+        page.put("total", filtered.total());
+        page.put("nextCursor", filtered.next());
+        page.put("facets", facets);
+        return page;
+    }
+
+    private static Map<String, Object> toResult(SearchIndex.Entry entry) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("id", entry.foodId());
+        result.put("name", entry.name());
+        result.put("category", entry.category());
+        result.put("price", entry.price());
+        result.put("imageUrl", entry.imageUrl());
+        result.put("restaurantId", entry.restaurantId());
+        result.put("restaurant", entry.restaurantName());
+        result.put("location", entry.location());
+        return result;
     }
 }
 
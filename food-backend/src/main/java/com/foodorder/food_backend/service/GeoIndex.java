@@ -0,0 +1,174 @@
+package com.foodorder.food_backend.service;
+
+import com.foodorder.food_backend.model.Restaurant;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Restaurant coordinates bucketed into fixed-size latitude/longitude cells,
+ * the same idea as geohash cells of one precision. A nearest-k query visits
+ * rings of cells around the query point, closest first, and stops as soon
+ * as no unvisited cell can hold anything nearer than the k-th hit, so it
+ * only looks at restaurants in the neighbourhood. Kept current from the
+ * {@link CatalogCache} restaurants view.
+ */
+@Component
+public class GeoIndex {
+
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180;
+
+    /** A restaurant and its great-circle distance from the query point. */
+    public record Nearby(String restaurantId, double distanceKm) {}
+
+    private record Point(String id, double lat, double lng) {}
+
+    private final CatalogCache catalog;
+    private final double cellDegrees;
+    private final int lngCells;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, List<Point>> cells = new HashMap<>();
+    private final Map<String, Point> byId = new HashMap<>();
+
+    public GeoIndex(CatalogCache catalog, @Value("${restaurants.geo.cell-degrees:0.05}") double cellDegrees) {
+        this.catalog = catalog;
+        this.cellDegrees = cellDegrees;
+        this.lngCells = (int) Math.ceil(360 / cellDegrees);
+    }
+
+    @PostConstruct
+    public void start() {
+        catalog.restaurants().onChange((id, before, after) -> {
+            if (after == null) remove(id);
+            else put(id, after.getLatitude(), after.getLongitude());
+        });
+    }
+
+    /** Indexes a location; a missing or out-of-range coordinate removes the restaurant instead. */
+    public void put(String id, Double lat, Double lng) {
+        if (lat == null || lng == null || Math.abs(lat) > 90 || Math.abs(lng) > 180) {
+            remove(id);
+            return;
+        }
+        Point point = new Point(id, lat, lng);
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            byId.put(id, point);
+            cells.computeIfAbsent(cellKey(latCell(lat), lngCell(lng)), key -> new ArrayList<>(4)).add(point);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return byId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Up to {@code k} restaurants within {@code radiusKm} of the point, nearest first. */
+    public List<Nearby> nearest(double lat, double lng, double radiusKm, int k) {
+        if (k <= 0) return List.of();
+        // Width of a cell at its narrowest within the radius, i.e. furthest towards a pole.
+        double poleward = Math.min(90, Math.abs(lat) + radiusKm / KM_PER_DEGREE + cellDegrees);
+        double cellKm = cellDegrees * KM_PER_DEGREE * Math.max(0.01, Math.cos(Math.toRadians(poleward)));
+        int maxRing = (int) Math.min(lngCells / 2, Math.ceil(radiusKm / cellKm) + 1);
+
+        PriorityQueue<Nearby> best = new PriorityQueue<>(k + 1,
+                Comparator.comparingDouble(Nearby::distanceKm).reversed());
+        int centreLat = latCell(lat);
+        int centreLng = lngCell(lng);
+
+        lock.readLock().lock();
+        try {
+            for (int ring = 0; ring <= maxRing; ring++) {
+                // Anything in this ring or beyond is at least (ring - 1) cells away.
+                double ringMinKm = Math.max(0, ring - 1) * cellKm;
+                if (ringMinKm > radiusKm) break;
+                if (best.size() == k && ringMinKm > best.peek().distanceKm()) break;
+
+                for (int dLat = -ring; dLat <= ring; dLat++) {
+                    boolean edgeRow = Math.abs(dLat) == ring;
+                    for (int dLng = -ring; dLng <= ring; dLng += edgeRow ? 1 : 2 * ring) {
+                        List<Point> cell = cells.get(cellKey(centreLat + dLat, Math.floorMod(centreLng + dLng, lngCells)));
+                        if (cell == null) continue;
+                        for (Point point : cell) {
+                            double distance = distanceKm(lat, lng, point.lat(), point.lng());
+                            if (distance > radiusKm) continue;
+                            if (best.size() == k && distance >= best.peek().distanceKm()) continue;
+                            best.add(new Nearby(point.id(), distance));
+                            if (best.size() > k) best.poll();
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Nearby> nearest = new ArrayList<>(best);
+        nearest.sort(Comparator.comparingDouble(Nearby::distanceKm));
+        return nearest;
+    }
+
+    private void removeLocked(String id) {
+        Point previous = byId.remove(id);
+        if (previous == null) return;
+        long key = cellKey(latCell(previous.lat()), lngCell(previous.lng()));
+        List<Point> cell = cells.get(key);
+        cell.remove(previous);
+        if (cell.isEmpty()) cells.remove(key);
+    }
+
+    private int latCell(double lat) {
+        return (int) Math.floor((lat + 90) / cellDegrees);
+    }
+
+    private int lngCell(double lng) {
+        return Math.floorMod((int) Math.floor((lng + 180) / cellDegrees), lngCells);
+    }
+
+    private static long cellKey(int latCell, int lngCell) {
+        return ((long) latCell << 32) | (lngCell & 0xffffffffL);
+    }
+
+    /** Haversine distance. */
+    static double distanceKm(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    public Map<String, Object> stats() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("restaurants", byId.size());
+            stats.put("cells", cells.size());
+            stats.put("cellDegrees", cellDegrees);
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
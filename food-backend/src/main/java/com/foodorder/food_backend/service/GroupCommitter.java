@@ -0,0 +1,174 @@
+package com.foodorder.food_backend.service;
+
+import com.foodorder.food_backend.config.BackgroundThreads;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+
+/**
+ * Collects concurrently submitted items and commits them in groups: a group
+ * closes when it reaches {@code maxBatch} items or {@code windowMs} after its
+ * first item arrived, whichever comes first. With a weigher, a group also
+ * closes before the next item would take its total weight past
+ * {@code maxWeight}; that item opens the next group. The drainer does not wait for a
+ * commit before starting the next group. If a group commit fails, each item is
+ * retried on its own so one bad item only fails its own caller.
+ */
+public class GroupCommitter<T, R> {
+
+    /** Commits a group; completes with one result per item, in order. */
+    public interface Sink<T, R> {
+        CompletableFuture<List<R>> commit(List<T> group);
+    }
+
+    private final Sink<T, R> sink;
+    private final int maxBatch;
+    private final int maxWeight;
+    private final ToIntFunction<T> weigher;
+    private final long windowNanos;
+    private final BlockingQueue<Pending<T, R>> queue = new LinkedBlockingQueue<>();
+    private final Thread drainer;
+    private volatile boolean running = true;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder groups = new LongAdder();
+    private final LongAdder groupFailures = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public GroupCommitter(String name, BackgroundThreads threads, int maxBatch, long windowMs, Sink<T, R> sink) {
+        this(name, threads, maxBatch, Integer.MAX_VALUE, item -> 1, windowMs, sink);
+    }
+
+    /** Items weigh {@code weigher(item)}; an item heavier than {@code maxWeight} is committed on its own. */
+    public GroupCommitter(String name, BackgroundThreads threads, int maxBatch, int maxWeight, ToIntFunction<T> weigher,
+                          long windowMs, Sink<T, R> sink) {
+        this.sink = sink;
+        this.maxBatch = Math.max(1, maxBatch);
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        this.drainer = threads.start(name, this::drain);
+    }
+
+    public CompletableFuture<R> submit(T item) {
+        if (!running) return CompletableFuture.failedFuture(new RejectedExecutionException("Committer stopped"));
+        Pending<T, R> pending = new Pending<>(item, weigher.applyAsInt(item), new CompletableFuture<>());
+        submitted.increment();
+        queue.add(pending);
+        return pending.result;
+    }
+
+    public void stop() {
+        running = false;
+        drainer.interrupt();
+    }
+
+    private void drain() {
+        // Taken off the queue but too heavy for the group it arrived in
+        Pending<T, R> carried = null;
+        while (running || carried != null || !queue.isEmpty()) {
+            List<Pending<T, R>> group = new ArrayList<>();
+            try {
+                Pending<T, R> first = carried != null ? carried : queue.poll(200, TimeUnit.MILLISECONDS);
+                carried = null;
+                if (first == null) continue;
+                group.add(first);
+                long weight = first.weight;
+
+                long closeAt = System.nanoTime() + windowNanos;
+                while (group.size() < maxBatch) {
+                    long remaining = closeAt - System.nanoTime();
+                    Pending<T, R> next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) break;
+                    if (weight + next.weight > maxWeight) {
+                        carried = next;
+                        break;
+                    }
+                    group.add(next);
+                    weight += next.weight;
+                }
+            } catch (InterruptedException e) {
+                // Shutting down: commit what we already took, then drain the rest without waiting.
+                queue.drainTo(group);
+                commitAll(group);
+                return;
+            }
+            commit(group);
+        }
+    }
+
+    /** Commits {@code pending} in as few groups as the item and weight bounds allow. */
+    private void commitAll(List<Pending<T, R>> pending) {
+        List<Pending<T, R>> group = new ArrayList<>();
+        long weight = 0;
+        for (Pending<T, R> next : pending) {
+            if (!group.isEmpty() && (group.size() == maxBatch || weight + next.weight > maxWeight)) {
+                commit(group);
+                group = new ArrayList<>();
+                weight = 0;
+            }
+            group.add(next);
+            weight += next.weight;
+        }
+        if (!group.isEmpty()) commit(group);
+    }
+
+    private void commit(List<Pending<T, R>> group) {
+        groups.increment();
+        List<T> items = new ArrayList<>(group.size());
+        for (Pending<T, R> pending : group) items.add(pending.item);
+
+        commitGroup(items).whenComplete((results, error) -> {
+            if (error == null) {
+                for (int i = 0; i < group.size(); i++) group.get(i).result.complete(results.get(i));
+                return;
+            }
+            if (group.size() == 1) {
+                failed.increment();
+                group.get(0).result.completeExceptionally(FirestoreFutures.unwrap(error));
+                return;
+            }
+            groupFailures.increment();
+            for (Pending<T, R> pending : group) {
+                commitGroup(List.of(pending.item)).whenComplete((single, singleError) -> {
+                    if (singleError == null) {
+                        pending.result.complete(single.get(0));
+                    } else {
+                        failed.increment();
+                        pending.result.completeExceptionally(FirestoreFutures.unwrap(singleError));
+                    }
+                });
+            }
+        });
+    }
+
+    private CompletableFuture<List<R>> commitGroup(List<T> items) {
+        try {
+            return sink.commit(items);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long count = groups.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queued", queue.size());
+        stats.put("submitted", submitted.sum());
+        stats.put("groups", count);
+        stats.put("avgGroupSize", count == 0 ? 0 : submitted.sum() / (double) count);
+        stats.put("groupFailures", groupFailures.sum());
+        stats.put("failed", failed.sum());
+        stats.put("maxBatch", maxBatch);
+        if (maxWeight != Integer.MAX_VALUE) stats.put("maxWeight", maxWeight);
+        stats.put("windowMs", TimeUnit.NANOSECONDS.toMillis(windowNanos));
+        return stats;
+    }
+
+    private record Pending<T, R>(T item, int weight, CompletableFuture<R> result) {}
+}
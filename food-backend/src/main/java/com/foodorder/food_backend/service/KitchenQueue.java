@@ -0,0 +1,357 @@
+package com.foodorder.food_backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.foodorder.food_backend.config.BackgroundThreads;
+import com.foodorder.food_backend.model.CartItem;
+import com.foodorder.food_backend.model.KitchenOrder;
+import com.foodorder.food_backend.model.Restaurant;
+import com.google.cloud.firestore.*;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * The active orders of each restaurant, for kitchen screens. A placed order is
+ * fanned out into {@code restaurants/{restaurantId}/kitchenOrders/{orderId}},
+ * one ticket per restaurant with only that restaurant's items, in the same
+ * batch that writes the order. Status transitions follow the order through
+ * {@link OrderStatusPipeline}, and delivered or cancelled orders leave the
+ * queue. A collection-group listener keeps every queue in memory, so polling
+ * tablets cost no Firestore reads and an unchanged queue is served from the
+ * body rendered for the previous poll.
+ */
+@Component
+public class KitchenQueue {
+
+    private static final long RELISTEN_DELAY_MS = 5000;
+
+    /** Statuses of a queued order; it leaves the queue once delivered or cancelled. */
+    public static final List<String> ACTIVE_STATUSES = Stream.concat(Stream.of("Placed"),
+            Arrays.stream(OrderLifecycleEngine.STEPS, 0, OrderLifecycleEngine.STEPS.length - 1)).toList();
+
+    /** One restaurant's part of a new order. */
+    public record Ticket(String restaurantId, String restaurantName, List<CartItem> items) {}
+
+    private final Firestore db;
+    private final CatalogCache catalog;
+    private final OrderStatusPipeline pipeline;
+    private final BackgroundThreads threads;
+    private final ObjectMapper mapper;
+    private ThreadPoolTaskScheduler scheduler;
+    private ListenerRegistration registration;
+
+    /** Tickets by restaurant and order id; guarded by {@code this}. */
+    private final Map<String, Map<String, KitchenOrder>> tickets = new HashMap<>();
+    private boolean resync = true;
+    private final Map<String, Queue> queues = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> restaurantsByOrder = new ConcurrentHashMap<>();
+    private volatile RestaurantNames names = new RestaurantNames(null, Map.of());
+    private volatile boolean loaded;
+    private volatile boolean listening;
+
+    private final LongAdder renders = new LongAdder();
+    private final LongAdder reuses = new LongAdder();
+    private final LongAdder unrouted = new LongAdder();
+
+    public KitchenQueue(Firestore db, CatalogCache catalog, OrderStatusPipeline pipeline, BackgroundThreads threads,
+                        ObjectMapper mapper) {
+        this.db = db;
+        this.catalog = catalog;
+        this.pipeline = pipeline;
+        this.threads = threads;
+        this.mapper = mapper;
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler = threads.scheduler("kitchen-");
+        listen();
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (registration != null) registration.remove();
+        listening = false;
+        scheduler.shutdown();
+    }
+
+    /** The canonical spelling of an active status, or null if {@code status} is not one. */
+    public static String activeStatus(String status) {
+        for (String active : ACTIVE_STATUSES) {
+            if (active.equalsIgnoreCase(status)) return active;
+        }
+        return null;
+    }
+
+    /**
+     * Splits an order's items by restaurant. Items whose restaurant is not in
+     * the catalog get no ticket and are counted as unrouted.
+     */
+    public CompletableFuture<List<Ticket>> route(List<CartItem> items) {
+        Map<String, List<CartItem>> byName = new LinkedHashMap<>();
+        for (CartItem item : items) {
+            String name = item.getRestaurant() == null ? "" : item.getRestaurant();
+            byName.computeIfAbsent(name, n -> new ArrayList<>()).add(item);
+        }
+
+        List<CompletableFuture<Ticket>> resolved = new ArrayList<>(byName.size());
+        for (Map.Entry<String, List<CartItem>> group : byName.entrySet()) {
+            resolved.add(restaurantId(group.getKey()).thenApply(id -> {
+                if (id != null) return new Ticket(id, group.getKey(), group.getValue());
+                unrouted.increment();
+                return null;
+            }));
+        }
+        return CompletableFuture.allOf(resolved.toArray(CompletableFuture[]::new)).thenApply(done -> {
+            List<Ticket> routed = new ArrayList<>(resolved.size());
+            for (CompletableFuture<Ticket> ticket : resolved) {
+                if (ticket.join() != null) routed.add(ticket.join());
+            }
+            return routed;
+        });
+    }
+
+    /** Adds the tickets of a new order to the batch that writes the order. */
+    public void recordPlacement(WriteBatch batch, List<Ticket> routed, String userId, String orderId, String address,
+                                long placedAt) {
+        for (Ticket ticket : routed) {
+            double subtotal = 0;
+            for (CartItem item : ticket.items()) subtotal += item.getPrice() * item.getQuantity();
+
+            Map<String, Object> doc = new HashMap<>();
+            doc.put("orderId", orderId);
+            doc.put("userId", userId);
+            doc.put("restaurantId", ticket.restaurantId());
+            doc.put("restaurantName", ticket.restaurantName());
+            doc.put("items", OrderService.serializeItems(ticket.items()));
+            doc.put("address", address);
+            doc.put("totalAmount", subtotal);
+            doc.put("placedAt", placedAt);
+            doc.put("status", "Placed");
+            batch.set(ticketRef(ticket.restaurantId(), orderId), doc);
+        }
+    }
+
+    /** Remembers where a just-placed order's tickets are, ahead of the listener echoing them back. */
+    public void track(String orderId, List<Ticket> routed) {
+        for (Ticket ticket : routed) {
+            restaurantsByOrder.computeIfAbsent(orderId, id -> ConcurrentHashMap.newKeySet()).add(ticket.restaurantId());
+        }
+    }
+
+    /** Moves the order's tickets to {@code status}; a delivered order leaves its queues. */
+    public void statusChanged(String userId, String orderId, String status) {
+        boolean delivered = "Delivered".equalsIgnoreCase(status);
+        restaurantsOf(userId, orderId).thenAccept(restaurantIds -> {
+            for (String restaurantId : restaurantIds) {
+                DocumentReference ref = ticketRef(restaurantId, orderId);
+                if (delivered) pipeline.enqueueDelete(ref);
+                else pipeline.enqueueUpdate(ref, Map.of("status", status));
+            }
+        }).exceptionally(error -> {
+            error.printStackTrace();
+            return null;
+        });
+    }
+
+    /** Adds the deletes of a cancelled order's tickets to the batch that cancels it. */
+    public void recordCancellation(WriteBatch batch, String orderId, Map<String, Object> order) {
+        Set<String> restaurantIds = new HashSet<>(restaurantIds(order));
+        Set<String> known = restaurantsByOrder.get(orderId);
+        if (known != null) restaurantIds.addAll(known);
+        for (String restaurantId : restaurantIds) batch.delete(ticketRef(restaurantId, orderId));
+    }
+
+    /** The restaurants an order was fanned out to, as stored on the order document. */
+    @SuppressWarnings("unchecked")
+    static List<String> restaurantIds(Map<String, Object> order) {
+        Object ids = order == null ? null : order.get("restaurantIds");
+        return ids instanceof List ? (List<String>) ids : List.of();
+    }
+
+    /** Every ticket is in memory once loaded; until then the order says where they are. */
+    private CompletableFuture<Collection<String>> restaurantsOf(String userId, String orderId) {
+        Set<String> known = restaurantsByOrder.get(orderId);
+        if (known != null) return CompletableFuture.completedFuture(List.copyOf(known));
+        if (loaded) return CompletableFuture.completedFuture(List.of());
+
+        DocumentReference order = db.collection("users").document(userId).collection("orders").document(orderId);
+        return FirestoreFutures.toCompletable(order.get(), "orders", "get")
+                .thenApply(snapshot -> snapshot.exists() ? restaurantIds(snapshot.getData()) : List.of());
+    }
+
+    /**
+     * The restaurant's active orders, oldest first, optionally only those in
+     * {@code status}. The body is rendered once per change to the queue.
+     */
+    public CompletableFuture<CatalogResponses.Rendered> orders(String restaurantId, String status) {
+        if (!loaded) {
+            Query query = db.collection("restaurants").document(restaurantId).collection("kitchenOrders")
+                    .orderBy("placedAt");
+            return FirestoreFutures.toCompletable(query.get(), "kitchenOrders", "query").thenApply(snapshot -> {
+                List<KitchenOrder> orders = new ArrayList<>();
+                for (QueryDocumentSnapshot doc : snapshot.getDocuments()) orders.add(doc.toObject(KitchenOrder.class));
+                renders.increment();
+                return CatalogResponses.Rendered.of(mapper, withStatus(orders, status));
+            });
+        }
+
+        Queue queue = queues.getOrDefault(restaurantId, Queue.EMPTY);
+        String key = status == null ? "" : status;
+        CatalogResponses.Rendered rendered = queue.rendered.get(key);
+        if (rendered != null) {
+            reuses.increment();
+            return CompletableFuture.completedFuture(rendered);
+        }
+        renders.increment();
+        rendered = CatalogResponses.Rendered.of(mapper, withStatus(queue.orders, status));
+        queue.rendered.put(key, rendered);
+        return CompletableFuture.completedFuture(rendered);
+    }
+
+    private static List<KitchenOrder> withStatus(List<KitchenOrder> orders, String status) {
+        if (status == null) return orders;
+        return orders.stream().filter(order -> status.equalsIgnoreCase(order.getStatus())).toList();
+    }
+
+    private CompletableFuture<String> restaurantId(String name) {
+        if (name.isEmpty()) return CompletableFuture.completedFuture(null);
+        if (catalog.restaurants().isLoaded()) {
+            return CompletableFuture.completedFuture(restaurantIdsByName().get(name.toLowerCase(Locale.ROOT)));
+        }
+        Query query = db.collection("restaurants").whereEqualTo("name", name).limit(1);
+        return FirestoreFutures.toCompletable(query.get(), "restaurants", "query")
+                .thenApply(snapshot -> snapshot.isEmpty() ? null : snapshot.getDocuments().get(0).getId());
+    }
+
+    /** Restaurant ids by lower-cased name, rebuilt when the restaurants view publishes a new map. */
+    private Map<String, String> restaurantIdsByName() {
+        Map<String, Restaurant> entries = catalog.restaurants().entries();
+        RestaurantNames current = names;
+        if (current.source != entries) {
+            Map<String, String> ids = new HashMap<>();
+            entries.forEach((id, restaurant) -> {
+                if (restaurant.getName() != null) ids.putIfAbsent(restaurant.getName().toLowerCase(Locale.ROOT), id);
+            });
+            current = new RestaurantNames(entries, ids);
+            names = current;
+        }
+        return current.ids;
+    }
+
+    private record RestaurantNames(Map<String, Restaurant> source, Map<String, String> ids) {}
+
+    /** A restaurant's active orders, replaced on every change together with its renderings. */
+    private static final class Queue {
+        static final Queue EMPTY = new Queue(List.of());
+
+        final List<KitchenOrder> orders;
+        final Map<String, CatalogResponses.Rendered> rendered = new ConcurrentHashMap<>();
+
+        Queue(List<KitchenOrder> orders) {
+            this.orders = orders;
+        }
+    }
+
+    private synchronized void listen() {
+        resync = true;
+        registration = db.collectionGroup("kitchenOrders").addSnapshotListener((snap, error) -> {
+            if (error != null) {
+                onError(error);
+                return;
+            }
+            apply(snap);
+        });
+    }
+
+    /**
+     * The first snapshot of each listener replaces everything, since tickets
+     * removed while we were not listening are not reported as removals.
+     */
+    private synchronized void apply(QuerySnapshot snap) {
+        Set<String> changed = new HashSet<>();
+        if (resync) {
+            changed.addAll(tickets.keySet());
+            tickets.clear();
+            for (QueryDocumentSnapshot doc : snap.getDocuments()) put(doc, changed);
+            restaurantsByOrder.keySet().retainAll(activeOrderIds());
+            resync = false;
+        } else {
+            for (DocumentChange change : snap.getDocumentChanges()) {
+                QueryDocumentSnapshot doc = change.getDocument();
+                if (change.getType() == DocumentChange.Type.REMOVED) remove(doc, changed);
+                else put(doc, changed);
+            }
+        }
+        for (String restaurantId : changed) publish(restaurantId);
+        loaded = true;
+        listening = true;
+    }
+
+    private void put(QueryDocumentSnapshot doc, Set<String> changed) {
+        String restaurantId = doc.getReference().getParent().getParent().getId();
+        tickets.computeIfAbsent(restaurantId, id -> new HashMap<>()).put(doc.getId(), doc.toObject(KitchenOrder.class));
+        restaurantsByOrder.computeIfAbsent(doc.getId(), id -> ConcurrentHashMap.newKeySet()).add(restaurantId);
+        changed.add(restaurantId);
+    }
+
+    private void remove(QueryDocumentSnapshot doc, Set<String> changed) {
+        String restaurantId = doc.getReference().getParent().getParent().getId();
+        Map<String, KitchenOrder> queue = tickets.get(restaurantId);
+        if (queue != null) queue.remove(doc.getId());
+        restaurantsByOrder.computeIfPresent(doc.getId(), (id, restaurantIds) -> {
+            restaurantIds.remove(restaurantId);
+            return restaurantIds.isEmpty() ? null : restaurantIds;
+        });
+        changed.add(restaurantId);
+    }
+
+    private Set<String> activeOrderIds() {
+        Set<String> orderIds = new HashSet<>();
+        for (Map<String, KitchenOrder> queue : tickets.values()) orderIds.addAll(queue.keySet());
+        return orderIds;
+    }
+
+    private void publish(String restaurantId) {
+        Map<String, KitchenOrder> active = tickets.get(restaurantId);
+        if (active == null || active.isEmpty()) {
+            tickets.remove(restaurantId);
+            queues.remove(restaurantId);
+            return;
+        }
+        List<KitchenOrder> orders = new ArrayList<>(active.values());
+        orders.sort(Comparator.comparingLong(KitchenOrder::getPlacedAt).thenComparing(KitchenOrder::getOrderId));
+        queues.put(restaurantId, new Queue(List.copyOf(orders)));
+    }
+
+    private synchronized void onError(FirestoreException error) {
+        System.out.println("⚠️ Kitchen order listener failed: " + error.getMessage());
+        listening = false;
+        if (registration != null) registration.remove();
+        scheduler.schedule(this::listen, Instant.now().plusMillis(RELISTEN_DELAY_MS));
+    }
+
+    private DocumentReference ticketRef(String restaurantId, String orderId) {
+        return db.collection("restaurants").document(restaurantId).collection("kitchenOrders").document(orderId);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("restaurants", queues.size());
+        stats.put("activeOrders", restaurantsByOrder.size());
+        stats.put("loaded", loaded);
+        stats.put("listening", listening);
+        stats.put("renders", renders.sum());
+        stats.put("reuses", reuses.sum());
+        stats.put("unrouted", unrouted.sum());
+        return stats;
+    }
+}
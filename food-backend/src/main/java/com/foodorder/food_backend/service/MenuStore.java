@@ -0,0 +1,249 @@
+package com.foodorder.food_backend.service;
+
+import com.foodorder.food_backend.model.Food;
+import com.foodorder.food_backend.model.Restaurant;
+import com.google.cloud.firestore.*;
+import io.grpc.Status;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Storage for restaurant menus. In {@code subcollection} mode every item is its
+ * own document under {@code restaurants/{id}/menu}, so adding, replacing or
+ * removing one item is a single-document write and menus are read a page at a
+ * time. {@code embedded} mode keeps the legacy {@code Restaurant.menu} array
+ * and is the default until {@link #migrateEmbeddedMenus()} has been run.
+ */
+@Component
+public class MenuStore {
+
+    private static final int MAX_BATCH_WRITES = 500;
+
+    private final Firestore db;
+    private final CatalogCache catalog;
+    private final boolean subcollection;
+
+    public MenuStore(Firestore db, CatalogCache catalog,
+                     @Value("${menu.storage:embedded}") String storage) {
+        this.db = db;
+        this.catalog = catalog;
+        this.subcollection = "subcollection".equalsIgnoreCase(storage);
+    }
+
+    public boolean isSubcollection() {
+        return subcollection;
+    }
+
+    public CompletableFuture<Void> add(String restaurantId, Food food) {
+        food.setId(UUID.randomUUID().toString());
+        if (subcollection) {
+            return requireRestaurant(restaurantId)
+                    .thenCompose(ignored -> FirestoreFutures.toCompletable(menuRef(restaurantId).document(food.getId()).set(food), "menu", "set"))
+                    .thenApply(write -> null);
+        }
+
+        return FirestoreFutures.toCompletable(restaurantRef(restaurantId).update("menu", FieldValue.arrayUnion(food)),
+                        "restaurants", "update")
+                .handle((write, error) -> {
+                    if (error == null) return null;
+                    if (isNotFound(error)) throw new RuntimeException("Restaurant not found with ID: " + restaurantId);
+                    throw new CompletionException(FirestoreFutures.unwrap(error));
+                });
+    }
+
+    public CompletableFuture<Boolean> update(String restaurantId, String foodId, Food food) {
+        food.setId(foodId);
+        if (subcollection) {
+            Map<String, Object> fields = new HashMap<>();
+            fields.put("name", food.getName());
+            fields.put("price", food.getPrice());
+            fields.put("category", food.getCategory());
+            fields.put("imageUrl", food.getImageUrl());
+            return FirestoreFutures.toCompletable(menuRef(restaurantId).document(foodId).update(fields), "menu", "update")
+                    .handle((write, error) -> {
+                        if (error == null) return true;
+                        if (isNotFound(error)) return false;
+                        throw new CompletionException(FirestoreFutures.unwrap(error));
+                    });
+        }
+        return rewriteEmbedded(restaurantId, foodId, food);
+    }
+
+    public CompletableFuture<Boolean> remove(String restaurantId, String foodId) {
+        if (subcollection) {
+            DocumentReference ref = menuRef(restaurantId).document(foodId);
+            return FirestoreFutures.toCompletable(ref.delete(Precondition.exists(true)), "menu", "delete")
+                    .handle((write, error) -> {
+                        if (error == null) return true;
+                        if (isNotFound(error)) return false;
+                        throw new CompletionException(FirestoreFutures.unwrap(error));
+                    });
+        }
+        return rewriteEmbedded(restaurantId, foodId, null);
+    }
+
+    /** Returns the whole menu; prefer {@link #page} for large menus. */
+    public CompletableFuture<List<Food>> all(String restaurantId) {
+        if (subcollection) {
+            return FirestoreFutures.toCompletable(menuRef(restaurantId).get(), "menu", "query").thenApply(query -> {
+                List<Food> menu = new ArrayList<>();
+                for (QueryDocumentSnapshot doc : query.getDocuments()) {
+                    menu.add(doc.toObject(Food.class));
+                }
+                return menu;
+            });
+        }
+        return embeddedMenu(restaurantId);
+    }
+
+    /**
+     * Returns up to {@code pageSize} items after {@code cursor} together with the
+     * cursor for the next page, which is {@code null} on the last page. Throws
+     * {@link IllegalArgumentException} for a cursor this method did not hand out.
+     */
+    public CompletableFuture<Map<String, Object>> page(String restaurantId, int pageSize, String cursor) {
+        String after = cursor == null ? null : decode(cursor);
+        if (subcollection) {
+            Query query = menuRef(restaurantId).orderBy(FieldPath.documentId()).limit(pageSize);
+            if (after != null) query = query.startAfter(after);
+
+            return FirestoreFutures.toCompletable(query.get(), "menu", "query").thenApply(snapshot -> {
+                List<QueryDocumentSnapshot> docs = snapshot.getDocuments();
+                List<Food> items = new ArrayList<>(docs.size());
+                for (QueryDocumentSnapshot doc : docs) items.add(doc.toObject(Food.class));
+                String next = docs.size() == pageSize ? encode(docs.get(docs.size() - 1).getId()) : null;
+                return pageOf(items, next);
+            });
+        }
+
+        int offset = after == null ? 0 : parseOffset(after);
+        return embeddedMenu(restaurantId).thenApply(menu -> {
+            int from = Math.min(offset, menu.size());
+            int to = Math.min(menu.size(), from + pageSize);
+            List<Food> items = from < to ? new ArrayList<>(menu.subList(from, to)) : new ArrayList<>();
+            return pageOf(items, to < menu.size() ? encode(String.valueOf(to)) : null);
+        });
+    }
+
+    private static Map<String, Object> pageOf(List<Food> items, String next) {
+        Map<String, Object> page = new HashMap<>();
+        page.put("items", items);
+        page.put("nextCursor", next);
+        return page;
+    }
+
+    /**
+     * Copies every embedded {@code menu} array into the menu subcollection and
+     * then drops the array. Items are written with {@code set}, so the migration
+     * can be re-run after a partial failure. Returns the number of items moved.
+     */
+    public int migrateEmbeddedMenus() throws ExecutionException, InterruptedException {
+        int moved = 0;
+        for (QueryDocumentSnapshot doc : db.collection("restaurants").get().get().getDocuments()) {
+            Restaurant restaurant = doc.toObject(Restaurant.class);
+            List<Food> menu = restaurant.getMenu();
+            if (menu == null || menu.isEmpty()) continue;
+
+            WriteBatch batch = db.batch();
+            int writes = 0;
+            for (Food food : menu) {
+                if (food.getId() == null) food.setId(UUID.randomUUID().toString());
+                batch.set(menuRef(doc.getId()).document(food.getId()), food);
+                if (++writes == MAX_BATCH_WRITES - 1) {
+                    batch.commit().get();
+                    batch = db.batch();
+                    writes = 0;
+                }
+            }
+            batch.update(doc.getReference(), "menu", FieldValue.delete());
+            batch.commit().get();
+
+            moved += menu.size();
+            System.out.println("Migrated " + menu.size() + " menu items for restaurant " + doc.getId());
+        }
+        return moved;
+    }
+
+    private CompletableFuture<Boolean> rewriteEmbedded(String restaurantId, String foodId, Food replacement) {
+        DocumentReference ref = restaurantRef(restaurantId);
+        return FirestoreFutures.toCompletable(db.runTransaction(tx -> {
+            DocumentSnapshot snapshot = tx.get(ref).get();
+            if (!snapshot.exists()) return false;
+
+            Restaurant restaurant = snapshot.toObject(Restaurant.class);
+            List<Food> menu = restaurant.getMenu() == null ? new ArrayList<>() : new ArrayList<>(restaurant.getMenu());
+            boolean found = false;
+            for (ListIterator<Food> it = menu.listIterator(); it.hasNext(); ) {
+                if (foodId.equals(it.next().getId())) {
+                    if (replacement == null) it.remove();
+                    else it.set(replacement);
+                    found = true;
+                    break;
+                }
+            }
+            if (found) tx.update(ref, "menu", menu);
+            return found;
+        }), "restaurants", "transaction");
+    }
+
+    private CompletableFuture<List<Food>> embeddedMenu(String restaurantId) {
+        Restaurant cached = catalog.restaurants().get(restaurantId);
+        if (cached != null || catalog.restaurants().isLoaded()) {
+            return CompletableFuture.completedFuture(menuOf(cached));
+        }
+        return FirestoreFutures.toCompletable(restaurantRef(restaurantId).get(), "restaurants", "get")
+                .thenApply(snapshot -> menuOf(snapshot.exists() ? snapshot.toObject(Restaurant.class) : null));
+    }
+
+    private static List<Food> menuOf(Restaurant restaurant) {
+        return restaurant != null && restaurant.getMenu() != null ? restaurant.getMenu() : new ArrayList<>();
+    }
+
+    private CompletableFuture<Void> requireRestaurant(String restaurantId) {
+        CompletableFuture<Boolean> exists = catalog.restaurants().isLoaded()
+                ? CompletableFuture.completedFuture(catalog.restaurants().get(restaurantId) != null)
+                : FirestoreFutures.toCompletable(restaurantRef(restaurantId).get(), "restaurants", "get")
+                        .thenApply(DocumentSnapshot::exists);
+        return exists.thenAccept(found -> {
+            if (!found) {
+                throw new RuntimeException("Restaurant not found with ID: " + restaurantId);
+            }
+        });
+    }
+
+    private DocumentReference restaurantRef(String restaurantId) {
+        return db.collection("restaurants").document(restaurantId);
+    }
+
+    private CollectionReference menuRef(String restaurantId) {
+        return restaurantRef(restaurantId).collection("menu");
+    }
+
+    private static boolean isNotFound(Throwable error) {
+        return FirestoreFutures.hasStatus(error, Status.Code.NOT_FOUND);
+    }
+
+    private static String encode(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String cursor) {
+        return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    }
+
+    private static int parseOffset(String value) {
+        try {
+            int offset = Integer.parseInt(value);
+            if (offset >= 0) return offset;
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Invalid menu cursor");
+    }
+}
@@ -0,0 +1,195 @@
+package com.foodorder.food_backend.service;
+
+import com.foodorder.food_backend.config.BackgroundThreads;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fans order status changes out to Server-Sent Event subscribers. An idle
+ * subscription is only an async servlet request and a few objects; a virtual
+ * thread is started to write when there is something to send. Slow clients
+ * are handled by coalescing: only the latest status per order is kept, and
+ * at most {@code MAX_PENDING} orders are buffered per subscriber.
+ */
+@Component
+public class OrderEventHub {
+
+    private static final int MAX_PENDING = 64;
+    private static final int MAX_SUBSCRIPTIONS_PER_USER = 8;
+
+    private final Map<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final ThreadPoolTaskScheduler heartbeats;
+    private final long timeoutMs;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public OrderEventHub(BackgroundThreads threads,
+                         @Value("${orders.events.heartbeat-seconds:15}") long heartbeatSeconds,
+                         @Value("${orders.events.timeout-minutes:30}") long timeoutMinutes) {
+        this.timeoutMs = TimeUnit.MINUTES.toMillis(timeoutMinutes);
+        this.heartbeats = threads.scheduler("order-events-");
+        heartbeats.scheduleAtFixedRate(this::heartbeat, Duration.ofSeconds(heartbeatSeconds));
+    }
+
+    public SseEmitter subscribe(String userId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(userId, emitter);
+
+        // Capping and adding under the entry's lock, so a concurrent unsubscribe can't drop the set between them.
+        List<Subscriber> evicted = new ArrayList<>(1);
+        subscribers.compute(userId, (id, forUser) -> {
+            if (forUser == null) forUser = new CopyOnWriteArraySet<>();
+            // Keep the newest tabs; the oldest connection is the most likely to be stale.
+            while (forUser.size() >= MAX_SUBSCRIPTIONS_PER_USER) {
+                Subscriber oldest = forUser.iterator().next();
+                forUser.remove(oldest);
+                evicted.add(oldest);
+            }
+            forUser.add(subscriber);
+            return forUser;
+        });
+        // Closing unsubscribes, which updates the same entry, so it has to wait until compute returns.
+        evicted.forEach(Subscriber::close);
+
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(error -> subscriber.close());
+        return emitter;
+    }
+
+    public void publish(String userId, String orderId, String status) {
+        Set<Subscriber> forUser = subscribers.get(userId);
+        if (forUser == null) return;
+        published.increment();
+        for (Subscriber subscriber : forUser) {
+            subscriber.offer(orderId, status);
+        }
+    }
+
+    private void heartbeat() {
+        for (Set<Subscriber> forUser : subscribers.values()) {
+            for (Subscriber subscriber : forUser) subscriber.offerHeartbeat();
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.userId, (id, set) -> {
+            set.remove(subscriber);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    public Map<String, Object> stats() {
+        int connections = 0;
+        for (Set<Subscriber> forUser : subscribers.values()) connections += forUser.size();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("users", subscribers.size());
+        stats.put("connections", connections);
+        stats.put("published", published.sum());
+        stats.put("dropped", dropped.sum());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeats.shutdown();
+        for (Set<Subscriber> forUser : subscribers.values()) {
+            for (Subscriber subscriber : forUser) subscriber.emitter.complete();
+        }
+    }
+
+    private final class Subscriber {
+        final String userId;
+        final SseEmitter emitter;
+        private final LinkedHashMap<String, String> pending = new LinkedHashMap<>();
+        private boolean heartbeatDue;
+        private boolean draining;
+        private volatile boolean closed;
+
+        Subscriber(String userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        synchronized void offer(String orderId, String status) {
+            if (closed) return;
+            pending.remove(orderId);
+            pending.put(orderId, status);
+            if (pending.size() > MAX_PENDING) {
+                Iterator<String> oldest = pending.keySet().iterator();
+                oldest.next();
+                oldest.remove();
+                dropped.increment();
+            }
+            wake();
+        }
+
+        synchronized void offerHeartbeat() {
+            if (closed) return;
+            heartbeatDue = true;
+            wake();
+        }
+
+        private void wake() {
+            if (!draining) {
+                draining = true;
+                Thread.ofVirtual().name("order-events-" + userId).start(this::drain);
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                Map<String, String> batch;
+                boolean heartbeat;
+                synchronized (this) {
+                    if (closed || (pending.isEmpty() && !heartbeatDue)) {
+                        draining = false;
+                        return;
+                    }
+                    batch = new LinkedHashMap<>(pending);
+                    pending.clear();
+                    heartbeat = heartbeatDue;
+                    heartbeatDue = false;
+                }
+
+                try {
+                    for (Map.Entry<String, String> event : batch.entrySet()) {
+                        emitter.send(SseEmitter.event()
+                                .name("status")
+                                .data(Map.of("orderId", event.getKey(), "status", event.getValue())));
+                    }
+                    if (heartbeat && batch.isEmpty()) {
+                        emitter.send(SseEmitter.event().comment("heartbeat"));
+                    }
+                } catch (Exception e) {
+                    close();
+                }
+            }
+        }
+
+        void close() {
+            synchronized (this) {
+                if (closed) return;
+                closed = true;
+                pending.clear();
+            }
+            unsubscribe(this);
+            try {
+                emitter.complete();
+            } catch (Exception ignored) {
+                // Connection already gone.
+            }
+        }
+    }
+}
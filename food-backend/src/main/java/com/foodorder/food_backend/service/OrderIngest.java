@@ -0,0 +1,73 @@
+package com.foodorder.food_backend.service;
+
+import com.foodorder.food_backend.config.BackgroundThreads;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.WriteBatch;
+import com.google.cloud.firestore.WriteResult;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Group commit for order placements. Each placement adds its writes (order,
+ * lifecycle record, kitchen tickets, cart deletes) to a shared
+ * {@link WriteBatch}; placements arriving within
+ * {@code orders.ingest.window-ms} of each other, up to
+ * {@code orders.ingest.max-batch} placements and the 500 writes Firestore
+ * allows in a batch, are committed in one round trip. Every
+ * placement's writes stay atomic: a failed group is retried one placement
+ * at a time. Set {@code max-batch} to 1 to commit each placement on its own.
+ */
+@Component
+public class OrderIngest {
+
+    private static final int MAX_BATCH_WRITES = 500;
+
+    private final Firestore db;
+    private final GroupCommitter<Placement, Timestamp> committer;
+
+    public OrderIngest(Firestore db, BackgroundThreads threads,
+                       @Value("${orders.ingest.window-ms:5}") long windowMs,
+                       @Value("${orders.ingest.max-batch:100}") int maxBatch) {
+        this.db = db;
+        this.committer = new GroupCommitter<>("order-ingest", threads, maxBatch, MAX_BATCH_WRITES, Placement::writes,
+                windowMs, this::commit);
+    }
+
+    /**
+     * Queues a placement that adds {@code writes} writes to the batch.
+     * Completes with the commit time, which is also the update time of every
+     * document the placement wrote.
+     */
+    public CompletableFuture<Timestamp> submit(int writes, Consumer<WriteBatch> placement) {
+        return committer.submit(new Placement(writes, placement));
+    }
+
+    private CompletableFuture<List<Timestamp>> commit(List<Placement> placements) {
+        WriteBatch batch = db.batch();
+        for (Placement placement : placements) placement.apply().accept(batch);
+        return FirestoreFutures.toCompletable(batch.commit(), "orders", "commit").thenApply(results -> {
+            // All writes of one commit share its commit time.
+            WriteResult first = results.get(0);
+            return Collections.nCopies(placements.size(), first.getUpdateTime());
+        });
+    }
+
+    public Map<String, Object> stats() {
+        return committer.stats();
+    }
+
+    @PreDestroy
+    public void stop() {
+        committer.stop();
+    }
+
+    private record Placement(int writes, Consumer<WriteBatch> apply) {}
+}
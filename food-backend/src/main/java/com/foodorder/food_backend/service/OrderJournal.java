@@ -0,0 +1,288 @@
+package com.foodorder.food_backend.service;
+
+import com.foodorder.food_backend.config.BackgroundThreads;
+import com.foodorder.food_backend.journal.SegmentedJournal;
+import com.foodorder.food_backend.model.CartItem;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local history of order events. Every placement, status change and
+ * cancellation is appended to a {@link SegmentedJournal} in
+ * {@code orders.journal.dir} once Firestore has accepted it, and the journal
+ * is flushed to disk every {@code orders.journal.sync-ms}. Replaying it at
+ * startup rebuilds the orders still in flight, from which
+ * {@link OrderLifecycleEngine} re-arms their transitions before it reads
+ * Firestore for any the journal missed. Once the journal spans more than
+ * {@code orders.journal.compact-segments} segments it is replaced by a
+ * snapshot of the live orders.
+ */
+@Component
+public class OrderJournal {
+
+    /** An order still moving through the lifecycle; {@code step} indexes the next transition. */
+    public record LiveOrder(String userId, long placedAt, String status, int step) {}
+
+    private static final byte PLACED = 1;
+    private static final byte STATUS = 2;
+    private static final byte CANCELLED = 3;
+    private static final byte ENDED = 4;
+    private static final byte LIVE = 5;
+
+    private final boolean enabled;
+    private final Path dir;
+    private final int segmentBytes;
+    private final long syncMs;
+    private final int compactSegments;
+    private final BackgroundThreads threads;
+    private ThreadPoolTaskScheduler scheduler;
+
+    /** Guarded by {@code this}, as are appends, so the live orders always match the journal. */
+    private SegmentedJournal journal;
+    private final Map<String, LiveOrder> live = new ConcurrentHashMap<>();
+    private volatile boolean recovered;
+
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder compactions = new LongAdder();
+    private long replayed;
+    private long replayMs;
+
+    public OrderJournal(BackgroundThreads threads,
+                        @Value("${orders.journal.enabled:true}") boolean enabled,
+                        @Value("${orders.journal.dir:data/journal}") String dir,
+                        @Value("${orders.journal.segment-mb:64}") int segmentMb,
+                        @Value("${orders.journal.sync-ms:200}") long syncMs,
+                        @Value("${orders.journal.compact-segments:4}") int compactSegments) {
+        this.threads = threads;
+        this.enabled = enabled;
+        this.dir = Path.of(dir);
+        this.segmentBytes = segmentMb << 20;
+        this.syncMs = syncMs;
+        this.compactSegments = compactSegments;
+    }
+
+    @PostConstruct
+    public synchronized void start() {
+        if (!enabled) return;
+        long startedAt = System.nanoTime();
+        try {
+            journal = SegmentedJournal.open(dir, "orders", segmentBytes, entry -> {
+                apply(entry.payload());
+                replayed++;
+            });
+        } catch (IOException | RuntimeException e) {
+            System.out.println("⚠️ Order journal in " + dir.toAbsolutePath() + " could not be opened, running without it: "
+                    + e.getMessage());
+            live.clear();
+            return;
+        }
+        replayMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        recovered = journal.nextSequence() > 0;
+        System.out.println("Replayed " + replayed + " order events in " + replayMs + " ms, "
+                + live.size() + " orders in flight");
+
+        scheduler = threads.scheduler("order-journal-");
+        scheduler.scheduleWithFixedDelay(this::sync, Duration.ofMillis(syncMs));
+        scheduler.scheduleWithFixedDelay(this::compactIfLarge, Duration.ofMinutes(1));
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (scheduler != null) scheduler.shutdown();
+        if (journal == null) return;
+        try {
+            journal.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        journal = null;
+    }
+
+    /** Whether the journal had events when we started, i.e. {@link #liveOrders()} is authoritative. */
+    public boolean isRecovered() {
+        return recovered;
+    }
+
+    public Map<String, LiveOrder> liveOrders() {
+        return Collections.unmodifiableMap(live);
+    }
+
+    public void placed(String userId, String orderId, long placedAt, double totalAmount, List<CartItem> items) {
+        append(PLACED, orderId, userId, out -> {
+            out.writeLong(placedAt);
+            out.writeDouble(totalAmount);
+            out.writeInt(items.size());
+            for (CartItem item : items) {
+                writeString(out, item.getName());
+                writeString(out, item.getRestaurant());
+                out.writeInt(item.getQuantity());
+                out.writeDouble(item.getPrice());
+            }
+        });
+    }
+
+    public void statusChanged(String userId, String orderId, String status) {
+        append(STATUS, orderId, userId, out -> writeString(out, status));
+    }
+
+    public void cancelled(String userId, String orderId) {
+        append(CANCELLED, orderId, userId, out -> {});
+    }
+
+    /** The lifecycle stopped following an order that someone else cancelled or removed. */
+    public void ended(String userId, String orderId) {
+        append(ENDED, orderId, userId, out -> {});
+    }
+
+    /** Takes over an in-flight order that is not in the journal yet, e.g. one placed before it existed. */
+    public void adopt(String userId, String orderId, long placedAt, int step) {
+        String status = step == 0 ? "Placed" : OrderLifecycleEngine.STEPS[step - 1];
+        append(LIVE, orderId, userId, out -> writeLive(out, placedAt, status, step));
+    }
+
+    private interface Body {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private void append(byte type, String orderId, String userId, Body body) {
+        byte[] payload = encode(type, orderId, userId, body);
+        synchronized (this) {
+            if (journal == null) return;
+            try {
+                journal.append(payload);
+                appended.increment();
+            } catch (IOException | RuntimeException e) {
+                failures.increment();
+                System.out.println("⚠️ Could not journal order event for " + orderId + ": " + e.getMessage());
+            }
+            apply(ByteBuffer.wrap(payload));
+        }
+    }
+
+    private static byte[] encode(byte type, String orderId, String userId, Body body) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(type);
+            out.writeLong(System.currentTimeMillis());
+            writeString(out, orderId);
+            writeString(out, userId);
+            body.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /** Applies one event to the live orders; a placement's items are history only and are not read back. */
+    private void apply(ByteBuffer event) {
+        byte type = event.get();
+        event.getLong();
+        String orderId = readString(event);
+        String userId = readString(event);
+        switch (type) {
+            case PLACED -> live.put(orderId, new LiveOrder(userId, event.getLong(), "Placed", 0));
+            case STATUS -> {
+                String status = readString(event);
+                int reached = Arrays.asList(OrderLifecycleEngine.STEPS).indexOf(status);
+                live.computeIfPresent(orderId, (id, order) -> {
+                    if (reached == OrderLifecycleEngine.STEPS.length - 1) return null;
+                    return new LiveOrder(order.userId(), order.placedAt(), status,
+                            reached < 0 ? order.step() : Math.max(order.step(), reached + 1));
+                });
+            }
+            case CANCELLED, ENDED -> live.remove(orderId);
+            case LIVE -> live.put(orderId, new LiveOrder(userId, event.getLong(), readString(event), event.getInt()));
+            default -> throw new IllegalStateException("Unknown order event type " + type);
+        }
+    }
+
+    private static void writeLive(DataOutputStream out, long placedAt, String status, int step) throws IOException {
+        out.writeLong(placedAt);
+        writeString(out, status);
+        out.writeInt(step);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) return null;
+        byte[] utf8 = new byte[length];
+        buffer.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private synchronized void sync() {
+        if (journal != null) journal.force();
+    }
+
+    private void compactIfLarge() {
+        synchronized (this) {
+            if (journal == null || journal.segmentCount() <= compactSegments) return;
+        }
+        compact();
+    }
+
+    /** Replaces the journal with one event per live order. */
+    public synchronized Map<String, Object> compact() {
+        if (journal == null) return Map.of("status", "error", "message", "Order journal is disabled");
+        List<byte[]> snapshot = new ArrayList<>(live.size());
+        for (Map.Entry<String, LiveOrder> entry : live.entrySet()) {
+            LiveOrder order = entry.getValue();
+            snapshot.add(encode(LIVE, entry.getKey(), order.userId(),
+                    out -> writeLive(out, order.placedAt(), order.status(), order.step())));
+        }
+        try {
+            journal.compact(snapshot);
+            compactions.increment();
+            return Map.of("status", "success", "liveOrders", snapshot.size());
+        } catch (IOException e) {
+            failures.increment();
+            e.printStackTrace();
+            return Map.of("status", "error", "message", e.getMessage());
+        }
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", journal != null);
+        stats.put("recovered", recovered);
+        stats.put("liveOrders", live.size());
+        stats.put("appended", appended.sum());
+        stats.put("failures", failures.sum());
+        stats.put("replayed", replayed);
+        stats.put("replayMs", replayMs);
+        stats.put("compactions", compactions.sum());
+        if (journal != null) {
+            stats.put("segments", journal.segmentCount());
+            stats.put("usedBytes", journal.usedBytes());
+            stats.put("nextSequence", journal.nextSequence());
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,267 @@
+package com.foodorder.food_backend.service;
+
+import com.foodorder.food_backend.config.BackgroundThreads;
+import com.foodorder.food_backend.timer.HierarchicalTimer;
+import com.foodorder.food_backend.timer.TimerTask;
+import com.google.cloud.firestore.*;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives orders through Placed → Cooking → Out for Delivery → Delivered.
+ * Each in-flight order holds one timer for its next step on a hierarchical
+ * timing wheel, and the step is mirrored in {@code orderTransitions/{orderId}}
+ * so pending transitions are picked up again after a restart. Bookkeeping
+ * writes ride along with the status batches of {@link OrderStatusPipeline}.
+ * When the {@link OrderJournal} has history, a restart re-arms transitions
+ * from its replayed live orders first and then reads the mirror back only for
+ * orders the journal never heard of.
+ */
+@Component
+public class OrderLifecycleEngine {
+
+    /** Status reached at each step and its delay after placement. */
+    static final String[] STEPS = {"Cooking", "Out for Delivery", "Delivered"};
+    static final long[] STEP_DELAYS_MS = {
+            TimeUnit.MINUTES.toMillis(1),
+            TimeUnit.MINUTES.toMillis(3),
+            TimeUnit.MINUTES.toMillis(6)
+    };
+
+    private static final long RETRY_DELAY_MS = 5000;
+    private static final int RESUME_PAGE_SIZE = 500;
+
+    /** Applies a transition; completes with false when the order is gone or cancelled and the chain should stop. */
+    public interface TransitionHandler {
+        CompletableFuture<Boolean> apply(String userId, String orderId, String status);
+    }
+
+    private final Firestore db;
+    private final OrderStatusPipeline pipeline;
+    private final OrderJournal journal;
+    private final BackgroundThreads threads;
+    private final ExecutorService workers;
+    private final HierarchicalTimer timer;
+    private final Map<String, TimerTask> pending = new ConcurrentHashMap<>();
+    private volatile TransitionHandler handler;
+    private volatile boolean running = true;
+    /** Guarded by {@code this}: resuming waits for both {@link #start} and {@link #setHandler}. */
+    private boolean started;
+    private boolean resumed;
+    private Thread reaper;
+
+    private final LongAdder fired = new LongAdder();
+    private final LongAdder lagTotalMs = new LongAdder();
+    private final AtomicLong lagMaxMs = new AtomicLong();
+    private volatile long lastLagMs;
+
+    public OrderLifecycleEngine(Firestore db, OrderStatusPipeline pipeline, OrderJournal journal,
+                                BackgroundThreads threads, MeterRegistry registry,
+                                @Value("${orders.lifecycle.tick-ms:100}") long tickMs,
+                                @Value("${orders.lifecycle.wheel-size:512}") int wheelSize,
+                                @Value("${orders.lifecycle.workers:4}") int workerCount) {
+        this.db = db;
+        this.pipeline = pipeline;
+        this.journal = journal;
+        this.threads = threads;
+        this.workers = threads.executor("order-lifecycle-", workerCount);
+        this.timer = new HierarchicalTimer(tickMs, wheelSize, workers);
+
+        Gauge.builder("orders.lifecycle.pending", timer, HierarchicalTimer::size)
+                .description("Transition timers waiting on the timing wheel")
+                .register(registry);
+        Gauge.builder("orders.lifecycle.tracked", pending, Map::size)
+                .description("Orders with a scheduled next transition")
+                .register(registry);
+        Gauge.builder("orders.lifecycle.lag", this, engine -> engine.lastLagMs)
+                .description("How late the last transition fired")
+                .baseUnit("milliseconds")
+                .register(registry);
+    }
+
+    public void setHandler(TransitionHandler handler) {
+        this.handler = handler;
+        resumeWhenReady();
+    }
+
+    @PostConstruct
+    public void start() {
+        reaper = threads.start("order-lifecycle-clock", this::runClock);
+        synchronized (this) {
+            started = true;
+        }
+        resumeWhenReady();
+    }
+
+    /**
+     * Re-arms the previous process's transitions once there is a handler to
+     * apply them; overdue ones fire as soon as they are scheduled.
+     */
+    private synchronized void resumeWhenReady() {
+        if (!started || handler == null || resumed) return;
+        resumed = true;
+        workers.execute(this::resume);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (reaper != null) reaper.interrupt();
+        workers.shutdown();
+    }
+
+    /** Adds the bookkeeping document for a new order to the batch that writes the order. */
+    public void recordPlacement(WriteBatch batch, String userId, String orderId, long placedAtMs) {
+        batch.set(transitionRef(orderId), transitionDoc(userId, orderId, placedAtMs, 0));
+    }
+
+    /** Starts the lifecycle for a freshly placed order once its placement batch has committed. */
+    public void track(String userId, String orderId, long placedAtMs) {
+        schedule(userId, orderId, placedAtMs, 0);
+    }
+
+    /** Stops any further automatic transitions for the order. */
+    public void cancel(String orderId) {
+        TimerTask task = pending.remove(orderId);
+        if (task != null) task.cancel();
+        pipeline.enqueueDelete(transitionRef(orderId));
+    }
+
+    private void schedule(String userId, String orderId, long placedAtMs, int step) {
+        long deadline = placedAtMs + STEP_DELAYS_MS[step];
+        scheduleAt(userId, orderId, placedAtMs, step, deadline);
+    }
+
+    private void scheduleAt(String userId, String orderId, long placedAtMs, int step, long deadline) {
+        TimerTask task = timer.schedule(deadline, () -> fire(userId, orderId, placedAtMs, step, deadline));
+        TimerTask previous = pending.put(orderId, task);
+        if (previous != null && previous != task) previous.cancel();
+    }
+
+    private void fire(String userId, String orderId, long placedAtMs, int step, long deadline) {
+        long lag = System.currentTimeMillis() - deadline;
+        fired.increment();
+        lagTotalMs.add(Math.max(lag, 0));
+        lagMaxMs.accumulateAndGet(lag, Math::max);
+        lastLagMs = lag;
+
+        TransitionHandler handler = this.handler;
+        if (handler == null) {
+            scheduleAt(userId, orderId, placedAtMs, step, System.currentTimeMillis() + RETRY_DELAY_MS);
+            return;
+        }
+        handler.apply(userId, orderId, STEPS[step]).whenComplete((active, error) -> {
+            if (error != null) {
+                error.printStackTrace();
+                scheduleAt(userId, orderId, placedAtMs, step, System.currentTimeMillis() + RETRY_DELAY_MS);
+                return;
+            }
+            int next = step + 1;
+            if (!active || next == STEPS.length) {
+                if (!active) journal.ended(userId, orderId);
+                pending.remove(orderId);
+                pipeline.forget(orderId);
+                pipeline.enqueueDelete(transitionRef(orderId));
+                return;
+            }
+            pipeline.enqueue(transitionRef(orderId), Map.of("step", next, "dueAt", placedAtMs + STEP_DELAYS_MS[next]));
+            schedule(userId, orderId, placedAtMs, next);
+        });
+    }
+
+    private void runClock() {
+        while (running) {
+            try {
+                timer.advanceClock(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /** Re-arms every transition that was pending when the previous process stopped. */
+    void resume() {
+        Set<String> journaled = Set.of();
+        if (journal.isRecovered()) {
+            Map<String, OrderJournal.LiveOrder> live = Map.copyOf(journal.liveOrders());
+            int fromJournal = 0;
+            for (Map.Entry<String, OrderJournal.LiveOrder> entry : live.entrySet()) {
+                OrderJournal.LiveOrder order = entry.getValue();
+                if (order.step() >= STEPS.length || pending.containsKey(entry.getKey())) continue;
+                schedule(order.userId(), entry.getKey(), order.placedAt(), order.step());
+                fromJournal++;
+            }
+            journaled = live.keySet();
+            System.out.println("Resumed " + fromJournal + " pending order transitions from the order journal");
+        }
+
+        // An order whose placement committed but was never journaled, say because the process
+        // stopped in between, is only in the mirror; the journal's own orders are left to it.
+        int resumed = 0;
+        try {
+            Query page = db.collection("orderTransitions").orderBy(FieldPath.documentId()).limit(RESUME_PAGE_SIZE);
+            while (true) {
+                List<QueryDocumentSnapshot> docs = page.get().get().getDocuments();
+                for (QueryDocumentSnapshot doc : docs) {
+                    Long placedAt = doc.getLong("placedAt");
+                    Long step = doc.getLong("step");
+                    if (placedAt == null || step == null || journaled.contains(doc.getId())
+                            || pending.containsKey(doc.getId())) continue;
+                    schedule(doc.getString("userId"), doc.getId(), placedAt, step.intValue());
+                    journal.adopt(doc.getString("userId"), doc.getId(), placedAt, step.intValue());
+                    resumed++;
+                }
+                if (docs.size() < RESUME_PAGE_SIZE) break;
+                page = page.startAfter(docs.get(docs.size() - 1));
+            }
+            System.out.println("Resumed " + resumed + " pending order transitions from Firestore");
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private DocumentReference transitionRef(String orderId) {
+        return db.collection("orderTransitions").document(orderId);
+    }
+
+    private static Map<String, Object> transitionDoc(String userId, String orderId, long placedAtMs, int step) {
+        Map<String, Object> doc = new HashMap<>();
+        doc.put("userId", userId);
+        doc.put("orderId", orderId);
+        doc.put("placedAt", placedAtMs);
+        doc.put("step", step);
+        doc.put("dueAt", placedAtMs + STEP_DELAYS_MS[step]);
+        return doc;
+    }
+
+    public int queueDepth() {
+        return timer.size();
+    }
+
+    public Map<String, Object> stats() {
+        long count = fired.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queueDepth", timer.size());
+        stats.put("trackedOrders", pending.size());
+        stats.put("fired", count);
+        stats.put("lagLastMs", lastLagMs);
+        stats.put("lagMaxMs", lagMaxMs.get());
+        stats.put("lagAvgMs", count == 0 ? 0 : lagTotalMs.sum() / count);
+        return stats;
+    }
+}
@@ -2,55 +2,96 @@ package com.foodorder.food_backend.service;
 
 import com.foodorder.food_backend.model.CartItem;
 import com.foodorder.food_backend.model.Order;
-import com.google.api.core.ApiFuture;
 import com.google.cloud.firestore.*;
-import com.google.firebase.cloud.FirestoreClient;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import io.grpc.Status;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 
 @Service
 public class OrderService {
 
-    private final Firestore db = FirestoreClient.getFirestore();
+    private static final int CANCEL_ATTEMPTS = 3;
+
+    private final Firestore db;
     private final CartService cartService;
-    private final ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+    private final OrderLifecycleEngine lifecycle;
+    private final OrderStatusPipeline statusPipeline;
+    private final OrderEventHub events;
+    private final OrderIngest ingest;
+    private final PriceIndex prices;
+    private final SalesAnalytics analytics;
+    private final KitchenQueue kitchen;
+    private final OrderJournal journal;
+    private final boolean priceCheck;
+
+    /** Counted by status; anything the lifecycle does not know is counted as "other" to bound the tags. */
+    private final Map<String, Counter> transitions = new HashMap<>();
+    private final Counter otherTransitions;
+
+    public OrderService(Firestore db, CartService cartService, OrderLifecycleEngine lifecycle,
+                        OrderStatusPipeline statusPipeline, OrderEventHub events, OrderIngest ingest, PriceIndex prices,
+                        SalesAnalytics analytics, KitchenQueue kitchen, OrderJournal journal,
+                        MeterRegistry registry,
+                        @Value("${orders.price-check:true}") boolean priceCheck) {
+        this.db = db;
+        this.cartService = cartService;
+        this.lifecycle = lifecycle;
+        this.statusPipeline = statusPipeline;
+        this.events = events;
+        this.ingest = ingest;
+        this.prices = prices;
+        this.analytics = analytics;
+        this.kitchen = kitchen;
+        this.journal = journal;
+        this.priceCheck = priceCheck;
+        List<String> statuses = new ArrayList<>(List.of("Placed", "Cancelled"));
+        statuses.addAll(List.of(OrderLifecycleEngine.STEPS));
+        for (String status : statuses) transitions.put(status.toLowerCase(Locale.ROOT), transitionCounter(registry, status));
+        this.otherTransitions = transitionCounter(registry, "other");
+        lifecycle.setHandler(this::applyTransition);
+    }
 
-    private final Map<String, List<ScheduledFuture<?>>> scheduledTasks = new ConcurrentHashMap<>();
+    private static Counter transitionCounter(MeterRegistry registry, String status) {
+        return Counter.builder("orders.transitions")
+                .description("Order status changes applied")
+                .tag("status", status)
+                .register(registry);
+    }
 
-    public OrderService(CartService cartService) {
-        this.cartService = cartService;
-        scheduler.initialize();
+    private void countTransition(String status) {
+        Counter counter = status == null ? null : transitions.get(status.toLowerCase(Locale.ROOT));
+        (counter != null ? counter : otherTransitions).increment();
     }
 
-    public Map<String, Object> placeOrder(String userId, List<CartItem> items, String address, double totalAmount) {
-        Map<String, Object> response = new HashMap<>();
+    public CompletableFuture<Map<String, Object>> placeOrder(String userId, List<CartItem> items, String address,
+                                                             double totalAmount) {
         try {
-            String orderId = UUID.randomUUID().toString();
-
-            List<Map<String, Object>> serializedItems = new ArrayList<>();
-            for (CartItem item : items) {
-                Map<String, Object> itemMap = new HashMap<>();
-                itemMap.put("id", item.getId());
-                itemMap.put("name", item.getName());
-                itemMap.put("price", item.getPrice());
-                itemMap.put("quantity", item.getQuantity());
-                itemMap.put("image", item.getImage());
-                serializedItems.add(itemMap);
+            if (priceCheck) {
+                String rejected = applyCurrentPrices(items, totalAmount);
+                if (rejected != null) return CompletableFuture.completedFuture(result("error", rejected));
+                totalAmount = totalCents(items) / 100.0;
             }
+            double orderTotal = totalAmount;
+
+            String orderId = UUID.randomUUID().toString();
 
             Map<String, Object> orderData = new HashMap<>();
             orderData.put("userId", userId);
-            orderData.put("items", serializedItems);
+            orderData.put("items", serializeItems(items));
             orderData.put("address", address);
             orderData.put("totalAmount", totalAmount);
+            long placedAt = System.currentTimeMillis();
             orderData.put("orderDate", LocalDateTime.now().toString());
+            orderData.put("placedAt", placedAt);
             orderData.put("status", "Placed");
 
             DocumentReference orderRef = db.collection("users")
@@ -58,151 +99,297 @@ public class OrderService {
                     .collection("orders")
                     .document(orderId);
 
-            orderRef.set(orderData).get();
-
-            cartService.clearCart(userId);
-
-            scheduleStatusUpdates(userId, orderId);
-
-            response.put("status", "success");
-            response.put("orderId", orderId);
+            // The order, its lifecycle record, its kitchen tickets and the cart deletes commit
+            // atomically, grouped with other placements arriving at the same time.
+            return kitchen.route(items).thenCompose(tickets -> {
+                orderData.put("restaurantIds", tickets.stream().map(KitchenQueue.Ticket::restaurantId).toList());
+                return cartService.checkout(userId)
+                        .thenCompose(checkout -> ingest.submit(2 + tickets.size() + checkout.deleteCount(), batch -> {
+                            batch.set(orderRef, orderData);
+                            lifecycle.recordPlacement(batch, userId, orderId, placedAt);
+                            kitchen.recordPlacement(batch, tickets, userId, orderId, address, placedAt);
+                            checkout.addDeletes(batch);
+                        }).whenComplete((committedAt, error) -> checkout.finish(error == null)))
+                        .thenApply(committedAt -> {
+                            statusPipeline.recordVersion(orderId, committedAt);
+                            lifecycle.track(userId, orderId, placedAt);
+                            kitchen.track(orderId, tickets);
+                            journal.placed(userId, orderId, placedAt, orderTotal, items);
+                            events.publish(userId, orderId, "Placed");
+                            countTransition("Placed");
+                            analytics.orderPlaced(items, orderTotal);
+
+                            Map<String, Object> response = new HashMap<>();
+                            response.put("status", "success");
+                            response.put("orderId", orderId);
+                            return response;
+                        });
+            }).exceptionally(OrderService::failure);
         } catch (Exception e) {
-            e.printStackTrace();
-            response.put("status", "error");
-            response.put("message", e.getMessage());
+            return CompletableFuture.completedFuture(failure(e));
         }
-        return response;
     }
 
-    private void scheduleStatusUpdates(String userId, String orderId) {
-        List<ScheduledFuture<?>> tasks = new ArrayList<>();
+    public CompletableFuture<Map<String, Object>> cancelOrder(String userId, String orderId) {
+        DocumentReference orderRef = db.collection("users")
+                .document(userId)
+                .collection("orders")
+                .document(orderId);
 
-        tasks.add(scheduler.schedule(() -> updateOrderStatus(userId, orderId, "Cooking"),
-                new Date(System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1))));
-        tasks.add(scheduler.schedule(() -> updateOrderStatus(userId, orderId, "Out for Delivery"),
-                new Date(System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(3))));
-        tasks.add(scheduler.schedule(() -> updateOrderStatus(userId, orderId, "Delivered"),
-                new Date(System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(6))));
-
-        scheduledTasks.put(orderId, tasks);
+        return cancel(userId, orderId, orderRef, CANCEL_ATTEMPTS).exceptionally(OrderService::failure);
     }
 
-    public Map<String, Object> cancelOrder(String userId, String orderId) {
-        Map<String, Object> response = new HashMap<>();
-        try {
-            DocumentReference orderRef = db.collection("users")
-                    .document(userId)
-                    .collection("orders")
-                    .document(orderId);
-
-            DocumentSnapshot snapshot = orderRef.get().get();
-
+    /**
+     * Cancels the order as it was just read. The write only lands if the order
+     * is unchanged since, so of two concurrent cancels, or a cancel racing a
+     * status change, one fails and reads the order again; the side effects run
+     * once, for the write that landed.
+     */
+    private CompletableFuture<Map<String, Object>> cancel(String userId, String orderId, DocumentReference orderRef,
+                                                          int attempts) {
+        return FirestoreFutures.toCompletable(orderRef.get(), "orders", "get").thenCompose(snapshot -> {
             if (!snapshot.exists()) {
-                response.put("status", "error");
-                response.put("message", "Order not found");
-                return response;
+                return CompletableFuture.completedFuture(result("error", "Order not found"));
             }
 
             String currentStatus = snapshot.getString("status");
             if ("Delivered".equalsIgnoreCase(currentStatus)) {
-                response.put("status", "error");
-                response.put("message", "Order already delivered and cannot be cancelled");
-                return response;
+                return CompletableFuture.completedFuture(
+                        result("error", "Order already delivered and cannot be cancelled"));
             }
             if ("Cancelled".equalsIgnoreCase(currentStatus)) {
-                response.put("status", "error");
-                response.put("message", "Order already cancelled");
-                return response;
-            }
-
-            if (scheduledTasks.containsKey(orderId)) {
-                for (ScheduledFuture<?> task : scheduledTasks.get(orderId)) {
-                    task.cancel(false);
-                }
-                scheduledTasks.remove(orderId);
+                return CompletableFuture.completedFuture(result("error", "Order already cancelled"));
             }
 
             Map<String, Object> updateData = new HashMap<>();
             updateData.put("status", "Cancelled");
-            orderRef.update(updateData).get();
+            WriteBatch batch = db.batch();
+            batch.update(orderRef, updateData, Precondition.updatedAt(snapshot.getUpdateTime()));
+            kitchen.recordCancellation(batch, orderId, snapshot.getData());
+            return FirestoreFutures.toCompletable(batch.commit(), "orders", "commit").handle((written, error) -> {
+                if (error == null) return CompletableFuture.completedFuture(cancelled(userId, orderId, snapshot));
+                if (!FirestoreFutures.hasStatus(error, Status.Code.FAILED_PRECONDITION)) {
+                    return CompletableFuture.<Map<String, Object>>failedFuture(error);
+                }
+                if (attempts > 1) return cancel(userId, orderId, orderRef, attempts - 1);
+                return CompletableFuture.completedFuture(
+                        result("error", "Order is being updated, please try again"));
+            }).thenCompose(next -> next);
+        });
+    }
 
-            System.out.println("🚫 Order " + orderId + " cancelled successfully");
-            response.put("status", "success");
-            response.put("message", "Order cancelled successfully");
+    private Map<String, Object> cancelled(String userId, String orderId, DocumentSnapshot snapshot) {
+        // Timers and queued transitions go only once the cancellation has landed; a
+        // transition that slips in meanwhile fails its own precondition.
+        lifecycle.cancel(orderId);
+        statusPipeline.forget(orderId);
+        events.publish(userId, orderId, "Cancelled");
+        countTransition("Cancelled");
+        journal.cancelled(userId, orderId);
+        Order cancelled = toOrder(orderId, snapshot.getData());
+        analytics.orderCancelled(cancelled.getItems() != null ? cancelled.getItems() : List.of(),
+                cancelled.getTotalAmount());
+
+        System.out.println("🚫 Order " + orderId + " cancelled successfully");
+        return result("success", "Order cancelled successfully");
+    }
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            response.put("status", "error");
-            response.put("message", e.getMessage());
+    /**
+     * Replaces each item's price with the current menu price and checks the
+     * client's total against them. Returns why the order is rejected, or null.
+     */
+    private String applyCurrentPrices(List<CartItem> items, double clientTotal) {
+        if (!prices.isReady()) return "Menu prices are still loading, please try again";
+        for (CartItem item : items) {
+            if (item.getQuantity() <= 0) return "Invalid quantity for " + item.getName();
+            int cents = prices.priceCents(item.getId(), item.getRestaurant(), item.getName());
+            if (cents == PriceIndex.UNKNOWN) return "Item is no longer on the menu: " + item.getName();
+            item.setPrice(cents / 100.0);
         }
+        // The client sums floating-point prices, so allow it to be a cent out.
+        if (Math.abs(totalCents(items) - PriceIndex.toCents(clientTotal)) > 1) {
+            return "Prices have changed, please review your order";
+        }
+        return null;
+    }
+
+    private static long totalCents(List<CartItem> items) {
+        long total = 0;
+        for (CartItem item : items) total += (long) PriceIndex.toCents(item.getPrice()) * item.getQuantity();
+        return total;
+    }
+
+    private static Map<String, Object> result(String status, String message) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", status);
+        response.put("message", message);
         return response;
     }
 
-    public List<Order> getOrdersByUser(String userId) {
-        List<Order> orders = new ArrayList<>();
-        try {
-            CollectionReference ordersRef = db.collection("users").document(userId).collection("orders");
-            ApiFuture<QuerySnapshot> future = ordersRef.get();
-            List<QueryDocumentSnapshot> documents = future.get().getDocuments();
-
-            for (DocumentSnapshot doc : documents) {
-                Order order = new Order();
-                order.setId(doc.getId());
-                order.setUserId(doc.getString("userId"));
-                order.setAddress(doc.getString("address"));
-                order.setTotalAmount(doc.getDouble("totalAmount"));
-                order.setOrderDate(LocalDateTime.parse(doc.getString("orderDate")));
-                order.setStatus(doc.getString("status"));
-
-                List<Map<String, Object>> itemsList = (List<Map<String, Object>>) doc.get("items");
-                if (itemsList != null) {
-                    List<CartItem> cartItems = new ArrayList<>();
-                    for (Map<String, Object> map : itemsList) {
-                        CartItem item = new CartItem();
-                        item.setId((String) map.get("id"));
-                        item.setName((String) map.get("name"));
-                        item.setPrice(((Number) map.get("price")).doubleValue());
-                        item.setQuantity(((Number) map.get("quantity")).intValue());
-                        item.setImage((String) map.get("image"));
-                        cartItems.add(item);
-                    }
-                    order.setItems(cartItems);
-                }
+    private static Map<String, Object> failure(Throwable error) {
+        error.printStackTrace();
+        return result("error", FirestoreFutures.errorMessage(error));
+    }
 
-                orders.add(order);
+    public CompletableFuture<List<Order>> getOrdersByUser(String userId) {
+        CollectionReference ordersRef = db.collection("users").document(userId).collection("orders");
+        return FirestoreFutures.toCompletable(ordersRef.get(), "orders", "query").handle((snapshot, error) -> {
+            List<Order> orders = new ArrayList<>();
+            if (error != null) {
+                error.printStackTrace();
+                return orders;
             }
 
-        } catch (InterruptedException | ExecutionException e) {
-            e.printStackTrace();
+            for (DocumentSnapshot doc : snapshot.getDocuments()) {
+                orders.add(toOrder(doc.getId(), doc.getData()));
+            }
+            return orders;
+        });
+    }
+
+    /** The {@code items} array stored on an order document. */
+    static List<Map<String, Object>> serializeItems(List<CartItem> items) {
+        List<Map<String, Object>> serializedItems = new ArrayList<>();
+        for (CartItem item : items) {
+            Map<String, Object> itemMap = new HashMap<>();
+            itemMap.put("id", item.getId());
+            itemMap.put("name", item.getName());
+            itemMap.put("price", item.getPrice());
+            itemMap.put("quantity", item.getQuantity());
+            itemMap.put("image", item.getImage());
+            itemMap.put("restaurant", item.getRestaurant());
+            serializedItems.add(itemMap);
         }
+        return serializedItems;
+    }
 
-        return orders;
+    /** Reads an order document's fields back into an {@link Order}. */
+    @SuppressWarnings("unchecked")
+    static Order toOrder(String id, Map<String, Object> data) {
+        Order order = new Order();
+        order.setId(id);
+        order.setUserId((String) data.get("userId"));
+        order.setAddress((String) data.get("address"));
+        order.setTotalAmount(((Number) data.get("totalAmount")).doubleValue());
+        order.setOrderDate(LocalDateTime.parse((String) data.get("orderDate")));
+        order.setStatus((String) data.get("status"));
+
+        List<Map<String, Object>> itemsList = (List<Map<String, Object>>) data.get("items");
+        if (itemsList != null) {
+            List<CartItem> cartItems = new ArrayList<>();
+            for (Map<String, Object> map : itemsList) {
+                CartItem item = new CartItem();
+                item.setId((String) map.get("id"));
+                item.setName((String) map.get("name"));
+                item.setPrice(((Number) map.get("price")).doubleValue());
+                item.setQuantity(((Number) map.get("quantity")).intValue());
+                item.setImage((String) map.get("image"));
+                item.setRestaurant((String) map.get("restaurant"));
+                cartItems.add(item);
+            }
+            order.setItems(cartItems);
+        }
+        return order;
     }
 
-    public void updateOrderStatus(String userId, String orderId, String newStatus) {
-        try {
-            DocumentReference orderRef = db.collection("users")
-                    .document(userId)
-                    .collection("orders")
-                    .document(orderId);
+    /**
+     * Returns one page of a user's orders, newest first, as response maps. The
+     * query is ordered on the stored {@code placedAt} millis, so its cost depends
+     * on {@code pageSize} rather than on how many orders the user has.
+     */
+    public CompletableFuture<Map<String, Object>> getOrdersPage(String userId, int pageSize, String cursor) {
+        Query query = db.collection("users").document(userId).collection("orders")
+                .orderBy("placedAt", Query.Direction.DESCENDING)
+                .orderBy(FieldPath.documentId(), Query.Direction.DESCENDING)
+                .limit(pageSize);
+        if (cursor != null) {
+            String[] position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":", 2);
+            query = query.startAfter(Long.parseLong(position[0]), position[1]);
+        }
 
-            DocumentSnapshot snapshot = orderRef.get().get();
-            if (!snapshot.exists()) return;
+        return FirestoreFutures.toCompletable(query.get(), "orders", "query")
+                .thenApply(snapshot -> toPage(snapshot.getDocuments(), pageSize));
+    }
 
-            String currentStatus = snapshot.getString("status");
-            if ("Cancelled".equalsIgnoreCase(currentStatus)) {
-                
-                System.out.println("⚠️ Order " + orderId + " already cancelled, skipping update.");
-                return;
-            }
+    private static Map<String, Object> toPage(List<QueryDocumentSnapshot> documents, int pageSize) {
+        List<Map<String, Object>> orders = new ArrayList<>(documents.size());
+        for (QueryDocumentSnapshot doc : documents) {
+            Map<String, Object> orderMap = new HashMap<>();
+            orderMap.put("id", doc.getId());
+            orderMap.put("totalAmount", doc.getDouble("totalAmount"));
+            orderMap.put("address", doc.getString("address"));
+            orderMap.put("date", doc.getString("orderDate"));
+            orderMap.put("status", doc.getString("status"));
+            orderMap.put("items", doc.get("items"));
+            orders.add(orderMap);
+        }
 
-            Map<String, Object> updateData = new HashMap<>();
-            updateData.put("status", newStatus);
-            orderRef.update(updateData).get();
+        String nextCursor = null;
+        if (documents.size() == pageSize) {
+            QueryDocumentSnapshot last = documents.get(documents.size() - 1);
+            String position = last.getLong("placedAt") + ":" + last.getId();
+            nextCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+        }
 
-            System.out.println(" Updated order " + orderId + " to status: " + newStatus);
-        } catch (Exception e) {
-            e.printStackTrace();
+        Map<String, Object> page = new HashMap<>();
+        page.put("orders", orders);
+        page.put("nextCursor", nextCursor);
+        return page;
+    }
+
+    /**
+     * Stores {@code placedAt} on orders written before it existed, derived from
+     * their {@code orderDate} string, so they show up in paged history.
+     */
+    public int backfillOrderTimestamps() throws ExecutionException, InterruptedException {
+        int updated = 0;
+        WriteBatch batch = db.batch();
+        int writes = 0;
+        for (QueryDocumentSnapshot doc : db.collectionGroup("orders").get().get().getDocuments()) {
+            if (doc.contains("placedAt") || doc.getString("orderDate") == null) continue;
+
+            long placedAt = LocalDateTime.parse(doc.getString("orderDate"))
+                    .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            batch.update(doc.getReference(), "placedAt", placedAt);
+            updated++;
+            if (++writes == 500) {
+                batch.commit().get();
+                batch = db.batch();
+                writes = 0;
+            }
         }
+        if (writes > 0) batch.commit().get();
+        return updated;
+    }
+
+    public CompletableFuture<Void> updateOrderStatus(String userId, String orderId, String newStatus) {
+        return applyTransition(userId, orderId, newStatus).handle((applied, e) -> {
+            if (e != null) {
+                e.printStackTrace();
+                return null;
+            }
+            if (!applied) {
+                System.out.println("⚠️ Order " + orderId + " missing or cancelled, skipping update.");
+                return null;
+            }
+            if ("Delivered".equalsIgnoreCase(newStatus)) {
+                lifecycle.cancel(orderId);
+            }
+            System.out.println(" Updated order " + orderId + " to status: " + newStatus);
+            return null;
+        });
+    }
+
+    private CompletableFuture<Boolean> applyTransition(String userId, String orderId, String newStatus) {
+        return statusPipeline.submit(userId, orderId, newStatus).thenApply(applied -> {
+            if (applied) {
+                events.publish(userId, orderId, newStatus);
+                countTransition(newStatus);
+                analytics.statusChanged(newStatus);
+                kitchen.statusChanged(userId, orderId, newStatus);
+                journal.statusChanged(userId, orderId, newStatus);
+            }
+            return applied;
+        });
     }
 }
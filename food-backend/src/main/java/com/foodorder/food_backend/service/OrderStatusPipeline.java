@@ -0,0 +1,256 @@
+package com.foodorder.food_backend.service;
+
+import com.foodorder.food_backend.config.BackgroundThreads;
+import com.google.api.core.ApiFuture;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.*;
+import io.grpc.Status;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Writes order status transitions in groups. Transitions are queued, drained
+ * into a {@link BulkWriter} up to {@code orders.status.batch-size} at a time
+ * and flushed together. Each update carries an update-time precondition taken
+ * from the order's last known write, so a concurrent cancellation makes the
+ * transition fail instead of requiring a read before every write.
+ */
+@Component
+public class OrderStatusPipeline {
+
+    private final Firestore db;
+    private final BackgroundThreads threads;
+    private final int batchSize;
+    private final long lingerMs;
+    private final BulkWriter writer;
+
+    private final BlockingQueue<Write> queue = new LinkedBlockingQueue<>();
+    private final Map<String, Timestamp> versions = new ConcurrentHashMap<>();
+    private volatile boolean running = true;
+    private Thread drainer;
+
+    private final LongAdder committed = new LongAdder();
+    private final LongAdder stale = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final long startedAt = System.currentTimeMillis();
+
+    public OrderStatusPipeline(Firestore db, BackgroundThreads threads, MeterRegistry registry,
+                               @Value("${orders.status.batch-size:200}") int batchSize,
+                               @Value("${orders.status.linger-ms:10}") long lingerMs,
+                               @Value("${orders.status.max-ops-per-second:500}") int maxOpsPerSecond) {
+        this.db = db;
+        this.threads = threads;
+        this.batchSize = batchSize;
+        this.lingerMs = lingerMs;
+        this.writer = db.bulkWriter(BulkWriterOptions.builder()
+                .setInitialOpsPerSecond(Math.min(maxOpsPerSecond, 500))
+                .setMaxOpsPerSecond(maxOpsPerSecond)
+                .build());
+
+        Map<String, LongAdder> outcomes = Map.of("committed", committed, "stale", stale, "failed", failed);
+        outcomes.forEach((outcome, count) -> FunctionCounter.builder("orders.status.writes", count, LongAdder::sum)
+                .description("Status updates written by the pipeline, by outcome")
+                .tag("outcome", outcome)
+                .register(registry));
+    }
+
+    @PostConstruct
+    public void start() {
+        drainer = threads.start("order-status-pipeline", this::drain);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (drainer != null) drainer.interrupt();
+        try {
+            writer.close();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /** Remembers the update time of a write this process made to an order. */
+    public void recordVersion(String orderId, Timestamp updateTime) {
+        versions.put(orderId, updateTime);
+    }
+
+    public void forget(String orderId) {
+        versions.remove(orderId);
+    }
+
+    /**
+     * Queues a status change. Completes with false if the order does not exist
+     * or has been cancelled, true once the new status is committed.
+     */
+    public CompletableFuture<Boolean> submit(String userId, String orderId, String status) {
+        Timestamp version = versions.get(orderId);
+        if (version != null) {
+            Transition transition = new Transition(orderRef(userId, orderId), userId, orderId, status, version, true);
+            queue.add(transition);
+            return transition.result;
+        }
+        return resolveAndSubmit(userId, orderId, status, false);
+    }
+
+    /** Queues an unconditional write that should ride along with the next batch. */
+    public void enqueue(DocumentReference ref, Map<String, Object> fields) {
+        queue.add(new SideWrite(ref, fields, false));
+    }
+
+    /** Like {@link #enqueue}, but only applied if the document still exists. */
+    public void enqueueUpdate(DocumentReference ref, Map<String, Object> fields) {
+        queue.add(new SideWrite(ref, fields, true));
+    }
+
+    /** Queues a delete that should ride along with the next batch. */
+    public void enqueueDelete(DocumentReference ref) {
+        queue.add(new SideWrite(ref, null, false));
+    }
+
+    /**
+     * Without a known version we read the order once to learn its state and
+     * update time; this only happens for orders placed by another process.
+     */
+    private CompletableFuture<Boolean> resolveAndSubmit(String userId, String orderId, String status, boolean retried) {
+        DocumentReference ref = orderRef(userId, orderId);
+        return FirestoreFutures.toCompletable(ref.get(), "orders", "get").thenCompose(snapshot -> {
+            if (!snapshot.exists() || "Cancelled".equalsIgnoreCase(snapshot.getString("status"))) {
+                versions.remove(orderId);
+                return CompletableFuture.completedFuture(false);
+            }
+            Transition transition = new Transition(ref, userId, orderId, status, snapshot.getUpdateTime(), !retried);
+            queue.add(transition);
+            return transition.result;
+        });
+    }
+
+    private void drain() {
+        List<Write> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Write first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+
+                long lingerUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMs);
+                while (batch.size() < batchSize) {
+                    long remaining = lingerUntil - System.nanoTime();
+                    Write next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) break;
+                    batch.add(next);
+                }
+
+                commit(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                e.printStackTrace();
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<Write> batch) throws InterruptedException {
+        for (Write write : batch) write.addTo(writer);
+        try {
+            writer.flush().get();
+        } catch (ExecutionException e) {
+            // Individual results are reported through each write's own future.
+            e.printStackTrace();
+        }
+        batches.increment();
+    }
+
+    private DocumentReference orderRef(String userId, String orderId) {
+        return db.collection("users").document(userId).collection("orders").document(orderId);
+    }
+
+    public Map<String, Object> stats() {
+        long count = batches.sum();
+        long elapsedSec = Math.max(1, (System.currentTimeMillis() - startedAt) / 1000);
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queued", queue.size());
+        stats.put("committed", committed.sum());
+        stats.put("stale", stale.sum());
+        stats.put("failed", failed.sum());
+        stats.put("batches", count);
+        stats.put("avgBatchSize", count == 0 ? 0 : (committed.sum() + stale.sum() + failed.sum()) / (double) count);
+        stats.put("avgCommitsPerSecond", committed.sum() / (double) elapsedSec);
+        stats.put("batchSize", batchSize);
+        stats.put("trackedVersions", versions.size());
+        return stats;
+    }
+
+    private interface Write {
+        void addTo(BulkWriter writer);
+    }
+
+    private final class Transition implements Write {
+        final DocumentReference ref;
+        final String userId;
+        final String orderId;
+        final String status;
+        final Timestamp version;
+        final boolean retryOnConflict;
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        Transition(DocumentReference ref, String userId, String orderId, String status, Timestamp version,
+                   boolean retryOnConflict) {
+            this.ref = ref;
+            this.userId = userId;
+            this.orderId = orderId;
+            this.status = status;
+            this.version = version;
+            this.retryOnConflict = retryOnConflict;
+        }
+
+        @Override
+        public void addTo(BulkWriter writer) {
+            ApiFuture<WriteResult> write = writer.update(ref, Map.of("status", status), Precondition.updatedAt(version));
+            FirestoreFutures.toCompletable(write, "orders", "update").whenComplete((res, error) -> {
+                if (error == null) {
+                    versions.put(orderId, res.getUpdateTime());
+                    committed.increment();
+                    result.complete(true);
+                } else if (FirestoreFutures.hasStatus(error, Status.Code.FAILED_PRECONDITION)
+                        || FirestoreFutures.hasStatus(error, Status.Code.NOT_FOUND)) {
+                    // Someone else wrote the order since we last did, most likely a cancellation.
+                    stale.increment();
+                    versions.remove(orderId, version);
+                    if (!retryOnConflict) {
+                        result.complete(false);
+                        return;
+                    }
+                    resolveAndSubmit(userId, orderId, status, true).whenComplete((applied, retryError) -> {
+                        if (retryError != null) result.completeExceptionally(retryError);
+                        else result.complete(applied);
+                    });
+                } else {
+                    failed.increment();
+                    result.completeExceptionally(error);
+                }
+            });
+        }
+    }
+
+    private record SideWrite(DocumentReference ref, Map<String, Object> fields, boolean mustExist) implements Write {
+        @Override
+        public void addTo(BulkWriter writer) {
+            if (fields == null) writer.delete(ref);
+            else if (mustExist) writer.update(ref, fields);
+            else writer.set(ref, fields, SetOptions.merge());
+        }
+    }
+}
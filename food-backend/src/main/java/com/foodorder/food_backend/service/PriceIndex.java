@@ -0,0 +1,243 @@
+package com.foodorder.food_backend.service;
+
+import com.foodorder.food_backend.config.BackgroundThreads;
+import com.foodorder.food_backend.model.Food;
+import com.foodorder.food_backend.model.Restaurant;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Current menu prices, for checking order totals without a Firestore read.
+ * Prices are looked up by food id, or by restaurant name and item name since
+ * that is what the cart carries; standalone {@code foods} have no restaurant
+ * and are found by name alone. A name two items share at different prices
+ * is ambiguous and only their ids find them. The index is an open-addressing
+ * table of 64-bit key hashes and prices in cents held in two primitive
+ * arrays, about 12 bytes per slot, and is rebuilt off-thread whenever the
+ * catalog changes, coalescing changes that arrive during a rebuild.
+ * Menu items come from embedded restaurant menus or, in subcollection mode,
+ * from {@link CatalogCache#menus()}.
+ */
+@Component
+public class PriceIndex {
+
+    /** Returned by {@link #priceCents} for an unknown item. */
+    public static final int UNKNOWN = -1;
+
+    /** Stored under a name key shared by items with different prices. */
+    private static final int AMBIGUOUS = -2;
+
+    private final CatalogCache catalog;
+    private final ThreadPoolTaskScheduler rebuilder;
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+
+    private volatile Table table = Table.EMPTY;
+    private volatile boolean ready;
+
+    public PriceIndex(CatalogCache catalog, BackgroundThreads threads) {
+        this.catalog = catalog;
+        this.rebuilder = threads.scheduler("price-index-");
+    }
+
+    @PostConstruct
+    public void start() {
+        catalog.foods().onChange((key, before, after) -> requestRebuild());
+        catalog.restaurants().onChange((key, before, after) -> requestRebuild());
+        catalog.menus().onChange((key, before, after) -> requestRebuild());
+        // An empty collection loads without any change, and readiness must not wait for one.
+        catalog.foods().onLoad(this::requestRebuild);
+        catalog.restaurants().onLoad(this::requestRebuild);
+        catalog.menus().onLoad(this::requestRebuild);
+    }
+
+    @PreDestroy
+    public void stop() {
+        rebuilder.shutdown();
+    }
+
+    /** Whether the catalog has loaded, i.e. an unknown item really is unknown. */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /** Price in cents of the item, or {@link #UNKNOWN}. The food id wins when both match. */
+    public int priceCents(String foodId, String restaurantName, String itemName) {
+        Table current = table;
+        if (foodId != null) {
+            int cents = current.get(idKey(foodId));
+            if (cents != UNKNOWN) return cents;
+        }
+        if (itemName == null) return UNKNOWN;
+        return current.get(nameKey(restaurantName, itemName));
+    }
+
+    public int size() {
+        return table.size;
+    }
+
+    private void requestRebuild() {
+        if (rebuildQueued.compareAndSet(false, true)) {
+            rebuilder.execute(() -> {
+                rebuildQueued.set(false);
+                rebuild();
+            });
+        }
+    }
+
+    private void rebuild() {
+        try {
+            Table.Builder prices = new Table.Builder();
+            if (catalog.foods().isLoaded()) {
+                for (Food food : catalog.foods().all().join()) add(prices, null, food);
+            }
+            if (catalog.restaurants().isLoaded()) {
+                for (Restaurant restaurant : catalog.restaurants().all().join()) {
+                    if (restaurant.getMenu() == null) continue;
+                    for (Food food : restaurant.getMenu()) add(prices, restaurant.getName(), food);
+                }
+            }
+            for (Map.Entry<String, Food> item : catalog.menus().entries().entrySet()) {
+                Restaurant restaurant = catalog.restaurants().get(CatalogCache.menuRestaurantId(item.getKey()));
+                add(prices, restaurant == null ? null : restaurant.getName(), item.getValue());
+            }
+
+            table = prices.build();
+            ready = catalog.foods().isLoaded() && catalog.restaurants().isLoaded() && catalog.menus().isLoaded();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void add(Table.Builder prices, String restaurantName, Food food) {
+        int cents = toCents(food.getPrice());
+        if (food.getId() != null) prices.put(idKey(food.getId()), cents);
+        if (food.getName() != null) prices.putName(nameKey(restaurantName, food.getName()), cents);
+    }
+
+    public static int toCents(double price) {
+        return (int) Math.round(price * 100);
+    }
+
+    private static long idKey(String foodId) {
+        return hash(1, foodId);
+    }
+
+    private static long nameKey(String restaurantName, String itemName) {
+        return hash(hash(2, restaurantName == null ? "" : restaurantName), itemName);
+    }
+
+    /** FNV-1a over the UTF-16 chars, seeded so the two key kinds don't collide. */
+    private static long hash(long seed, String value) {
+        long h = 0xcbf29ce484222325L ^ seed;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ready", ready);
+        stats.put("entries", table.size);
+        stats.put("slots", table.keys.length);
+        stats.put("ambiguousNames", table.ambiguous);
+        return stats;
+    }
+
+    /** Immutable open-addressing map from non-zero long keys to int prices. */
+    static final class Table {
+        static final Table EMPTY = new Builder().build();
+
+        final long[] keys;
+        final int[] cents;
+        final int size;
+        final int ambiguous;
+        private final int mask;
+
+        private Table(long[] keys, int[] cents, int size, int ambiguous) {
+            this.keys = keys;
+            this.cents = cents;
+            this.size = size;
+            this.ambiguous = ambiguous;
+            this.mask = keys.length - 1;
+        }
+
+        int get(long key) {
+            int slot = find(keys, key == 0 ? 1 : key);
+            return keys[slot] == 0 || cents[slot] == AMBIGUOUS ? UNKNOWN : cents[slot];
+        }
+
+        /** The slot holding {@code k}, or the empty slot where it would go. */
+        private static int find(long[] keys, long k) {
+            int mask = keys.length - 1;
+            int slot = (int) ((k * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+            while (keys[slot] != 0 && keys[slot] != k) slot = (slot + 1) & mask;
+            return slot;
+        }
+
+        /** Fills the arrays in place, doubling them at 3/4 full; {@link #build} hands them over. */
+        static final class Builder {
+            private long[] keys = new long[16];
+            private int[] cents = new int[16];
+            private int size;
+            private int ambiguous;
+
+            /** Maps {@code key} to {@code value}, replacing any earlier price. */
+            void put(long key, int value) {
+                int slot = slotFor(key);
+                cents[slot] = value;
+            }
+
+            /** Maps {@code key} to {@code value}, unless another item already has it at a different price. */
+            void putName(long key, int value) {
+                int slot = slotFor(key);
+                if (cents[slot] == UNKNOWN) {
+                    cents[slot] = value;
+                } else if (cents[slot] != value && cents[slot] != AMBIGUOUS) {
+                    cents[slot] = AMBIGUOUS;
+                    ambiguous++;
+                }
+            }
+
+            Table build() {
+                Table table = new Table(keys, cents, size, ambiguous);
+                keys = null;
+                cents = null;
+                return table;
+            }
+
+            /** The slot for {@code key}, claimed with an {@link #UNKNOWN} price if the key is new. */
+            private int slotFor(long key) {
+                if ((size + 1) * 4 > keys.length * 3) grow();
+                long k = key == 0 ? 1 : key;
+                int slot = find(keys, k);
+                if (keys[slot] == 0) {
+                    keys[slot] = k;
+                    cents[slot] = UNKNOWN;
+                    size++;
+                }
+                return slot;
+            }
+
+            private void grow() {
+                long[] oldKeys = keys;
+                int[] oldCents = cents;
+                keys = new long[oldKeys.length * 2];
+                cents = new int[oldKeys.length * 2];
+                for (int i = 0; i < oldKeys.length; i++) {
+                    if (oldKeys[i] == 0) continue;
+                    int slot = find(keys, oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    cents[slot] = oldCents[i];
+                }
+            }
+        }
+    }
+}
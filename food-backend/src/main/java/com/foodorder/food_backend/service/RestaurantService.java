@@ -2,75 +2,98 @@ package com.foodorder.food_backend.service;
 
 import com.foodorder.food_backend.model.Restaurant;
 import com.foodorder.food_backend.model.Food;
-import com.google.api.core.ApiFuture;
 import com.google.cloud.firestore.*;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class RestaurantService {
 
     private final Firestore db;
-
-    public RestaurantService(Firestore db) {
+    private final CatalogCache catalog;
+    private final MenuStore menuStore;
+    private final CatalogSearch search;
+    private final GeoIndex geo;
+    private final CatalogResponses responses;
+    private final KitchenQueue kitchen;
+
+    public RestaurantService(Firestore db, CatalogCache catalog, MenuStore menuStore, CatalogSearch search,
+                             GeoIndex geo, CatalogResponses responses, KitchenQueue kitchen) {
         this.db = db;
+        this.catalog = catalog;
+        this.menuStore = menuStore;
+        this.search = search;
+        this.geo = geo;
+        this.responses = responses;
+        this.kitchen = kitchen;
     }
 
-    public String addRestaurant(Restaurant restaurant) throws ExecutionException, InterruptedException {
-        ApiFuture<DocumentReference> future = db.collection("restaurants").add(restaurant);
-        return future.get().getId();
+    public CompletableFuture<String> addRestaurant(Restaurant restaurant) {
+        return FirestoreFutures.toCompletable(db.collection("restaurants").add(restaurant), "restaurants", "add").thenApply(ref -> {
+            String id = ref.getId();
+            restaurant.setId(id);
+            catalog.restaurants().put(id, restaurant);
+            return id;
+        });
     }
 
-    public List<Restaurant> getAllRestaurants() throws ExecutionException, InterruptedException {
-        List<Restaurant> restaurants = new ArrayList<>();
-        ApiFuture<QuerySnapshot> future = db.collection("restaurants").get();
-        for (DocumentSnapshot doc : future.get().getDocuments()) {
-            Restaurant restaurant = doc.toObject(Restaurant.class);
-            restaurant.setId(doc.getId());
-            restaurants.add(restaurant);
-        }
-        return restaurants;
+    /** All restaurants with their menus, rendered once per change to the collection. */
+    public CompletableFuture<CatalogResponses.Rendered> getAllRestaurants() {
+        return responses.restaurants();
     }
 
-    public String addFoodToRestaurant(String restaurantId, Food food) throws ExecutionException, InterruptedException {
-        DocumentReference restaurantRef = db.collection("restaurants").document(restaurantId);
-        DocumentSnapshot snapshot = restaurantRef.get().get();
-
-        if (!snapshot.exists()) {
-            throw new RuntimeException("Restaurant not found with ID: " + restaurantId);
-        }
-
-        Restaurant restaurant = snapshot.toObject(Restaurant.class);
-        if (restaurant != null) {
-            List<Food> menu = restaurant.getMenu();
-            if (menu == null) menu = new ArrayList<>();
+    public CompletableFuture<String> addFoodToRestaurant(String restaurantId, Food food) {
+        return menuStore.add(restaurantId, food).thenApply(added -> {
+            search.addMenuItem(restaurantId, food);
+            return "Food added successfully to menu.";
+        });
+    }
 
-            food.setId(java.util.UUID.randomUUID().toString());
-            menu.add(food);
+    public CompletableFuture<Boolean> updateMenuItem(String restaurantId, String foodId, Food food) {
+        return menuStore.update(restaurantId, foodId, food);
+    }
 
-            restaurant.setMenu(menu);
-            restaurantRef.set(restaurant);
+    public CompletableFuture<Boolean> removeMenuItem(String restaurantId, String foodId) {
+        return menuStore.remove(restaurantId, foodId);
+    }
 
-            return "Food added successfully to menu.";
-        }
+    public CompletableFuture<CatalogResponses.Rendered> getFoodsByRestaurant(String restaurantId) {
+        return responses.menu(restaurantId);
+    }
 
-        return "Failed to add food item.";
+    public CompletableFuture<Map<String, Object>> getFoodsByRestaurant(String restaurantId, int pageSize, String cursor) {
+        return menuStore.page(restaurantId, pageSize, cursor);
     }
 
-    public List<Food> getFoodsByRestaurant(String restaurantId) throws ExecutionException, InterruptedException {
-        DocumentReference restaurantRef = db.collection("restaurants").document(restaurantId);
-        DocumentSnapshot snapshot = restaurantRef.get().get();
+    /** The restaurant's active orders for its kitchen, oldest first; {@code status} may be null for all. */
+    public CompletableFuture<CatalogResponses.Rendered> getKitchenOrders(String restaurantId, String status) {
+        return kitchen.orders(restaurantId, status);
+    }
 
-        if (snapshot.exists()) {
-            Restaurant restaurant = snapshot.toObject(Restaurant.class);
-            return restaurant != null && restaurant.getMenu() != null
-                    ? restaurant.getMenu()
-                    : new ArrayList<>();
+    /**
+     * The nearest restaurants within {@code radiusKm}, closest first, without
+     * their menus. Restaurants without coordinates are never returned.
+     */
+    public List<Map<String, Object>> getNearbyRestaurants(double lat, double lng, double radiusKm, int limit) {
+        List<Map<String, Object>> nearby = new ArrayList<>();
+        for (GeoIndex.Nearby hit : geo.nearest(lat, lng, radiusKm, limit)) {
+            Restaurant restaurant = catalog.restaurants().get(hit.restaurantId());
+            if (restaurant == null) continue;
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("id", restaurant.getId());
+            result.put("name", restaurant.getName());
+            result.put("location", restaurant.getLocation());
+            result.put("imageUrl", restaurant.getImageUrl());
+            result.put("latitude", restaurant.getLatitude());
+            result.put("longitude", restaurant.getLongitude());
+            result.put("distanceKm", Math.round(hit.distanceKm() * 100) / 100.0);
+            nearby.add(result);
         }
-
-        return new ArrayList<>();
+        return nearby;
     }
 }
@@ -0,0 +1,286 @@
+package com.foodorder.food_backend.service;
+
+import com.foodorder.food_backend.analytics.TopKSketch;
+import com.foodorder.food_backend.config.BackgroundThreads;
+import com.foodorder.food_backend.model.CartItem;
+import com.google.cloud.firestore.*;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sales figures kept up to date as orders happen instead of scanning
+ * {@code users/{userId}/orders}. Each tumbling window of
+ * {@code analytics.window-minutes} counts placements, cancellations and
+ * status transitions, sums revenue overall and per restaurant, and sketches
+ * the most ordered items and the spread of order values. Reports merge the
+ * windows they cover in memory.
+ *
+ * <p>Windows changed since the last checkpoint are written to
+ * {@code analytics/{windowStart}} every {@code analytics.checkpoint-seconds}
+ * and the retained ones are read back on startup, so a restart loses at most
+ * the events of one checkpoint interval.
+ */
+@Component
+public class SalesAnalytics {
+
+    private static final int TOP_ITEM_CAPACITY = 256;
+    private static final double VALUE_ACCURACY = 0.01;
+
+    private final Firestore db;
+    private final BackgroundThreads threads;
+    private final long windowMs;
+    private final int retainedWindows;
+    private final long checkpointMs;
+    private final Set<String> knownStatuses = new HashSet<>();
+
+    private final ConcurrentSkipListMap<Long, SalesWindow> windows = new ConcurrentSkipListMap<>();
+    private ThreadPoolTaskScheduler scheduler;
+    private volatile boolean restored;
+
+    private final LongAdder checkpoints = new LongAdder();
+    private final LongAdder checkpointFailures = new LongAdder();
+    private final LongAdder windowsWritten = new LongAdder();
+    private volatile long lastCheckpointMillis;
+
+    public SalesAnalytics(Firestore db, BackgroundThreads threads,
+                          @Value("${analytics.window-minutes:60}") long windowMinutes,
+                          @Value("${analytics.retained-windows:168}") int retainedWindows,
+                          @Value("${analytics.checkpoint-seconds:60}") long checkpointSeconds) {
+        this.db = db;
+        this.threads = threads;
+        this.windowMs = Duration.ofMinutes(windowMinutes).toMillis();
+        this.retainedWindows = retainedWindows;
+        this.checkpointMs = Duration.ofSeconds(checkpointSeconds).toMillis();
+        for (String status : OrderLifecycleEngine.STEPS) knownStatuses.add(status);
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler = threads.scheduler("analytics-");
+        scheduler.execute(this::restore);
+        scheduler.scheduleWithFixedDelay(this::checkpoint, Instant.now().plusMillis(checkpointMs),
+                Duration.ofMillis(checkpointMs));
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdown();
+        checkpoint();
+    }
+
+    public void orderPlaced(List<CartItem> items, double totalAmount) {
+        SalesWindow window = current();
+        synchronized (window) {
+            window.placed(items, totalAmount);
+        }
+    }
+
+    public void orderCancelled(List<CartItem> items, double totalAmount) {
+        SalesWindow window = current();
+        synchronized (window) {
+            window.cancelled(items, totalAmount);
+        }
+    }
+
+    /** Counts a lifecycle transition; statuses the lifecycle does not know are counted as "other". */
+    public void statusChanged(String status) {
+        String label = status != null && knownStatuses.contains(status) ? status : "other";
+        SalesWindow window = current();
+        synchronized (window) {
+            window.transitioned(label);
+        }
+    }
+
+    private SalesWindow current() {
+        return windows.computeIfAbsent(windowStart(System.currentTimeMillis()), this::newWindow);
+    }
+
+    private SalesWindow newWindow(long start) {
+        return new SalesWindow(start, TOP_ITEM_CAPACITY, VALUE_ACCURACY);
+    }
+
+    private long windowStart(long millis) {
+        return millis - Math.floorMod(millis, windowMs);
+    }
+
+    /**
+     * Merges the checkpointed windows into memory. Events recorded before this
+     * runs stay in their windows and are added to, not replaced.
+     */
+    synchronized void restore() {
+        if (restored) return;
+        long oldest = windowStart(System.currentTimeMillis()) - (retainedWindows - 1) * windowMs;
+        try {
+            Query query = db.collection("analytics").whereGreaterThanOrEqualTo("start", oldest);
+            List<QueryDocumentSnapshot> docs = FirestoreFutures.toCompletable(query.get(), "analytics", "query")
+                    .get().getDocuments();
+            int loaded = 0;
+            for (QueryDocumentSnapshot doc : docs) {
+                Long savedWindowMs = doc.getLong("windowMs");
+                if (savedWindowMs == null || savedWindowMs != windowMs) continue;
+                SalesWindow saved = SalesWindow.fromDocument(doc.getData(), TOP_ITEM_CAPACITY, VALUE_ACCURACY);
+                if (saved == null) continue;
+                SalesWindow window = windows.computeIfAbsent(saved.start, this::newWindow);
+                synchronized (window) {
+                    window.merge(saved);
+                }
+                loaded++;
+            }
+            restored = true;
+            System.out.println("Restored " + loaded + " sales analytics windows");
+        } catch (Exception e) {
+            System.out.println("⚠️ Could not restore sales analytics, will retry: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes every window changed since the last checkpoint and drops windows
+     * that have fallen out of retention. Nothing is written until the saved
+     * windows have been restored, so a partial window never overwrites one.
+     */
+    synchronized void checkpoint() {
+        if (!restored) {
+            restore();
+            if (!restored) return;
+        }
+
+        List<SalesWindow> written = new ArrayList<>();
+        WriteBatch batch = db.batch();
+        for (SalesWindow window : windows.values()) {
+            synchronized (window) {
+                if (!window.dirty) continue;
+                batch.set(db.collection("analytics").document(documentId(window.start)), window.toDocument(windowMs));
+                window.dirty = false;
+            }
+            written.add(window);
+        }
+
+        if (!written.isEmpty()) {
+            try {
+                FirestoreFutures.toCompletable(batch.commit(), "analytics", "commit").get();
+                windowsWritten.add(written.size());
+                checkpoints.increment();
+                lastCheckpointMillis = System.currentTimeMillis();
+            } catch (Exception e) {
+                checkpointFailures.increment();
+                for (SalesWindow window : written) {
+                    synchronized (window) {
+                        window.dirty = true;
+                    }
+                }
+                System.out.println("⚠️ Sales analytics checkpoint failed: " + e.getMessage());
+                return;
+            }
+        }
+
+        long cutoff = windowStart(System.currentTimeMillis()) - (retainedWindows - 1) * windowMs;
+        windows.headMap(cutoff).values().removeIf(window -> {
+            synchronized (window) {
+                return !window.dirty;
+            }
+        });
+    }
+
+    private static String documentId(long start) {
+        return Instant.ofEpochMilli(start).toString();
+    }
+
+    /** Sales over the last {@code windowCount} windows, including the one in progress. */
+    public Map<String, Object> report(int windowCount, int limit) {
+        long to = windowStart(System.currentTimeMillis());
+        long from = to - (Math.max(1, windowCount) - 1) * windowMs;
+
+        SalesWindow total = newWindow(from);
+        List<Map<String, Object>> series = new ArrayList<>();
+        for (SalesWindow window : windows.subMap(from, true, to, true).values()) {
+            synchronized (window) {
+                total.merge(window);
+                Map<String, Object> point = new LinkedHashMap<>();
+                point.put("start", documentId(window.start));
+                point.put("placed", window.placed);
+                point.put("cancelled", window.cancelled);
+                point.put("revenue", window.revenueCents / 100.0);
+                series.add(point);
+            }
+        }
+
+        Map<String, Object> orders = new LinkedHashMap<>();
+        orders.put("placed", total.placed);
+        orders.put("cancelled", total.cancelled);
+        orders.put("transitions", total.transitions);
+
+        Map<String, Object> revenue = new LinkedHashMap<>();
+        revenue.put("gross", total.revenueCents / 100.0);
+        revenue.put("cancelled", total.cancelledCents / 100.0);
+        revenue.put("net", (total.revenueCents - total.cancelledCents) / 100.0);
+
+        Map<String, Object> orderValue = new LinkedHashMap<>();
+        orderValue.put("mean", total.placed == 0 ? 0 : total.revenueCents / 100.0 / total.placed);
+        orderValue.put("p50", round(total.orderValues.quantile(0.5)));
+        orderValue.put("p90", round(total.orderValues.quantile(0.9)));
+        orderValue.put("p99", round(total.orderValues.quantile(0.99)));
+
+        List<Map.Entry<String, SalesWindow.RestaurantSales>> ranked = new ArrayList<>(total.restaurants.entrySet());
+        ranked.sort(Comparator.comparingLong(
+                (Map.Entry<String, SalesWindow.RestaurantSales> e) -> e.getValue().revenueCents - e.getValue().cancelledCents)
+                .reversed());
+        List<Map<String, Object>> restaurants = new ArrayList<>();
+        for (Map.Entry<String, SalesWindow.RestaurantSales> entry : ranked.subList(0, Math.min(limit, ranked.size()))) {
+            SalesWindow.RestaurantSales sales = entry.getValue();
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("restaurant", entry.getKey());
+            row.put("orders", sales.orders);
+            row.put("revenue", sales.revenueCents / 100.0);
+            row.put("cancelled", sales.cancelledCents / 100.0);
+            restaurants.add(row);
+        }
+
+        List<Map<String, Object>> topItems = new ArrayList<>();
+        for (TopKSketch.Entry entry : total.items.top(limit)) {
+            String[] key = SalesWindow.splitItemKey(entry.key());
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("restaurant", key[0]);
+            row.put("item", key[1]);
+            row.put("quantity", entry.count());
+            row.put("maxOvercount", entry.error());
+            topItems.add(row);
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("windowMinutes", windowMs / 60_000);
+        report.put("from", documentId(from));
+        report.put("to", documentId(to + windowMs));
+        report.put("orders", orders);
+        report.put("revenue", revenue);
+        report.put("orderValue", orderValue);
+        report.put("restaurants", restaurants);
+        report.put("topItems", topItems);
+        report.put("series", series);
+        report.put("checkpoint", stats());
+        return report;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("restored", restored);
+        stats.put("windowsInMemory", windows.size());
+        stats.put("checkpoints", checkpoints.sum());
+        stats.put("windowsWritten", windowsWritten.sum());
+        stats.put("failures", checkpointFailures.sum());
+        stats.put("lastCheckpointAgoMs", lastCheckpointMillis == 0 ? -1 : System.currentTimeMillis() - lastCheckpointMillis);
+        return stats;
+    }
+
+    private static double round(double amount) {
+        return Math.round(amount * 100) / 100.0;
+    }
+}
@@ -0,0 +1,198 @@
+package com.foodorder.food_backend.service;
+
+import com.foodorder.food_backend.analytics.QuantileSketch;
+import com.foodorder.food_backend.analytics.TopKSketch;
+import com.foodorder.food_backend.model.CartItem;
+
+import java.util.*;
+
+/**
+ * The sales aggregates of one tumbling window. Callers synchronize on the
+ * window. Amounts are kept in cents so sums stay exact.
+ */
+final class SalesWindow {
+
+    static final String UNKNOWN_RESTAURANT = "unknown";
+
+    /** Per-restaurant totals within the window. */
+    static final class RestaurantSales {
+        long orders;
+        long revenueCents;
+        long cancelledCents;
+    }
+
+    final long start;
+    long placed;
+    long cancelled;
+    long revenueCents;
+    long cancelledCents;
+    final Map<String, Long> transitions = new TreeMap<>();
+    final Map<String, RestaurantSales> restaurants = new HashMap<>();
+    final TopKSketch items;
+    final QuantileSketch orderValues;
+    boolean dirty;
+
+    SalesWindow(long start, int topItemCapacity, double valueAccuracy) {
+        this.start = start;
+        this.items = new TopKSketch(topItemCapacity);
+        this.orderValues = new QuantileSketch(valueAccuracy);
+    }
+
+    void placed(List<CartItem> orderItems, double totalAmount) {
+        placed++;
+        revenueCents += PriceIndex.toCents(totalAmount);
+        orderValues.add(totalAmount);
+
+        Set<String> counted = new HashSet<>();
+        for (CartItem item : orderItems) {
+            String restaurant = restaurantOf(item);
+            RestaurantSales sales = restaurants.computeIfAbsent(restaurant, r -> new RestaurantSales());
+            sales.revenueCents += (long) PriceIndex.toCents(item.getPrice()) * item.getQuantity();
+            if (counted.add(restaurant)) sales.orders++;
+            items.add(itemKey(restaurant, item.getName()), item.getQuantity());
+        }
+        dirty = true;
+    }
+
+    void cancelled(List<CartItem> orderItems, double totalAmount) {
+        cancelled++;
+        cancelledCents += PriceIndex.toCents(totalAmount);
+        for (CartItem item : orderItems) {
+            restaurants.computeIfAbsent(restaurantOf(item), r -> new RestaurantSales()).cancelledCents +=
+                    (long) PriceIndex.toCents(item.getPrice()) * item.getQuantity();
+        }
+        dirty = true;
+    }
+
+    void transitioned(String status) {
+        transitions.merge(status, 1L, Long::sum);
+        dirty = true;
+    }
+
+    /** Adds {@code other}'s aggregates to this window's; does not mark it dirty. */
+    void merge(SalesWindow other) {
+        placed += other.placed;
+        cancelled += other.cancelled;
+        revenueCents += other.revenueCents;
+        cancelledCents += other.cancelledCents;
+        other.transitions.forEach((status, n) -> transitions.merge(status, n, Long::sum));
+        other.restaurants.forEach((restaurant, theirs) -> {
+            RestaurantSales sales = restaurants.computeIfAbsent(restaurant, r -> new RestaurantSales());
+            sales.orders += theirs.orders;
+            sales.revenueCents += theirs.revenueCents;
+            sales.cancelledCents += theirs.cancelledCents;
+        });
+        items.merge(other.items);
+        orderValues.merge(other.orderValues);
+    }
+
+    private static String restaurantOf(CartItem item) {
+        return item.getRestaurant() == null || item.getRestaurant().isBlank() ? UNKNOWN_RESTAURANT : item.getRestaurant();
+    }
+
+    /** Item names are only unique within a restaurant, so the sketch counts both. */
+    static String itemKey(String restaurant, String name) {
+        return restaurant + "\n" + name;
+    }
+
+    static String[] splitItemKey(String key) {
+        int split = key.indexOf('\n');
+        return split < 0 ? new String[]{UNKNOWN_RESTAURANT, key} : new String[]{key.substring(0, split), key.substring(split + 1)};
+    }
+
+    /**
+     * The checkpoint document. Keyed data is stored as lists of maps because
+     * restaurant and item names are not safe to use as Firestore field names.
+     */
+    Map<String, Object> toDocument(long windowMs) {
+        Map<String, Object> doc = new HashMap<>();
+        doc.put("start", start);
+        doc.put("windowMs", windowMs);
+        doc.put("placed", placed);
+        doc.put("cancelled", cancelled);
+        doc.put("revenueCents", revenueCents);
+        doc.put("cancelledCents", cancelledCents);
+
+        List<Map<String, Object>> statusList = new ArrayList<>();
+        transitions.forEach((status, n) -> statusList.add(Map.of("status", status, "count", n)));
+        doc.put("transitions", statusList);
+
+        List<Map<String, Object>> restaurantList = new ArrayList<>();
+        restaurants.forEach((restaurant, sales) -> restaurantList.add(Map.of(
+                "restaurant", restaurant,
+                "orders", sales.orders,
+                "revenueCents", sales.revenueCents,
+                "cancelledCents", sales.cancelledCents)));
+        doc.put("restaurants", restaurantList);
+
+        List<Map<String, Object>> itemList = new ArrayList<>();
+        for (TopKSketch.Entry entry : items.entries()) {
+            itemList.add(Map.of("key", entry.key(), "count", entry.count(), "error", entry.error()));
+        }
+        doc.put("items", itemList);
+
+        List<Long> indexes = new ArrayList<>();
+        List<Long> counts = new ArrayList<>();
+        orderValues.buckets().forEach((index, n) -> {
+            indexes.add((long) index);
+            counts.add(n);
+        });
+        Map<String, Object> values = new HashMap<>();
+        values.put("accuracy", orderValues.accuracy());
+        values.put("zeros", orderValues.zeros());
+        values.put("sum", orderValues.sum());
+        values.put("indexes", indexes);
+        values.put("counts", counts);
+        doc.put("orderValues", values);
+        return doc;
+    }
+
+    /** Reads a checkpoint written by {@link #toDocument}; returns null if it used a different accuracy. */
+    @SuppressWarnings("unchecked")
+    static SalesWindow fromDocument(Map<String, Object> doc, int topItemCapacity, double valueAccuracy) {
+        Map<String, Object> values = (Map<String, Object>) doc.get("orderValues");
+        if (values == null || ((Number) values.get("accuracy")).doubleValue() != valueAccuracy) return null;
+
+        SalesWindow window = new SalesWindow(longOf(doc, "start"), topItemCapacity, valueAccuracy);
+        window.placed = longOf(doc, "placed");
+        window.cancelled = longOf(doc, "cancelled");
+        window.revenueCents = longOf(doc, "revenueCents");
+        window.cancelledCents = longOf(doc, "cancelledCents");
+
+        for (Map<String, Object> status : listOf(doc, "transitions")) {
+            window.transitions.put((String) status.get("status"), longOf(status, "count"));
+        }
+        for (Map<String, Object> restaurant : listOf(doc, "restaurants")) {
+            RestaurantSales sales = new RestaurantSales();
+            sales.orders = longOf(restaurant, "orders");
+            sales.revenueCents = longOf(restaurant, "revenueCents");
+            sales.cancelledCents = longOf(restaurant, "cancelledCents");
+            window.restaurants.put((String) restaurant.get("restaurant"), sales);
+        }
+
+        // Saved with a larger capacity: fold the smallest counters in through a merge.
+        TopKSketch saved = new TopKSketch(Math.max(topItemCapacity, listOf(doc, "items").size()));
+        for (Map<String, Object> item : listOf(doc, "items")) {
+            saved.restore(new TopKSketch.Entry((String) item.get("key"), longOf(item, "count"), longOf(item, "error")));
+        }
+        window.items.merge(saved);
+
+        List<Number> indexes = (List<Number>) values.get("indexes");
+        List<Number> counts = (List<Number>) values.get("counts");
+        Map<Integer, Long> buckets = new HashMap<>();
+        for (int i = 0; i < indexes.size(); i++) buckets.put(indexes.get(i).intValue(), counts.get(i).longValue());
+        window.orderValues.restore(buckets, longOf(values, "zeros"), ((Number) values.get("sum")).doubleValue());
+        return window;
+    }
+
+    private static long longOf(Map<String, Object> map, String field) {
+        Object value = map.get(field);
+        return value == null ? 0 : ((Number) value).longValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> listOf(Map<String, Object> map, String field) {
+        Object value = map.get(field);
+        return value == null ? List.of() : (List<Map<String, Object>>) value;
+    }
+}
@@ -0,0 +1,475 @@
+package com.foodorder.food_backend.service;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index over food and menu entries. Each term maps to a postings
+ * list of ascending doc ids in a primitive array, with a byte per posting
+ * recording which fields the term occurs in. A query term matches its exact
+ * term, terms it is a prefix of, and (from four characters up) terms one edit
+ * away, found through an index of single-character deletions. Every query
+ * term has to match; entries are ranked by field weight and term rarity.
+ * Removed entries are tombstoned. A postings list drops its dead docs once
+ * they make up a quarter of it, and a term left with none is forgotten, so
+ * update-heavy catalogs don't keep scanning stale postings; the doc table
+ * itself is rebuilt once tombstones outnumber the live entries.
+ */
+public class SearchIndex {
+
+    /** One searchable item; {@code key} identifies it for updates. */
+    public record Entry(String key, String foodId, String name, String category, double price, String imageUrl,
+                        String restaurantId, String restaurantName, String location) {}
+
+    public record Hit(Entry entry, float score) {}
+
+    private static final int NAME = 1;
+    private static final int CATEGORY = 2;
+    private static final int RESTAURANT = 4;
+    private static final int LOCATION = 8;
+    private static final float[] FIELD_WEIGHT = new float[16];
+
+    static {
+        for (int mask = 0; mask < 16; mask++) {
+            float weight = 0;
+            if ((mask & NAME) != 0) weight += 4f;
+            if ((mask & CATEGORY) != 0) weight += 2f;
+            if ((mask & RESTAURANT) != 0) weight += 1.5f;
+            if ((mask & LOCATION) != 0) weight += 1f;
+            FIELD_WEIGHT[mask] = weight;
+        }
+    }
+
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+    private static final int MIN_FUZZY_LENGTH = 4;
+    private static final float PREFIX_FACTOR = 0.6f;
+    private static final float FUZZY_FACTOR = 0.4f;
+    private static final int MIN_COMPACTION_TOMBSTONES = 10_000;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private final Map<String, List<String>> deletions = new HashMap<>();
+    private final Map<String, Integer> byKey = new HashMap<>();
+    private Entry[] docs = new Entry[1024];
+    private int nextDoc;
+    private int tombstones;
+
+    public void upsert(Entry entry) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(entry.key());
+            addLocked(entry);
+            maybeCompact();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String key) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(key);
+            maybeCompact();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Entry get(String key) {
+        lock.readLock().lock();
+        try {
+            Integer doc = byKey.get(key);
+            return doc == null ? null : docs[doc];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return byKey.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** The best {@code limit} entries matching every term of {@code query}, highest score first. */
+    public List<Hit> search(String query, int limit) {
+        List<String> tokens = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        if (tokens.isEmpty() || limit <= 0) return List.of();
+
+        lock.readLock().lock();
+        try {
+            List<List<Expansion>> perTerm = new ArrayList<>(tokens.size());
+            for (String token : tokens) {
+                List<Expansion> expansions = expand(token);
+                if (expansions.isEmpty()) return List.of();
+                perTerm.add(expansions);
+            }
+            // Start from the most selective term so later terms only check its candidates.
+            perTerm.sort(Comparator.comparingLong(SearchIndex::postingCount));
+
+            Matches candidates = union(perTerm.get(0), 0, perTerm.get(0).size());
+            for (int t = 1; t < perTerm.size() && candidates.size > 0; t++) {
+                candidates = narrow(candidates, perTerm.get(t));
+            }
+            return candidates.size == 0 ? List.of() : topK(candidates, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Expansion> expand(String token) {
+        List<Expansion> expansions = new ArrayList<>();
+        Postings exact = terms.get(token);
+        if (exact != null) expansions.add(new Expansion(exact, idf(exact)));
+
+        int expanded = 0;
+        for (Map.Entry<String, Postings> term : terms.subMap(token, false, token + Character.MAX_VALUE, false).entrySet()) {
+            if (++expanded > MAX_PREFIX_EXPANSIONS) break;
+            float closeness = token.length() / (float) term.getKey().length();
+            expansions.add(new Expansion(term.getValue(), PREFIX_FACTOR * closeness * idf(term.getValue())));
+        }
+
+        if (token.length() >= MIN_FUZZY_LENGTH) {
+            for (String term : fuzzyMatches(token)) {
+                if (term.startsWith(token)) continue;
+                Postings postings = terms.get(term);
+                expansions.add(new Expansion(postings, FUZZY_FACTOR * idf(postings)));
+            }
+        }
+        return expansions;
+    }
+
+    /** Indexed terms within one insertion, deletion, substitution or transposition of {@code token}. */
+    private Set<String> fuzzyMatches(String token) {
+        Set<String> matches = new HashSet<>();
+        List<String> longer = deletions.get(token);
+        if (longer != null) matches.addAll(longer);
+        for (String deleted : deletionsOf(token)) {
+            if (terms.containsKey(deleted)) matches.add(deleted);
+            List<String> sameLength = deletions.get(deleted);
+            if (sameLength == null) continue;
+            for (String term : sameLength) {
+                if (withinOneEdit(token, term)) matches.add(term);
+            }
+        }
+        matches.remove(token);
+        return matches;
+    }
+
+    private float idf(Postings postings) {
+        return (float) Math.log(1 + (double) byKey.size() / Math.max(1, postings.live()));
+    }
+
+    private static long postingCount(List<Expansion> expansions) {
+        long count = 0;
+        for (Expansion expansion : expansions) count += expansion.postings.live();
+        return count;
+    }
+
+    /** Every live doc matching any of the expansions, keeping each doc's best score. */
+    private Matches union(List<Expansion> expansions, int from, int to) {
+        if (to - from == 1) {
+            Expansion expansion = expansions.get(from);
+            Postings postings = expansion.postings;
+            Matches matches = new Matches(postings.size);
+            if (postings.dead == 0) {
+                for (int i = 0; i < postings.size; i++) {
+                    matches.add(postings.docs[i], expansion.factor * FIELD_WEIGHT[postings.fields[i]]);
+                }
+                return matches;
+            }
+            for (int i = 0; i < postings.size; i++) {
+                int doc = postings.docs[i];
+                if (docs[doc] != null) matches.add(doc, expansion.factor * FIELD_WEIGHT[postings.fields[i]]);
+            }
+            return matches;
+        }
+        int mid = (from + to) >>> 1;
+        Matches left = union(expansions, from, mid);
+        Matches right = union(expansions, mid, to);
+        Matches merged = new Matches(left.size + right.size);
+        int i = 0;
+        int j = 0;
+        while (i < left.size && j < right.size) {
+            int a = left.docs[i];
+            int b = right.docs[j];
+            if (a < b) {
+                merged.add(a, left.scores[i++]);
+            } else if (b < a) {
+                merged.add(b, right.scores[j++]);
+            } else {
+                merged.add(a, Math.max(left.scores[i++], right.scores[j++]));
+            }
+        }
+        while (i < left.size) merged.add(left.docs[i], left.scores[i++]);
+        while (j < right.size) merged.add(right.docs[j], right.scores[j++]);
+        return merged;
+    }
+
+    /**
+     * The candidates that also match one of {@code expansions}, each scored with
+     * its best expansion added. Walks every postings list alongside the
+     * candidates, galloping over stretches without one, so neither side is
+     * copied and a short candidate list skips most of a long postings list.
+     * Candidates are live, so dead postings never match.
+     */
+    private Matches narrow(Matches candidates, List<Expansion> expansions) {
+        // Against a term about as common as the candidates, first drop the candidates it misses
+        // through a bitmap; that merge is branch-free, and only the survivors need their fields.
+        if (postingCount(expansions) < (long) candidates.size * 4) candidates = filter(candidates, expansions);
+        float[] best = new float[candidates.size];
+        for (Expansion expansion : expansions) {
+            Postings postings = expansion.postings;
+            int at = 0;
+            for (int c = 0; c < candidates.size; c++) {
+                at = advance(postings, at, candidates.docs[c]);
+                if (at == postings.size) break;
+                if (postings.docs[at] == candidates.docs[c]) {
+                    best[c] = Math.max(best[c], expansion.factor * FIELD_WEIGHT[postings.fields[at]]);
+                }
+            }
+        }
+        Matches both = new Matches(candidates.size);
+        for (int c = 0; c < candidates.size; c++) {
+            if (best[c] > 0) both.add(candidates.docs[c], candidates.scores[c] + best[c]);
+        }
+        return both;
+    }
+
+    private Matches filter(Matches candidates, List<Expansion> expansions) {
+        long[] bits = new long[(nextDoc + 63) >>> 6];
+        for (Expansion expansion : expansions) {
+            Postings postings = expansion.postings;
+            for (int i = 0; i < postings.size; i++) bits[postings.docs[i] >>> 6] |= 1L << postings.docs[i];
+        }
+        Matches kept = new Matches(candidates.size);
+        for (int c = 0; c < candidates.size; c++) {
+            int doc = candidates.docs[c];
+            kept.docs[kept.size] = doc;
+            kept.scores[kept.size] = candidates.scores[c];
+            kept.size += (int) (bits[doc >>> 6] >>> doc) & 1;
+        }
+        return kept;
+    }
+
+    /** The first position from {@code from} on whose doc is not below {@code doc}. */
+    private static int advance(Postings postings, int from, int doc) {
+        int[] ids = postings.docs;
+        if (from == postings.size || ids[from] >= doc) return from;
+        int below = from;
+        int step = 1;
+        while (below + step < postings.size && ids[below + step] < doc) {
+            below += step;
+            step <<= 1;
+        }
+        int at = Arrays.binarySearch(ids, below + 1, Math.min(below + step + 1, postings.size), doc);
+        return at >= 0 ? at : -at - 1;
+    }
+
+    private List<Hit> topK(Matches matches, int limit) {
+        PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1, Comparator.comparingDouble(Hit::score));
+        for (int i = 0; i < matches.size; i++) {
+            float score = matches.scores[i];
+            if (best.size() == limit && score <= best.peek().score()) continue;
+            best.add(new Hit(docs[matches.docs[i]], score));
+            if (best.size() > limit) best.poll();
+        }
+        List<Hit> hits = new ArrayList<>(best);
+        hits.sort(Comparator.comparingDouble(Hit::score).reversed()
+                .thenComparing(hit -> String.valueOf(hit.entry().name())));
+        return hits;
+    }
+
+    private void addLocked(Entry entry) {
+        if (nextDoc == docs.length) docs = Arrays.copyOf(docs, docs.length * 2);
+        int doc = nextDoc++;
+        docs[doc] = entry;
+        byKey.put(entry.key(), doc);
+
+        for (Map.Entry<String, Integer> term : fieldsOf(entry).entrySet()) {
+            Postings postings = terms.get(term.getKey());
+            if (postings == null) {
+                postings = new Postings();
+                terms.put(term.getKey(), postings);
+                if (term.getKey().length() >= MIN_FUZZY_LENGTH) {
+                    for (String deleted : deletionsOf(term.getKey())) {
+                        deletions.computeIfAbsent(deleted, d -> new ArrayList<>(2)).add(term.getKey());
+                    }
+                }
+            }
+            postings.add(doc, term.getValue().byteValue());
+        }
+    }
+
+    /** Every term of the entry with the fields it occurs in. */
+    private static Map<String, Integer> fieldsOf(Entry entry) {
+        Map<String, Integer> fields = new HashMap<>();
+        collect(fields, entry.name(), NAME);
+        collect(fields, entry.category(), CATEGORY);
+        collect(fields, entry.restaurantName(), RESTAURANT);
+        collect(fields, entry.location(), LOCATION);
+        return fields;
+    }
+
+    private static void collect(Map<String, Integer> fields, String text, int field) {
+        for (String token : tokenize(text)) fields.merge(token, field, (a, b) -> a | b);
+    }
+
+    private void removeLocked(String key) {
+        Integer doc = byKey.remove(key);
+        if (doc == null) return;
+        Entry entry = docs[doc];
+        docs[doc] = null;
+        tombstones++;
+
+        for (String term : fieldsOf(entry).keySet()) {
+            Postings postings = terms.get(term);
+            if (postings == null || ++postings.dead * 4 < postings.size) continue;
+            postings.purge(docs);
+            if (postings.size == 0) forget(term);
+        }
+    }
+
+    private void forget(String term) {
+        terms.remove(term);
+        if (term.length() < MIN_FUZZY_LENGTH) return;
+        for (String deleted : deletionsOf(term)) {
+            List<String> longer = deletions.get(deleted);
+            if (longer != null && longer.remove(term) && longer.isEmpty()) deletions.remove(deleted);
+        }
+    }
+
+    private void maybeCompact() {
+        if (tombstones < MIN_COMPACTION_TOMBSTONES || tombstones < byKey.size()) return;
+        List<Entry> live = new ArrayList<>(byKey.size());
+        for (int doc = 0; doc < nextDoc; doc++) {
+            if (docs[doc] != null) live.add(docs[doc]);
+        }
+        terms.clear();
+        deletions.clear();
+        byKey.clear();
+        docs = new Entry[Math.max(1024, live.size() * 2)];
+        nextDoc = 0;
+        tombstones = 0;
+        for (Entry entry : live) addLocked(entry);
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) return List.of();
+        List<String> tokens = new ArrayList<>();
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static List<String> deletionsOf(String term) {
+        List<String> result = new ArrayList<>(term.length());
+        for (int i = 0; i < term.length(); i++) {
+            result.add(term.substring(0, i) + term.substring(i + 1));
+        }
+        return result;
+    }
+
+    /** Optimal-string-alignment distance of at most one between two strings. */
+    static boolean withinOneEdit(String a, String b) {
+        int la = a.length();
+        int lb = b.length();
+        if (Math.abs(la - lb) > 1) return false;
+        if (la == lb) {
+            int first = -1;
+            for (int i = 0; i < la; i++) {
+                if (a.charAt(i) == b.charAt(i)) continue;
+                if (first >= 0) {
+                    // Second mismatch: only an adjacent transposition is still one edit.
+                    return i == first + 1 && a.charAt(first) == b.charAt(i) && a.charAt(i) == b.charAt(first)
+                            && a.regionMatches(i + 1, b, i + 1, la - i - 1);
+                }
+                first = i;
+            }
+            return true;
+        }
+        String shorter = la < lb ? a : b;
+        String longer = la < lb ? b : a;
+        int i = 0;
+        while (i < shorter.length() && shorter.charAt(i) == longer.charAt(i)) i++;
+        return shorter.regionMatches(i, longer, i + 1, shorter.length() - i);
+    }
+
+    private record Expansion(Postings postings, float factor) {}
+
+    /** Ascending doc ids with the fields each doc has the term in; {@code dead} of them are tombstoned. */
+    private static final class Postings {
+        int[] docs = new int[4];
+        byte[] fields = new byte[4];
+        int size;
+        int dead;
+
+        int live() {
+            return size - dead;
+        }
+
+        /** Drops the postings of docs removed from {@code table}. */
+        void purge(Entry[] table) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (table[docs[i]] == null) continue;
+                docs[kept] = docs[i];
+                fields[kept++] = fields[i];
+            }
+            size = kept;
+            dead = 0;
+            if (docs.length > 16 && size < docs.length / 4) {
+                docs = Arrays.copyOf(docs, Math.max(4, size * 2));
+                fields = Arrays.copyOf(fields, docs.length);
+            }
+        }
+
+        void add(int doc, byte fieldMask) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                fields = Arrays.copyOf(fields, size * 2);
+            }
+            docs[size] = doc;
+            fields[size] = fieldMask;
+            size++;
+        }
+    }
+
+    /** Matching docs in ascending order with their scores so far. */
+    private static final class Matches {
+        final int[] docs;
+        final float[] scores;
+        int size;
+
+        Matches(int capacity) {
+            docs = new int[capacity];
+            scores = new float[capacity];
+        }
+
+        void add(int doc, float score) {
+            docs[size] = doc;
+            scores[size++] = score;
+        }
+    }
+}
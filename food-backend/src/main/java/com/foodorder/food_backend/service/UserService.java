@@ -1,61 +1,63 @@
 package com.foodorder.food_backend.service;
 
 import com.foodorder.food_backend.model.User;
-import com.google.api.core.ApiFuture;
 import com.google.cloud.firestore.*;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 
-import java.util.concurrent.ExecutionException;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class UserService {
     private final Firestore firestore;
-    private final BCryptPasswordEncoder passwordEncoder;
+    private final PasswordHasher passwordHasher;
 
-    public UserService(Firestore firestore) {
+    public UserService(Firestore firestore, PasswordHasher passwordHasher) {
         this.firestore = firestore;
-        this.passwordEncoder = new BCryptPasswordEncoder();
+        this.passwordHasher = passwordHasher;
     }
 
-    public String createUser(String name, String email, String plainPassword) throws ExecutionException, InterruptedException {
-        ApiFuture<QuerySnapshot> query = firestore.collection("users").whereEqualTo("email", email).get();
-        if (!query.get().isEmpty()) {
-            return "EXISTS";
-        }
-
-        String hash = passwordEncoder.encode(plainPassword);
-        DocumentReference docRef = firestore.collection("users").document();
-        User user = new User(docRef.getId(), name, email, hash, "USER");
-        ApiFuture<WriteResult> write = docRef.set(user);
-        return write.get().getUpdateTime().toString();
+    /**
+     * Hashes the password only once the e-mail lookup has come back empty, so
+     * duplicate signups and failed lookups don't spend a slot on the hashing pool.
+     */
+    public CompletableFuture<String> createUser(String name, String email, String plainPassword) {
+        return FirestoreFutures.toCompletable(firestore.collection("users").whereEqualTo("email", email).get(),
+                        "users", "query")
+                .thenCompose(found -> {
+                    if (!found.isEmpty()) {
+                        return CompletableFuture.completedFuture("EXISTS");
+                    }
+                    return passwordHasher.encode(plainPassword).thenCompose(passwordHash -> {
+                        DocumentReference docRef = firestore.collection("users").document();
+                        User user = new User(docRef.getId(), name, email, passwordHash, "USER");
+                        return FirestoreFutures.toCompletable(docRef.set(user), "users", "set")
+                                .thenApply(write -> write.getUpdateTime().toString());
+                    });
+                });
     }
 
-    public User authenticate(String email, String plainPassword) throws ExecutionException, InterruptedException {
-        ApiFuture<QuerySnapshot> query = firestore.collection("users").whereEqualTo("email", email).get();
-        QuerySnapshot snapshot = query.get();
-        if (snapshot.isEmpty()) return null;
+    public CompletableFuture<User> authenticate(String email, String plainPassword) {
+        return FirestoreFutures.toCompletable(firestore.collection("users").whereEqualTo("email", email).get(),
+                        "users", "query")
+                .thenCompose(snapshot -> {
+                    if (snapshot.isEmpty()) return CompletableFuture.completedFuture(null);
 
-        DocumentSnapshot doc = snapshot.getDocuments().get(0);
-        User user = doc.toObject(User.class);
-        if (user.getId() == null) user.setId(doc.getId());
+                    DocumentSnapshot doc = snapshot.getDocuments().get(0);
+                    User user = doc.toObject(User.class);
+                    if (user.getId() == null) user.setId(doc.getId());
 
-        if (user != null && passwordEncoder.matches(plainPassword, user.getPasswordHash())) {
-            return user;
-        }
-        return null;
+                    return passwordHasher.matches(plainPassword, user.getPasswordHash())
+                            .thenApply(matches -> matches ? user : null);
+                });
     }
 
-    public User getUserById(String userId) throws ExecutionException, InterruptedException {
+    public CompletableFuture<User> getUserById(String userId) {
         DocumentReference ref = firestore.collection("users").document(userId);
-        ApiFuture<DocumentSnapshot> future = ref.get();
-        DocumentSnapshot doc = future.get();
-        if (!doc.exists()) return null;
-        User user = doc.toObject(User.class);
-        if (user.getId() == null) user.setId(doc.getId());
-        return user;
+        return FirestoreFutures.toCompletable(ref.get(), "users", "get").thenApply(doc -> {
+            if (!doc.exists()) return null;
+            User user = doc.toObject(User.class);
+            if (user.getId() == null) user.setId(doc.getId());
+            return user;
+        });
     }
 }
-
@@ -0,0 +1,71 @@
+package com.foodorder.food_backend.timer;
+
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Timer built on a hierarchical timing wheel. Scheduling and cancellation are
+ * O(1); the clock only advances when a non-empty bucket expires, so idle
+ * ticks cost nothing. Due tasks are handed to {@code executor}.
+ *
+ * <p>The owner drives the timer by calling {@link #advanceClock(long)} in a loop.
+ */
+public class HierarchicalTimer {
+
+    private final Executor executor;
+    private final DelayQueue<TimerTaskList> queue = new DelayQueue<>();
+    private final AtomicInteger taskCounter = new AtomicInteger();
+    private final TimingWheel wheel;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public HierarchicalTimer(long tickMs, int wheelSize, Executor executor) {
+        this.executor = executor;
+        this.wheel = new TimingWheel(tickMs, wheelSize, System.currentTimeMillis(), taskCounter, queue);
+    }
+
+    public TimerTask schedule(long deadlineMs, Runnable action) {
+        TimerTask task = new TimerTask(deadlineMs, action);
+        lock.readLock().lock();
+        try {
+            addOrRun(task);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return task;
+    }
+
+    /**
+     * Waits up to {@code timeoutMs} for the next bucket to expire, then runs or
+     * cascades everything that is due. Returns true if a bucket was processed.
+     */
+    public boolean advanceClock(long timeoutMs) throws InterruptedException {
+        TimerTaskList bucket = queue.poll(timeoutMs, TimeUnit.MILLISECONDS);
+        if (bucket == null) return false;
+
+        lock.writeLock().lock();
+        try {
+            while (bucket != null) {
+                wheel.advanceClock(bucket.getExpiration());
+                bucket.flush(this::addOrRun);
+                bucket = queue.poll();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return true;
+    }
+
+    /** Number of tasks waiting in the wheel. */
+    public int size() {
+        return taskCounter.get();
+    }
+
+    private void addOrRun(TimerTask task) {
+        if (!wheel.add(task) && !task.isCancelled()) {
+            executor.execute(task.action);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.foodorder.food_backend.timer;
+
+/**
+ * A callback scheduled on a {@link HierarchicalTimer}. Each task sits in exactly
+ * one wheel bucket at a time, linked in place, so cancelling it is O(1).
+ */
+public class TimerTask {
+
+    final long deadlineMs;
+    final Runnable action;
+
+    volatile TimerTaskList bucket;
+    TimerTask prev;
+    TimerTask next;
+    private volatile boolean cancelled;
+
+    public TimerTask(long deadlineMs, Runnable action) {
+        this.deadlineMs = deadlineMs;
+        this.action = action;
+    }
+
+    public long getDeadlineMs() {
+        return deadlineMs;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /** Unlinks the task from its bucket. Returns false if it already ran or was cancelled. */
+    public boolean cancel() {
+        cancelled = true;
+        TimerTaskList current = bucket;
+        while (current != null) {
+            if (current.remove(this)) return true;
+            // Moved to another bucket while we looked (overflow wheel cascade); retry there.
+            current = bucket;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,72 @@
+package com.foodorder.food_backend.timer;
+
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/** One wheel bucket: a circular doubly linked list of tasks sharing an expiration tick. */
+class TimerTaskList implements Delayed {
+
+    private final AtomicInteger taskCounter;
+    private final TimerTask root = new TimerTask(-1, null);
+    private final AtomicLong expiration = new AtomicLong(-1);
+
+    TimerTaskList(AtomicInteger taskCounter) {
+        this.taskCounter = taskCounter;
+        root.next = root;
+        root.prev = root;
+    }
+
+    /** Sets the bucket's expiration; returns true if it changed, i.e. the bucket must be re-queued. */
+    boolean setExpiration(long expirationMs) {
+        return expiration.getAndSet(expirationMs) != expirationMs;
+    }
+
+    long getExpiration() {
+        return expiration.get();
+    }
+
+    synchronized void add(TimerTask task) {
+        TimerTask tail = root.prev;
+        task.next = root;
+        task.prev = tail;
+        task.bucket = this;
+        tail.next = task;
+        root.prev = task;
+        taskCounter.incrementAndGet();
+    }
+
+    synchronized boolean remove(TimerTask task) {
+        if (task.bucket != this) return false;
+        task.next.prev = task.prev;
+        task.prev.next = task.next;
+        task.next = null;
+        task.prev = null;
+        task.bucket = null;
+        taskCounter.decrementAndGet();
+        return true;
+    }
+
+    /** Removes every task and hands it to {@code sink}, either to run or to be re-inserted lower down. */
+    synchronized void flush(Consumer<TimerTask> sink) {
+        TimerTask head = root.next;
+        while (head != root) {
+            remove(head);
+            sink.accept(head);
+            head = root.next;
+        }
+        expiration.set(-1);
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+        return unit.convert(Math.max(getExpiration() - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed other) {
+        return Long.compare(getExpiration(), ((TimerTaskList) other).getExpiration());
+    }
+}
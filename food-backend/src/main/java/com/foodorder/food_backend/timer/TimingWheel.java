@@ -0,0 +1,75 @@
+package com.foodorder.food_backend.timer;
+
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One level of a hierarchical timing wheel. Deadlines beyond this wheel's span
+ * go to a coarser overflow wheel, created on demand, and cascade back down as
+ * the clock reaches them.
+ */
+class TimingWheel {
+
+    private final long tickMs;
+    private final int wheelSize;
+    private final long interval;
+    private final AtomicInteger taskCounter;
+    private final DelayQueue<TimerTaskList> queue;
+    private final TimerTaskList[] buckets;
+
+    private long currentTime;
+    private volatile TimingWheel overflowWheel;
+
+    TimingWheel(long tickMs, int wheelSize, long startMs, AtomicInteger taskCounter, DelayQueue<TimerTaskList> queue) {
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.interval = tickMs * wheelSize;
+        this.taskCounter = taskCounter;
+        this.queue = queue;
+        this.buckets = new TimerTaskList[wheelSize];
+        for (int i = 0; i < wheelSize; i++) buckets[i] = new TimerTaskList(taskCounter);
+        this.currentTime = startMs - (startMs % tickMs);
+    }
+
+    /** Returns false if the task is already due (or cancelled) and should run now. */
+    boolean add(TimerTask task) {
+        long deadline = task.deadlineMs;
+        if (task.isCancelled()) {
+            return false;
+        } else if (deadline < currentTime + tickMs) {
+            return false;
+        } else if (deadline < currentTime + interval) {
+            long virtualId = deadline / tickMs;
+            TimerTaskList bucket = buckets[(int) (virtualId % wheelSize)];
+            bucket.add(task);
+            if (bucket.setExpiration(virtualId * tickMs)) {
+                queue.offer(bucket);
+            }
+            return true;
+        } else {
+            return overflow().add(task);
+        }
+    }
+
+    void advanceClock(long timeMs) {
+        if (timeMs >= currentTime + tickMs) {
+            currentTime = timeMs - (timeMs % tickMs);
+            TimingWheel overflow = overflowWheel;
+            if (overflow != null) overflow.advanceClock(currentTime);
+        }
+    }
+
+    private TimingWheel overflow() {
+        TimingWheel overflow = overflowWheel;
+        if (overflow == null) {
+            synchronized (this) {
+                overflow = overflowWheel;
+                if (overflow == null) {
+                    overflow = new TimingWheel(interval, wheelSize, currentTime, taskCounter, queue);
+                    overflowWheel = overflow;
+                }
+            }
+        }
+        return overflow;
+    }
+}
@@ -0,0 +1,120 @@
+package com.foodorder.food_backend;
+
+import com.foodorder.food_backend.config.BackgroundThreads;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTests {
+
+    private RateLimiter limiter;
+
+    @AfterEach
+    void stop() {
+        if (limiter != null) limiter.stop();
+    }
+
+    /** Every route gets {@code spec}; order placement is the one exercised. */
+    private RateLimiter limiter(boolean enabled, int maxKeys, long sweepSeconds, String spec) {
+        limiter = new RateLimiter(new BackgroundThreads(false), new SimpleMeterRegistry(), enabled, maxKeys,
+                sweepSeconds, spec, spec, spec, spec, spec);
+        return limiter;
+    }
+
+    private static RateLimiter.Route placing(RateLimiter limiter) {
+        return limiter.routeFor("POST", "/api/order/place");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> routeStats(RateLimiter limiter, String route) {
+        return (Map<String, Object>) ((Map<String, Object>) limiter.stats().get("routes")).get(route);
+    }
+
+    @Test
+    void admitsABurstThenRejectsWithTheWaitForTheNextToken() {
+        RateLimiter limiter = limiter(true, 100, 30, "3/1");
+        RateLimiter.Route route = placing(limiter);
+
+        for (int i = 0; i < 3; i++) assertTrue(limiter.acquire(route, "user:a").admitted(), "request " + i);
+        RateLimiter.Decision rejected = limiter.acquire(route, "user:a");
+
+        assertFalse(rejected.admitted());
+        assertTrue(rejected.retryAfterNanos() > 0);
+        assertTrue(rejected.retryAfterNanos() <= TimeUnit.SECONDS.toNanos(1), rejected.retryAfterNanos() + " ns");
+        // Buckets are per client
+        assertTrue(limiter.acquire(route, "user:b").admitted());
+        assertEquals(4L, routeStats(limiter, "order-place").get("admitted"));
+        assertEquals(1L, routeStats(limiter, "order-place").get("rejected"));
+    }
+
+    @Test
+    void refillsAtTheConfiguredRate() throws InterruptedException {
+        RateLimiter limiter = limiter(true, 100, 30, "2/50");
+        RateLimiter.Route route = placing(limiter);
+
+        assertTrue(limiter.acquire(route, "user:a").admitted());
+        assertTrue(limiter.acquire(route, "user:a").admitted());
+        RateLimiter.Decision rejected = limiter.acquire(route, "user:a");
+        assertFalse(rejected.admitted());
+
+        TimeUnit.NANOSECONDS.sleep(rejected.retryAfterNanos() + TimeUnit.MILLISECONDS.toNanos(5));
+        assertTrue(limiter.acquire(route, "user:a").admitted());
+        assertFalse(limiter.acquire(route, "user:a").admitted());
+    }
+
+    @Test
+    void routesOnlyCartAndOrderRequests() {
+        RateLimiter limiter = limiter(true, 100, 30, "5/1");
+
+        assertEquals("cart-read", limiter.routeFor("GET", "/api/cart/u1").name());
+        assertEquals("cart-write", limiter.routeFor("POST", "/api/cart/u1/add").name());
+        assertEquals("cart-write", limiter.routeFor("DELETE", "/api/cart/u1/item/3").name());
+        assertEquals("order-place", limiter.routeFor("POST", "/api/order/place").name());
+        assertEquals("order-status", limiter.routeFor("PUT", "/api/order/update-status/u1/o1").name());
+        assertEquals("order-read", limiter.routeFor("GET", "/api/order/u1").name());
+        assertNull(limiter.routeFor("OPTIONS", "/api/cart/u1"));
+        assertNull(limiter.routeFor("GET", "/api/foods"));
+        assertNull(limiter(false, 100, 30, "5/1").routeFor("POST", "/api/order/place"));
+    }
+
+    @Test
+    void newClientsShareAnOverflowBucketOnceTheTableIsFull() {
+        RateLimiter limiter = limiter(true, 2, 30, "1/0.01");
+        RateLimiter.Route route = placing(limiter);
+
+        assertTrue(limiter.acquire(route, "user:a").admitted());
+        assertTrue(limiter.acquire(route, "user:b").admitted());
+        // Neither bucket has refilled, so the sweep frees nothing.
+        assertTrue(limiter.acquire(route, "user:c").admitted());
+        assertFalse(limiter.acquire(route, "user:d").admitted(), "d shares the bucket c drained");
+
+        assertEquals(2, limiter.stats().get("keys"));
+        assertEquals(2L, limiter.stats().get("overflowed"));
+    }
+
+    @Test
+    void sweepsBucketsThatHaveRefilled() throws InterruptedException {
+        RateLimiter limiter = limiter(true, 100, 1, "1/1000");
+        RateLimiter.Route route = placing(limiter);
+        limiter.start();
+
+        for (int i = 0; i < 10; i++) limiter.acquire(route, "user:" + i);
+        assertEquals(10, limiter.stats().get("keys"));
+
+        for (int i = 0; i < 300 && (int) limiter.stats().get("keys") > 0; i++) Thread.sleep(10);
+        assertEquals(0, limiter.stats().get("keys"));
+        assertEquals(10L, limiter.stats().get("evicted"));
+    }
+
+    @Test
+    void rejectsMalformedLimits() {
+        assertThrows(IllegalArgumentException.class, () -> limiter(true, 100, 30, "10"));
+        assertThrows(IllegalArgumentException.class, () -> limiter(true, 100, 30, "0/1"));
+        assertThrows(IllegalArgumentException.class, () -> limiter(true, 100, 30, "5/0"));
+    }
+}
@@ -0,0 +1,177 @@
+package com.foodorder.food_backend.journal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentedJournalTests {
+
+    /** Room for three records of {@link #record} size after the 16-byte segment header. */
+    private static final int SEGMENT_BYTES = 16 + 3 * (16 + 8);
+
+    @TempDir
+    Path dir;
+
+    private final List<Long> sequences = new ArrayList<>();
+    private final List<String> payloads = new ArrayList<>();
+    private SegmentedJournal journal;
+
+    @AfterEach
+    void close() throws IOException {
+        if (journal != null) journal.close();
+    }
+
+    /** An eight-byte payload, so each record takes 24 bytes. */
+    private static byte[] record(int i) {
+        return String.format("event-%02d", i).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private SegmentedJournal open() throws IOException {
+        sequences.clear();
+        payloads.clear();
+        journal = SegmentedJournal.open(dir, "orders", SEGMENT_BYTES, entry -> {
+            sequences.add(entry.sequence());
+            byte[] payload = new byte[entry.payload().remaining()];
+            entry.payload().get(payload);
+            payloads.add(new String(payload, StandardCharsets.US_ASCII));
+        });
+        return journal;
+    }
+
+    private void reopen() throws IOException {
+        journal.close();
+        journal = null;
+        open();
+    }
+
+    private Path segment(long baseSequence) {
+        return dir.resolve(String.format("orders-%020d.journal", baseSequence));
+    }
+
+    private static void overwrite(Path file, long offset, byte... bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(bytes), offset);
+        }
+    }
+
+    @Test
+    void replaysEveryRecordInOrderAcrossSegments() throws IOException {
+        open();
+        for (int i = 0; i < 7; i++) assertEquals(i, journal.append(record(i)));
+        assertEquals(3, journal.segmentCount());
+
+        reopen();
+
+        assertEquals(List.of(0L, 1L, 2L, 3L, 4L, 5L, 6L), sequences);
+        assertEquals("event-06", payloads.get(6));
+        assertEquals(7, journal.nextSequence());
+        assertEquals(7, journal.append(record(7)));
+    }
+
+    @Test
+    void dropsARecordTornBeforeItsLengthWasWritten() throws IOException {
+        open();
+        for (int i = 0; i < 2; i++) journal.append(record(i));
+        reopen();
+        // The sequence and payload of a third record made it to the page, its length did not.
+        ByteBuffer torn = ByteBuffer.allocate(16 + 8).putInt(0).putInt(0).putLong(2).put(record(2));
+        overwrite(segment(0), 16 + 2 * 24, torn.array());
+
+        reopen();
+        assertEquals(List.of("event-00", "event-01"), payloads);
+
+        journal.append(record(9));
+        reopen();
+        assertEquals(List.of("event-00", "event-01", "event-09"), payloads);
+    }
+
+    @Test
+    void stopsAtARecordWhoseChecksumDoesNotMatch() throws IOException {
+        open();
+        for (int i = 0; i < 3; i++) journal.append(record(i));
+        reopen();
+        // A page of the second record's payload never reached the disk.
+        overwrite(segment(0), 16 + 24 + 16, (byte) 'X');
+
+        reopen();
+        assertEquals(List.of("event-00"), payloads);
+        assertEquals(1, journal.nextSequence());
+
+        assertEquals(1, journal.append(record(5)));
+        reopen();
+        assertEquals(List.of("event-00", "event-05"), payloads);
+    }
+
+    @Test
+    void compactionLeavesOnlyTheSnapshot() throws IOException {
+        open();
+        for (int i = 0; i < 5; i++) journal.append(record(i));
+
+        journal.compact(List.of(record(20), record(21)));
+        assertEquals(1, journal.segmentCount());
+
+        reopen();
+        assertEquals(List.of(5L, 6L), sequences);
+        assertEquals(List.of("event-20", "event-21"), payloads);
+    }
+
+    @Test
+    void aCompactionCutShortReplaysTheOldRecordsThenTheSnapshot() throws IOException {
+        open();
+        for (int i = 0; i < 5; i++) journal.append(record(i));
+        journal.force();
+        Path first = segment(0);
+        Path second = segment(3);
+        byte[] firstBytes = Files.readAllBytes(first);
+        byte[] secondBytes = Files.readAllBytes(second);
+
+        journal.compact(List.of(record(20)));
+        // As if the process stopped before deleting the old segments
+        Files.write(first, firstBytes);
+        Files.write(second, secondBytes);
+
+        reopen();
+        assertEquals(List.of(0L, 1L, 2L, 3L, 4L, 5L), sequences);
+        assertEquals("event-20", payloads.get(5));
+    }
+
+    @Test
+    void resumesInABlankSegmentLeftByACrashDuringRollOver() throws IOException {
+        open();
+        for (int i = 0; i < 3; i++) journal.append(record(i));
+        journal.close();
+        journal = null;
+        Files.write(segment(3), new byte[SEGMENT_BYTES]);
+
+        open();
+        assertEquals(3, sequences.size());
+        assertEquals(2, journal.segmentCount());
+        assertEquals(3, journal.append(record(3)));
+
+        reopen();
+        assertEquals(List.of("event-00", "event-01", "event-02", "event-03"), payloads);
+    }
+
+    @Test
+    void refusesASegmentThatDoesNotContinueTheLog() throws IOException {
+        open();
+        for (int i = 0; i < 3; i++) journal.append(record(i));
+        journal.close();
+        journal = null;
+        Files.write(segment(9), new byte[SEGMENT_BYTES]);
+
+        assertThrows(IOException.class, this::open);
+    }
+}
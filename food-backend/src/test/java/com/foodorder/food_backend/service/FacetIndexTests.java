@@ -0,0 +1,90 @@
+package com.foodorder.food_backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FacetIndexTests {
+
+    private final FacetIndex index = new FacetIndex(new double[]{10, 20});
+
+    private static SearchIndex.Entry entry(String key, String category, double price) {
+        return new SearchIndex.Entry(key, key, key, category, price, null, null, null, null);
+    }
+
+    private static List<String> keys(FacetIndex.Result result) {
+        return result.items().stream().map(SearchIndex.Entry::key).toList();
+    }
+
+    @Test
+    void filtersAndCountsEachFacetAgainstTheOthersSelection() {
+        index.upsert(entry("a", "Pizza", 8));
+        index.upsert(entry("b", "Pizza", 15));
+        index.upsert(entry("c", "Burger", 15));
+        index.upsert(entry("d", "Burger", 25));
+
+        FacetIndex.Result result = index.filter(List.of("pizza"), List.of("10-20"), null, 10);
+
+        assertEquals(List.of("b"), keys(result));
+        assertEquals(1, result.total());
+        assertNull(result.next());
+        assertEquals(Map.of("Burger", 1, "Pizza", 1), result.categoryCounts());
+        assertEquals(Map.of("0-10", 1, "10-20", 1, "20+", 0), result.bandCounts());
+    }
+
+    @Test
+    void aPageCursorNeitherSkipsNewEntriesNorRepeatsReAddedOnes() {
+        for (int i = 0; i < 6; i++) index.upsert(entry("k" + i, "Pizza", 12));
+
+        FacetIndex.Result first = index.filter(List.of(), List.of(), null, 3);
+        assertEquals(List.of("k0", "k1", "k2"), keys(first));
+
+        // A restaurant edit removes and re-adds its menu; something new is added too.
+        index.remove("k1");
+        index.remove("k4");
+        index.upsert(entry("new", "Pizza", 12));
+        index.upsert(entry("k4", "Pizza", 13));
+        index.upsert(entry("k1", "Pizza", 12));
+
+        FacetIndex.Result second = index.filter(List.of(), List.of(), first.next(), 10);
+        assertEquals(List.of("k3", "k4", "k5", "new"), keys(second));
+        assertNull(second.next());
+        assertEquals(7, index.size());
+    }
+
+    @Test
+    void cursorsSurviveARenumbering() {
+        for (int i = 0; i < 10_000; i++) index.upsert(entry("k" + i, "Pizza", 12));
+        FacetIndex.Result first = index.filter(List.of(), List.of(), null, 2);
+        assertEquals(List.of("k0", "k1"), keys(first));
+
+        // Retiring more ids than stay live renumbers the index.
+        for (int i = 2; i < 10_000; i++) {
+            if (i % 1000 != 0) index.remove("k" + i);
+        }
+        assertEquals(11, index.size());
+        assertNotEquals(first.next(), index.filter(List.of(), List.of(), null, 2).next());
+
+        List<String> rest = new ArrayList<>();
+        String cursor = first.next();
+        do {
+            FacetIndex.Result page = index.filter(List.of(), List.of(), cursor, 4);
+            rest.addAll(keys(page));
+            cursor = page.next();
+        } while (cursor != null);
+        assertEquals(List.of("k1000", "k2000", "k3000", "k4000", "k5000", "k6000", "k7000", "k8000", "k9000"), rest);
+    }
+
+    @Test
+    void rejectsCursorsItDidNotHandOut() {
+        index.upsert(entry("a", "Pizza", 8));
+
+        for (String cursor : List.of("12", "x.1", "0.-1", "7.0")) {
+            assertThrows(IllegalArgumentException.class, () -> index.filter(List.of(), List.of(), cursor, 10), cursor);
+        }
+    }
+}
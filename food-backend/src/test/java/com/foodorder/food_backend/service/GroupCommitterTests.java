@@ -0,0 +1,122 @@
+package com.foodorder.food_backend.service;
+
+import com.foodorder.food_backend.config.BackgroundThreads;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GroupCommitterTests {
+
+    private final BackgroundThreads threads = new BackgroundThreads(false);
+    private final List<List<String>> commits = new CopyOnWriteArrayList<>();
+    private GroupCommitter<String, String> committer;
+
+    @AfterEach
+    void stop() {
+        if (committer != null) committer.stop();
+    }
+
+    /** Upper-cases every item; a group containing "bad" fails as a whole. */
+    private CompletableFuture<List<String>> upperCase(List<String> group) {
+        commits.add(List.copyOf(group));
+        if (group.contains("bad")) {
+            return CompletableFuture.failedFuture(new CompletionException(new IllegalStateException("rejected bad")));
+        }
+        List<String> results = new ArrayList<>();
+        for (String item : group) results.add(item.toUpperCase());
+        return CompletableFuture.completedFuture(results);
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        return future.get(2, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void commitsConcurrentItemsTogetherAndAnswersEachInOrder() throws Exception {
+        committer = new GroupCommitter<>("test-committer", threads, 3, 500, this::upperCase);
+
+        CompletableFuture<String> a = committer.submit("a");
+        CompletableFuture<String> b = committer.submit("b");
+        CompletableFuture<String> c = committer.submit("c");
+
+        assertEquals("A", await(a));
+        assertEquals("B", await(b));
+        assertEquals("C", await(c));
+        // A full group closes without waiting out the window
+        assertEquals(List.of(List.of("a", "b", "c")), commits);
+    }
+
+    @Test
+    void closesAGroupWhenItsWindowEnds() throws Exception {
+        committer = new GroupCommitter<>("test-committer", threads, 100, 20, this::upperCase);
+
+        long start = System.nanoTime();
+        assertEquals("ONLY", await(committer.submit("only")));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+        assertEquals(List.of(List.of("only")), commits);
+    }
+
+    @Test
+    void retriesAFailedGroupItemByItem() throws Exception {
+        committer = new GroupCommitter<>("test-committer", threads, 3, 500, this::upperCase);
+
+        CompletableFuture<String> good = committer.submit("good");
+        CompletableFuture<String> bad = committer.submit("bad");
+        CompletableFuture<String> fine = committer.submit("fine");
+
+        assertEquals("GOOD", await(good));
+        assertEquals("FINE", await(fine));
+        ExecutionException error = assertThrows(ExecutionException.class, () -> await(bad));
+        // The caller sees the sink's own exception, not the completion wrapper
+        assertTrue(error.getCause() instanceof IllegalStateException, String.valueOf(error.getCause()));
+
+        assertEquals(List.of("good", "bad", "fine"), commits.get(0));
+        assertEquals(4, commits.size());
+        assertEquals(1L, committer.stats().get("groupFailures"));
+        assertEquals(1L, committer.stats().get("failed"));
+    }
+
+    @Test
+    void closesAGroupBeforeItsWeightWouldPassTheBound() throws Exception {
+        // An item weighs its length; groups hold at most 6
+        committer = new GroupCommitter<>("test-committer", threads, 100, 6, String::length, 50, this::upperCase);
+
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (String item : List.of("aa", "bbb", "cc", "d", "eeeeeeee", "f")) results.add(committer.submit(item));
+
+        for (CompletableFuture<String> result : results) await(result);
+        assertEquals(List.of(List.of("aa", "bbb"), List.of("cc", "d"), List.of("eeeeeeee"), List.of("f")), commits);
+        assertEquals(0L, committer.stats().get("groupFailures"));
+        assertEquals(6, committer.stats().get("maxWeight"));
+    }
+
+    @Test
+    void treatsASinkThatThrowsLikeAFailedCommit() throws Exception {
+        committer = new GroupCommitter<>("test-committer", threads, 1, 10, group -> {
+            throw new IllegalArgumentException("sink blew up");
+        });
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> await(committer.submit("x")));
+        assertTrue(error.getCause() instanceof IllegalArgumentException);
+        assertEquals(1L, committer.stats().get("failed"));
+    }
+
+    @Test
+    void rejectsSubmissionsAfterStop() {
+        committer = new GroupCommitter<>("test-committer", threads, 3, 10, this::upperCase);
+        committer.stop();
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> await(committer.submit("late")));
+        assertTrue(error.getCause() instanceof RejectedExecutionException);
+    }
+}
@@ -0,0 +1,139 @@
+package com.foodorder.food_backend.service;
+
+import com.foodorder.food_backend.config.BackgroundThreads;
+import com.google.api.core.ApiFutures;
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderLifecycleEngineTests {
+
+    private final Firestore db = mock(Firestore.class, RETURNS_DEEP_STUBS);
+    private final OrderJournal journal = mock(OrderJournal.class);
+    private OrderLifecycleEngine engine;
+
+    @AfterEach
+    void stop() {
+        if (engine != null) engine.stop();
+    }
+
+    private OrderLifecycleEngine engine() {
+        engine = new OrderLifecycleEngine(db, mock(OrderStatusPipeline.class), journal, new BackgroundThreads(false),
+                new SimpleMeterRegistry(), 100, 64, 1);
+        return engine;
+    }
+
+    /** The {@code orderTransitions} mirror holding one document per given order id, all placed just now at step 0. */
+    private void mirror(String... orderIds) {
+        List<QueryDocumentSnapshot> docs = new ArrayList<>();
+        for (String orderId : orderIds) {
+            QueryDocumentSnapshot doc = mock(QueryDocumentSnapshot.class);
+            when(doc.getId()).thenReturn(orderId);
+            when(doc.getString("userId")).thenReturn("user-1");
+            when(doc.getLong("placedAt")).thenReturn(System.currentTimeMillis());
+            when(doc.getLong("step")).thenReturn(0L);
+            docs.add(doc);
+        }
+        QuerySnapshot snapshot = mock(QuerySnapshot.class);
+        when(snapshot.getDocuments()).thenReturn(docs);
+        Query page = mock(Query.class);
+        when(page.get()).thenReturn(ApiFutures.immediateFuture(snapshot));
+        when(db.collection("orderTransitions").orderBy(any(FieldPath.class)).limit(anyInt())).thenReturn(page);
+    }
+
+    @Test
+    void resumesFromTheJournalAndAdoptsOrdersItMissed() {
+        when(journal.isRecovered()).thenReturn(true);
+        when(journal.liveOrders()).thenReturn(Map.of(
+                "journaled", new OrderJournal.LiveOrder("user-1", System.currentTimeMillis(), "Placed", 0)));
+        // "lost" committed to Firestore but the process stopped before journaling it
+        mirror("journaled", "lost");
+
+        OrderLifecycleEngine engine = engine();
+        engine.resume();
+
+        assertEquals(2, engine.stats().get("trackedOrders"));
+        verify(journal).adopt(eq("user-1"), eq("lost"), anyLong(), eq(0));
+        verify(journal, never()).adopt(anyString(), eq("journaled"), anyLong(), anyInt());
+    }
+
+    @Test
+    void resumesFromFirestoreWithoutAJournal() {
+        when(journal.isRecovered()).thenReturn(false);
+        mirror("a", "b");
+
+        OrderLifecycleEngine engine = engine();
+        engine.resume();
+
+        assertEquals(2, engine.stats().get("trackedOrders"));
+        verify(journal).adopt(eq("user-1"), eq("a"), anyLong(), eq(0));
+        verify(journal).adopt(eq("user-1"), eq("b"), anyLong(), eq(0));
+    }
+
+    /** A journal holding one order placed ten minutes ago, so its first transition is long overdue. */
+    private void overdueInJournal() {
+        when(journal.isRecovered()).thenReturn(true);
+        when(journal.liveOrders()).thenReturn(Map.of("overdue", new OrderJournal.LiveOrder("user-1",
+                System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(10), "Placed", 0)));
+        mirror();
+    }
+
+    @Test
+    void waitsForTheHandlerBeforeResumingOverdueOrders() throws InterruptedException {
+        overdueInJournal();
+        List<String> applied = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+
+        OrderLifecycleEngine engine = engine();
+        engine.start();
+        Thread.sleep(100);
+        // As in production, the handler arrives after start(), from OrderService's constructor.
+        engine.setHandler((userId, orderId, status) -> {
+            applied.add(orderId + " " + status);
+            done.countDown();
+            return CompletableFuture.completedFuture(true);
+        });
+
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertEquals(List.of("overdue Cooking"), applied);
+    }
+
+    @Test
+    void keepsAnOverdueTransitionThatFiresWithoutAHandler() throws InterruptedException {
+        overdueInJournal();
+
+        OrderLifecycleEngine engine = engine();
+        engine.resume();
+
+        // Fired at once with nobody to apply it, so put back on the wheel for a retry
+        for (int i = 0; i < 200 && engine.queueDepth() == 0; i++) Thread.sleep(10);
+        assertEquals(1L, engine.stats().get("fired"));
+        assertEquals(1, engine.queueDepth());
+        assertEquals(1, engine.stats().get("trackedOrders"));
+    }
+}
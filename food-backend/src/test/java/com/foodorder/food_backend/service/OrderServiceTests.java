@@ -0,0 +1,181 @@
+package com.foodorder.food_backend.service;
+
+import com.foodorder.food_backend.model.CartItem;
+import com.google.api.core.ApiFutures;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.FirestoreException;
+import com.google.cloud.firestore.Precondition;
+import com.google.cloud.firestore.WriteBatch;
+import com.google.cloud.firestore.WriteResult;
+import io.grpc.Status;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderServiceTests {
+
+    private final Firestore db = mock(Firestore.class, RETURNS_DEEP_STUBS);
+    private final CartService cartService = mock(CartService.class);
+    private final OrderIngest ingest = mock(OrderIngest.class);
+    private final KitchenQueue kitchen = mock(KitchenQueue.class);
+    private final OrderJournal journal = mock(OrderJournal.class);
+    private final OrderLifecycleEngine lifecycle = mock(OrderLifecycleEngine.class);
+    private PriceIndex prices;
+
+    @AfterEach
+    void stop() {
+        if (prices != null) prices.stop();
+    }
+
+    private OrderService orderService() throws InterruptedException {
+        prices = PriceIndexTests.loadedIndex(List.of(PriceIndexTests.food("food-1", "Garlic Bread", 4.25)), List.of());
+        when(kitchen.route(any())).thenReturn(CompletableFuture.completedFuture(List.of()));
+        when(cartService.checkout(anyString()))
+                .thenReturn(CompletableFuture.completedFuture(mock(CartEngine.Checkout.class)));
+        when(ingest.submit(anyInt(), any())).thenReturn(CompletableFuture.completedFuture(Timestamp.now()));
+
+        return new OrderService(db, cartService, lifecycle, mock(OrderStatusPipeline.class),
+                mock(OrderEventHub.class), ingest, prices, mock(SalesAnalytics.class), kitchen, journal,
+                new SimpleMeterRegistry(), true);
+    }
+
+    private static DocumentSnapshot order(String status, long updatedAtSeconds) {
+        DocumentSnapshot snapshot = mock(DocumentSnapshot.class);
+        when(snapshot.exists()).thenReturn(true);
+        when(snapshot.getString("status")).thenReturn(status);
+        when(snapshot.getUpdateTime()).thenReturn(Timestamp.ofTimeSecondsAndNanos(updatedAtSeconds, 0));
+        when(snapshot.getData()).thenReturn(Map.of("status", status, "totalAmount", 8.5, "items", List.of()));
+        return snapshot;
+    }
+
+    /** The order document the service reads and writes, returning {@code reads} in turn. */
+    private DocumentReference orderDocument(DocumentSnapshot... reads) {
+        DocumentReference orderRef = mock(DocumentReference.class);
+        when(db.collection("users").document("user-1").collection("orders").document("order-1")).thenReturn(orderRef);
+        var stubbing = when(orderRef.get());
+        for (DocumentSnapshot read : reads) stubbing = stubbing.thenReturn(ApiFutures.immediateFuture(read));
+        return orderRef;
+    }
+
+    private static FirestoreException conflict() {
+        FirestoreException conflict = mock(FirestoreException.class);
+        when(conflict.getStatus()).thenReturn(Status.FAILED_PRECONDITION);
+        return conflict;
+    }
+
+    /** A cart line as CartService stores it: its own random id, the item's name, no restaurant for a standalone food. */
+    private static CartItem cartLine(String name, double price, int quantity) {
+        return new CartItem("3f1c9a52-line", name, price, null, null, quantity);
+    }
+
+    @Test
+    void placesAnOrderForAStandaloneFood() throws Exception {
+        OrderService service = orderService();
+
+        Map<String, Object> result = service.placeOrder("user-1", List.of(cartLine("Garlic Bread", 4.25, 2)),
+                "1 Test Lane", 8.50).get(2, TimeUnit.SECONDS);
+
+        assertEquals("success", result.get("status"), String.valueOf(result.get("message")));
+        // The order and its lifecycle record; no kitchen tickets or stored cart lines here
+        verify(ingest).submit(eq(2), any());
+        verify(journal).placed(eq("user-1"), anyString(), anyLong(), eq(8.50), anyList());
+    }
+
+    @Test
+    void chargesTheMenuPriceRatherThanTheClientsOwn() throws Exception {
+        OrderService service = orderService();
+
+        Map<String, Object> result = service.placeOrder("user-1", List.of(cartLine("Garlic Bread", 0.01, 2)),
+                "1 Test Lane", 0.02).get(2, TimeUnit.SECONDS);
+
+        assertEquals("error", result.get("status"));
+        assertEquals("Prices have changed, please review your order", result.get("message"));
+        verify(ingest, never()).submit(anyInt(), any());
+    }
+
+    @Test
+    void rejectsAnItemThatIsNotOnAnyMenu() throws Exception {
+        OrderService service = orderService();
+
+        Map<String, Object> result = service.placeOrder("user-1", List.of(cartLine("Garlic Knots", 3.0, 1)),
+                "1 Test Lane", 3.0).get(2, TimeUnit.SECONDS);
+
+        assertEquals("error", result.get("status"));
+        assertEquals("Item is no longer on the menu: Garlic Knots", result.get("message"));
+        verify(ingest, never()).submit(anyInt(), any());
+    }
+
+    @Test
+    void cancelWritesOnlyIfTheOrderIsUnchangedSinceItWasRead() throws Exception {
+        OrderService service = orderService();
+        DocumentReference orderRef = orderDocument(order("Placed", 100));
+        WriteBatch batch = mock(WriteBatch.class);
+        when(db.batch()).thenReturn(batch);
+        WriteResult written = mock(WriteResult.class);
+        when(batch.commit()).thenReturn(ApiFutures.immediateFuture(List.of(written)));
+
+        Map<String, Object> result = service.cancelOrder("user-1", "order-1").get(2, TimeUnit.SECONDS);
+
+        assertEquals("success", result.get("status"), String.valueOf(result.get("message")));
+        verify(batch).update(eq(orderRef), eq(Map.of("status", "Cancelled")),
+                eq(Precondition.updatedAt(Timestamp.ofTimeSecondsAndNanos(100, 0))));
+        verify(lifecycle).cancel("order-1");
+        verify(journal).cancelled("user-1", "order-1");
+    }
+
+    @Test
+    void aCancelThatLosesTheRaceRereadsAndRunsNoSideEffects() throws Exception {
+        OrderService service = orderService();
+        orderDocument(order("Placed", 100), order("Cancelled", 101));
+        WriteBatch batch = mock(WriteBatch.class);
+        when(db.batch()).thenReturn(batch);
+        FirestoreException conflict = conflict();
+        when(batch.commit()).thenReturn(ApiFutures.immediateFailedFuture(conflict));
+
+        Map<String, Object> result = service.cancelOrder("user-1", "order-1").get(2, TimeUnit.SECONDS);
+
+        assertEquals("error", result.get("status"));
+        assertEquals("Order already cancelled", result.get("message"));
+        verify(lifecycle, never()).cancel(anyString());
+        verify(journal, never()).cancelled(anyString(), anyString());
+    }
+
+    @Test
+    void aCancelRacingStatusChangesGivesUpAfterAFewAttempts() throws Exception {
+        OrderService service = orderService();
+        orderDocument(order("Placed", 100), order("Preparing", 101), order("Out for Delivery", 102));
+        WriteBatch batch = mock(WriteBatch.class);
+        when(db.batch()).thenReturn(batch);
+        FirestoreException conflict = conflict();
+        when(batch.commit()).thenReturn(ApiFutures.immediateFailedFuture(conflict));
+
+        Map<String, Object> result = service.cancelOrder("user-1", "order-1").get(2, TimeUnit.SECONDS);
+
+        assertEquals("error", result.get("status"));
+        assertEquals("Order is being updated, please try again", result.get("message"));
+        verify(batch, times(3)).commit();
+        verify(journal, never()).cancelled(anyString(), anyString());
+    }
+}
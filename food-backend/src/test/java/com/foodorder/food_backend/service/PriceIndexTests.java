@@ -0,0 +1,139 @@
+package com.foodorder.food_backend.service;
+
+import com.foodorder.food_backend.config.BackgroundThreads;
+import com.foodorder.food_backend.model.Food;
+import com.foodorder.food_backend.model.Restaurant;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PriceIndexTests {
+
+    private PriceIndex index;
+
+    @AfterEach
+    void stop() {
+        if (index != null) index.stop();
+    }
+
+    /**
+     * A started index over a catalog whose views have already loaded the given
+     * items. Only their load signals trigger a rebuild; no document changes are
+     * ever reported.
+     */
+    static PriceIndex loadedIndex(List<Food> foods, List<Restaurant> restaurants) throws InterruptedException {
+        Map<String, Restaurant> restaurantsById = new HashMap<>();
+        for (Restaurant restaurant : restaurants) restaurantsById.put(restaurant.getId(), restaurant);
+
+        CatalogCache catalog = mock(CatalogCache.class);
+        CatalogCache.View<Food> foodView = loadedView(foods, Map.of());
+        CatalogCache.View<Restaurant> restaurantView = loadedView(restaurants, restaurantsById);
+        CatalogCache.View<Food> menuView = loadedView(List.of(), Map.of());
+        when(catalog.foods()).thenReturn(foodView);
+        when(catalog.restaurants()).thenReturn(restaurantView);
+        when(catalog.menus()).thenReturn(menuView);
+
+        PriceIndex index = new PriceIndex(catalog, new BackgroundThreads(false));
+        index.start();
+        for (int i = 0; i < 200 && !index.isReady(); i++) Thread.sleep(10);
+        return index;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> CatalogCache.View<T> loadedView(List<T> items, Map<String, T> byId) {
+        CatalogCache.View<T> view = mock(CatalogCache.View.class);
+        when(view.isLoaded()).thenReturn(true);
+        when(view.all()).thenReturn(CompletableFuture.completedFuture(items));
+        when(view.entries()).thenReturn(byId);
+        when(view.get(any())).thenAnswer(call -> byId.get(call.<String>getArgument(0)));
+        doAnswer(call -> {
+            call.<Runnable>getArgument(0).run();
+            return null;
+        }).when(view).onLoad(any());
+        return view;
+    }
+
+    static Food food(String id, String name, double price) {
+        Food food = new Food();
+        food.setId(id);
+        food.setName(name);
+        food.setPrice(price);
+        return food;
+    }
+
+    @Test
+    void becomesReadyWhenEveryViewLoadsEmpty() throws InterruptedException {
+        index = loadedIndex(List.of(), List.of());
+
+        assertTrue(index.isReady());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void findsStandaloneFoodsByNameAsWellAsById() throws InterruptedException {
+        index = loadedIndex(List.of(food("food-1", "Garlic Bread", 4.25)), List.of());
+
+        assertEquals(425, index.priceCents("food-1", null, "Garlic Bread"));
+        // Cart lines carry their own line id, never the catalog id
+        assertEquals(425, index.priceCents("cart-line-7", null, "Garlic Bread"));
+        assertEquals(PriceIndex.UNKNOWN, index.priceCents("cart-line-7", null, "Garlic Knots"));
+    }
+
+    @Test
+    void findsMenuItemsByRestaurantAndName() throws InterruptedException {
+        Restaurant luigi = new Restaurant("Luigi's");
+        luigi.setId("r1");
+        luigi.setMenu(List.of(food("m1", "Margherita", 9.5)));
+        Restaurant mario = new Restaurant("Mario's");
+        mario.setId("r2");
+        mario.setMenu(List.of(food("m2", "Margherita", 11.0)));
+
+        index = loadedIndex(List.of(), List.of(luigi, mario));
+
+        assertEquals(950, index.priceCents(null, "Luigi's", "Margherita"));
+        assertEquals(1100, index.priceCents(null, "Mario's", "Margherita"));
+        assertEquals(PriceIndex.UNKNOWN, index.priceCents(null, "Nobody's", "Margherita"));
+        // The food id wins over the name
+        assertEquals(1100, index.priceCents("m2", "Luigi's", "Margherita"));
+    }
+
+    @Test
+    void aNameSharedAtDifferentPricesOnlyMatchesById() throws InterruptedException {
+        index = loadedIndex(List.of(food("food-1", "Garlic Bread", 4.25), food("food-2", "Garlic Bread", 5.0),
+                food("food-3", "Lassi", 2.0), food("food-4", "Lassi", 2.0)), List.of());
+
+        assertEquals(PriceIndex.UNKNOWN, index.priceCents("cart-line-7", null, "Garlic Bread"));
+        assertEquals(425, index.priceCents("food-1", null, "Garlic Bread"));
+        assertEquals(500, index.priceCents("food-2", null, "Garlic Bread"));
+        // Same name, same price: either item will do
+        assertEquals(200, index.priceCents("cart-line-8", null, "Lassi"));
+        assertEquals(1, index.stats().get("ambiguousNames"));
+    }
+
+    @Test
+    void tableKeepsEveryEntryAcrossCollisionsAndTheZeroKey() {
+        PriceIndex.Table.Builder prices = new PriceIndex.Table.Builder();
+        for (long key = 0; key < 5000; key++) prices.put(key * 1024, (int) key);
+        PriceIndex.Table table = prices.build();
+
+        assertEquals(5000, table.size);
+        for (long key = 0; key < 5000; key++) assertEquals((int) key, table.get(key * 1024));
+        assertEquals(PriceIndex.UNKNOWN, table.get(7));
+    }
+
+    @Test
+    void toCentsRoundsToTheNearestCent() {
+        assertEquals(1999, PriceIndex.toCents(19.99));
+        assertEquals(30, PriceIndex.toCents(0.1 + 0.2));
+    }
+}
@@ -0,0 +1,86 @@
+package com.foodorder.food_backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchIndexTests {
+
+    private static SearchIndex.Entry entry(String key, String name, String category, String restaurant) {
+        return new SearchIndex.Entry(key, key, name, category, 10, null, null, restaurant, "Kolkata");
+    }
+
+    private static List<String> keys(List<SearchIndex.Hit> hits) {
+        return hits.stream().map(hit -> hit.entry().key()).toList();
+    }
+
+    @Test
+    void everyQueryTermHasToMatch() {
+        SearchIndex index = new SearchIndex();
+        index.upsert(entry("a", "Chicken Biryani", "Rice", "Luigi's"));
+        index.upsert(entry("b", "Chicken Burger", "Burger", "Luigi's"));
+        index.upsert(entry("c", "Veg Burger", "Burger", "Mario's"));
+
+        assertEquals(List.of("b"), keys(index.search("chicken burger", 10)));
+        assertEquals(List.of("c"), keys(index.search("burg mario", 10)));
+        assertEquals(List.of("a"), keys(index.search("chiken biryani", 10)));
+        assertTrue(index.search("chicken sushi", 10).isEmpty());
+    }
+
+    @Test
+    void upsertReplacesTheOldEntry() {
+        SearchIndex index = new SearchIndex();
+        index.upsert(entry("a", "Chicken Biryani", "Rice", "Luigi's"));
+        index.upsert(entry("a", "Paneer Tikka", "Starter", "Luigi's"));
+
+        assertEquals(1, index.size());
+        assertTrue(index.search("biryani", 10).isEmpty());
+        assertEquals(List.of("a"), keys(index.search("paneer", 10)));
+    }
+
+    @Test
+    void forgetsTermsWhoseEntriesAreAllGone() {
+        SearchIndex index = new SearchIndex();
+        index.upsert(entry("a", "Sushi Roll", "Japanese", "Tokyo"));
+        index.upsert(entry("b", "Masala Dosa", "South Indian", "Chennai Express"));
+        int before = index.termCount();
+
+        index.remove("a");
+
+        // sushi, roll, japanese and tokyo go; kolkata is still used by the dosa
+        assertEquals(before - 4, index.termCount());
+        assertTrue(index.search("sushi", 10).isEmpty());
+        assertTrue(index.search("sush", 10).isEmpty());
+        assertEquals(List.of("b"), keys(index.search("kolkata", 10)));
+    }
+
+    @Test
+    void scoresAfterHeavyChurnMatchAFreshIndex() {
+        SearchIndex churned = new SearchIndex();
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 400; i++) {
+                String dish = (i + round) % 3 == 0 ? "Margherita Pizza" : "Chicken Burger";
+                churned.upsert(entry("k" + i, dish + " " + i, "Mains", "Restaurant " + i % 7));
+            }
+        }
+        for (int i = 0; i < 400; i += 2) churned.remove("k" + i);
+
+        SearchIndex fresh = new SearchIndex();
+        for (int i = 0; i < 400; i++) {
+            SearchIndex.Entry entry = churned.get("k" + i);
+            if (entry != null) fresh.upsert(entry);
+        }
+
+        for (String query : List.of("pizza", "chiken", "restaurant 3", "burger 1")) {
+            List<SearchIndex.Hit> expected = fresh.search(query, 400);
+            List<SearchIndex.Hit> actual = churned.search(query, 400);
+            assertEquals(expected.size(), actual.size(), query);
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).score(), actual.get(i).score(), 1e-6f, query);
+            }
+        }
+        assertEquals(fresh.termCount(), churned.termCount());
+    }
+}
@@ -0,0 +1,119 @@
+package com.foodorder.food_backend.timer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HierarchicalTimerTests {
+
+    private final List<Long> firedAt = new CopyOnWriteArrayList<>();
+    private final List<String> fired = new CopyOnWriteArrayList<>();
+    private volatile boolean driving = true;
+    private Thread driver;
+
+    @AfterEach
+    void stopDriver() throws InterruptedException {
+        driving = false;
+        if (driver != null) driver.join(1000);
+    }
+
+    /** Runs due tasks on the driving thread, as the lifecycle engine's worker pool would. */
+    private HierarchicalTimer startTimer(long tickMs, int wheelSize) {
+        HierarchicalTimer timer = new HierarchicalTimer(tickMs, wheelSize, Runnable::run);
+        driver = new Thread(() -> {
+            try {
+                while (driving) timer.advanceClock(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        driver.start();
+        return timer;
+    }
+
+    private Runnable record(String name, CountDownLatch done) {
+        return () -> {
+            firedAt.add(System.currentTimeMillis());
+            fired.add(name);
+            done.countDown();
+        };
+    }
+
+    @Test
+    void firesOnceAtItsDeadlineAndNotBefore() throws InterruptedException {
+        HierarchicalTimer timer = startTimer(10, 8);
+        CountDownLatch done = new CountDownLatch(1);
+        long deadline = System.currentTimeMillis() + 50;
+
+        timer.schedule(deadline, record("a", done));
+        assertEquals(1, timer.size());
+
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        assertEquals(List.of("a"), fired);
+        // The bucket expires at the start of the deadline's tick
+        assertTrue(firedAt.get(0) >= deadline - 10, "fired " + (deadline - firedAt.get(0)) + " ms early");
+        assertEquals(0, timer.size());
+    }
+
+    @Test
+    void cascadesDeadlinesBeyondTheWheelThroughOverflowWheels() throws InterruptedException {
+        // Four 1 ms ticks per level, so 60 ms out sits three levels up.
+        HierarchicalTimer timer = startTimer(1, 4);
+        CountDownLatch done = new CountDownLatch(1);
+        long deadline = System.currentTimeMillis() + 60;
+
+        timer.schedule(deadline, record("far", done));
+
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertTrue(firedAt.get(0) >= deadline - 1, "fired " + (deadline - firedAt.get(0)) + " ms early");
+        assertEquals(0, timer.size());
+    }
+
+    @Test
+    void firesInDeadlineOrder() throws InterruptedException {
+        HierarchicalTimer timer = startTimer(5, 4);
+        CountDownLatch done = new CountDownLatch(3);
+        long now = System.currentTimeMillis();
+
+        timer.schedule(now + 90, record("third", done));
+        timer.schedule(now + 20, record("first", done));
+        timer.schedule(now + 55, record("second", done));
+
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertEquals(List.of("first", "second", "third"), fired);
+    }
+
+    @Test
+    void runsAnOverdueTaskImmediately() throws InterruptedException {
+        HierarchicalTimer timer = startTimer(10, 8);
+        CountDownLatch done = new CountDownLatch(1);
+
+        timer.schedule(System.currentTimeMillis() - 1000, record("late", done));
+
+        assertTrue(done.await(100, TimeUnit.MILLISECONDS));
+        assertEquals(0, timer.size());
+    }
+
+    @Test
+    void cancelledTaskNeverRuns() throws InterruptedException {
+        HierarchicalTimer timer = startTimer(1, 4);
+        CountDownLatch done = new CountDownLatch(1);
+        long now = System.currentTimeMillis();
+
+        TimerTask cancelled = timer.schedule(now + 40, record("cancelled", new CountDownLatch(1)));
+        timer.schedule(now + 60, record("kept", done));
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel(), "a second cancel finds nothing to unlink");
+        assertEquals(1, timer.size());
+
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertEquals(List.of("kept"), fired);
+    }
+}